@@ -2,8 +2,10 @@ package com.example.sportstats;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class SportStatsApplication {
     public static void main(String[] args) {
         SpringApplication.run(SportStatsApplication.class, args);
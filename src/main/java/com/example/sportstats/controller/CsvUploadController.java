@@ -1,14 +1,30 @@
 package com.example.sportstats.controller;
 
+import com.example.sportstats.service.ChunkedUploadService;
+import com.example.sportstats.service.CsvDiffService;
+import com.example.sportstats.service.ChunkedUploadSession;
+import com.example.sportstats.service.CsvImportJob;
+import com.example.sportstats.service.CsvImportJobService;
 import com.example.sportstats.service.CsvUploadService;
+import com.example.sportstats.service.RejectReportStore;
+import com.example.sportstats.util.CsvStructureException;
 import com.example.sportstats.util.CsvValidator;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.env.Environment;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -18,25 +34,45 @@ import java.util.Map;
 public class CsvUploadController {
     
     private final CsvUploadService csvUploadService;
+    private final CsvImportJobService csvImportJobService;
+    private final ChunkedUploadService chunkedUploadService;
+    private final CsvDiffService csvDiffService;
+    private final RejectReportStore rejectReportStore;
     private final CsvValidator csvValidator;
     private final Environment environment;
     
     @Autowired
     public CsvUploadController(
             CsvUploadService csvUploadService,
+            CsvImportJobService csvImportJobService,
+            ChunkedUploadService chunkedUploadService,
+            CsvDiffService csvDiffService,
+            RejectReportStore rejectReportStore,
             CsvValidator csvValidator,
             Environment environment) {
         this.csvUploadService = csvUploadService;
+        this.csvImportJobService = csvImportJobService;
+        this.chunkedUploadService = chunkedUploadService;
+        this.csvDiffService = csvDiffService;
+        this.rejectReportStore = rejectReportStore;
         this.csvValidator = csvValidator;
         this.environment = environment;
     }
     
     /**
-     * Загрузить CSV файл в базу данных
+     * Загрузить CSV файл в базу данных.
+     * С async=true файл загружается в фоне, а ответ 202 сразу содержит id задачи
      */
     @PostMapping("/upload")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<Map<String, Object>> uploadCsv(@RequestParam("file") MultipartFile file) {
+    public ResponseEntity<Map<String, Object>> uploadCsv(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "async", defaultValue = "false") boolean async) throws IOException {
+        if (async) {
+            CsvImportJob job = csvImportJobService.submit(file);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job.toMap());
+        }
+        
         Map<String, Object> result = csvUploadService.uploadCsvFile(file);
         
         if (result.containsKey("success") && (Boolean) result.get("success")) {
@@ -46,6 +82,163 @@ public class CsvUploadController {
         }
     }
     
+    /**
+     * Заменить весь набор игроков содержимым CSV файла. Файл загружается в теневую
+     * таблицу или хранилище, а текущие данные подменяются одной операцией только
+     * после успешной загрузки, так что читатели не видят пустой или неполный набор.
+     * С async=true замена идет в фоне, как и обычная загрузка
+     */
+    @PostMapping("/replace")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> replaceDataset(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "async", defaultValue = "false") boolean async) throws IOException {
+        if (async) {
+            CsvImportJob job = csvImportJobService.submit(file, true);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(job.toMap());
+        }
+        
+        Map<String, Object> result = csvUploadService.replaceDataset(file);
+        
+        if (result.containsKey("success") && (Boolean) result.get("success")) {
+            return ResponseEntity.ok(result);
+        } else {
+            return ResponseEntity.badRequest().body(result);
+        }
+    }
+    
+    /**
+     * Предпросмотр: что изменится, если заменить текущий набор игроков этим файлом.
+     * Ничего не записывает; возвращает число добавленных, измененных, удаленных
+     * и неизменных игроков и до sampleSize примеров каждого изменения
+     */
+    @PostMapping("/diff")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> diffCsv(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "sampleSize", defaultValue = "10") int sampleSize) {
+        try {
+            return ResponseEntity.ok(csvDiffService.diff(file, Math.max(0, sampleSize)));
+        } catch (CsvStructureException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            response.put("expectedHeaders", List.of("Name", "Team", "Position", "Height(inches)", "Weight(lbs)", "Age"));
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+    
+    /**
+     * Список фоновых загрузок, начиная с последней
+     */
+    @GetMapping("/jobs")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<Map<String, Object>>> getJobs() {
+        return ResponseEntity.ok(csvImportJobService.getJobs().stream()
+                .map(CsvImportJob::toMap)
+                .toList());
+    }
+    
+    /**
+     * Прогресс фоновой загрузки: прочитано строк, скорость, счетчики и итоговый результат
+     */
+    @GetMapping("/jobs/{jobId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getJob(@PathVariable String jobId) {
+        return csvImportJobService.getJob(jobId)
+                .map(job -> ResponseEntity.ok(job.toMap()))
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
+    /**
+     * Отменить фоновую загрузку. Уже записанные пачки остаются в базе,
+     * отмененная замена набора не меняет ничего
+     */
+    @DeleteMapping("/jobs/{jobId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> cancelJob(@PathVariable String jobId) {
+        Map<String, Object> response = new HashMap<>();
+        boolean cancelled = csvImportJobService.cancel(jobId);
+        
+        response.put("jobId", jobId);
+        response.put("success", cancelled);
+        response.put("message", cancelled ? "Отмена запрошена" : "Задача уже завершена");
+        
+        return cancelled ? ResponseEntity.ok(response) : ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+    }
+    
+    /**
+     * Скачать отчет об отклоненных строках загрузки: CSV с номером строки, причиной
+     * и полями исходной строки. Ссылка на отчет есть в результате загрузки (rejectReport.url)
+     */
+    @GetMapping("/rejects/{reportId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Resource> getRejectReport(@PathVariable String reportId) {
+        return rejectReportStore.find(reportId)
+                .<ResponseEntity<Resource>>map(path -> ResponseEntity.ok()
+                        .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+                        .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                                .filename("rejects-" + reportId + ".csv").build().toString())
+                        .body(new FileSystemResource(path)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
+    /**
+     * Начать загрузку по частям. Запись в базу стартует сразу и идет по мере прихода частей
+     */
+    @PostMapping("/uploads")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> initiateUpload(
+            @RequestParam(value = "fileName", defaultValue = "upload.csv") String fileName) throws IOException {
+        ChunkedUploadSession session = chunkedUploadService.initiate(fileName);
+        return ResponseEntity.status(HttpStatus.CREATED).body(session.toMap());
+    }
+    
+    /**
+     * Передать часть с номером index (с нуля) в теле запроса.
+     * После обрыва соединения клиент узнает nextChunk через GET и продолжает с него
+     */
+    @PutMapping(value = "/uploads/{uploadId}/chunks/{index}", consumes = "*/*")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> uploadChunk(
+            @PathVariable String uploadId,
+            @PathVariable int index,
+            InputStream body) {
+        ChunkedUploadSession session = chunkedUploadService.appendChunk(uploadId, index, body);
+        return ResponseEntity.ok(session.toMap());
+    }
+    
+    /**
+     * Завершить загрузку по частям; totalChunks, если передан, сверяется с числом принятых частей
+     */
+    @PostMapping("/uploads/{uploadId}/complete")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> completeUpload(
+            @PathVariable String uploadId,
+            @RequestParam(value = "totalChunks", required = false) Integer totalChunks) {
+        ChunkedUploadSession session = chunkedUploadService.complete(uploadId, totalChunks);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(session.toMap());
+    }
+    
+    /**
+     * Состояние загрузки по частям: следующая ожидаемая часть и прогресс записи в базу
+     */
+    @GetMapping("/uploads/{uploadId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getUpload(@PathVariable String uploadId) {
+        return ResponseEntity.ok(chunkedUploadService.getSession(uploadId).toMap());
+    }
+    
+    /**
+     * Прервать загрузку по частям
+     */
+    @DeleteMapping("/uploads/{uploadId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> abortUpload(@PathVariable String uploadId) {
+        chunkedUploadService.abort(uploadId);
+        return ResponseEntity.ok(chunkedUploadService.getSession(uploadId).toMap());
+    }
+    
     /**
      * Проверить структуру CSV файла без загрузки
      */
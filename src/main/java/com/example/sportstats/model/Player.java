@@ -1,5 +1,6 @@
 package com.example.sportstats.model;
 
+import com.example.sportstats.util.StringPool;
 import jakarta.persistence.*;
 import java.util.Objects;
 
@@ -17,7 +18,7 @@ public class Player {
     private Integer weightLbs;
     private Double age;
     
-
+    
     @Transient
     private Double heightMeters;
     
@@ -27,46 +28,170 @@ public class Player {
     @Transient
     private Double bmi; // Индекс массы тела
     
+    // id равен generateId(name, team) и строится при первом getId
+    @Transient
+    private boolean idPending;
+    
     // Конструкторы
     public Player() {}
     
     public Player(String name, String team, String position, Integer heightInches, 
                   Integer weightLbs, Double age) {
-        this.id = generateId(name, team);
+        this(generateId(name, team), name, team, position, heightInches, weightLbs, age);
+    }
+    
+    // Для чтения из хранилища, где id уже известен: без повторной генерации id
+    public Player(String id, String name, String team, String position, Integer heightInches,
+                  Integer weightLbs, Double age) {
+        this.id = id;
         this.name = name;
-        this.team = team;
-        this.position = position;
+        this.team = StringPool.TEAMS.intern(team);
+        this.position = StringPool.POSITIONS.intern(position);
         this.heightInches = heightInches;
         this.weightLbs = weightLbs;
         this.age = age;
     }
     
-    private String generateId(String name, String team) {
-        return team + "_" + name.replaceAll("[^a-zA-Z0-9]", "_");
+    /**
+     * Для чтения из хранилища, которое не хранит id, равный generateId(name, team):
+     * строка id строится только при первом getId, обход игроков без id ее не выделяет
+     */
+    public static Player withGeneratedId(String name, String team, String position, Integer heightInches,
+                                         Integer weightLbs, Double age) {
+        Player player = new Player(null, name, team, position, heightInches, weightLbs, age);
+        player.idPending = true;
+        return player;
+    }
+    
+    /**
+     * id вида TEAM_Name_Surname: каждый символ имени вне [a-zA-Z0-9] заменяется на "_".
+     * Результат тот же, что у name.replaceAll("[^a-zA-Z0-9]", "_"), но без регулярного выражения
+     */
+    public static String generateId(String name, String team) {
+        StringBuilder id = new StringBuilder(team.length() + 1 + name.length());
+        id.append(team).append('_');
+        for (int i = 0; i < name.length(); ) {
+            int codePoint = name.codePointAt(i);
+            boolean allowed = (codePoint >= 'a' && codePoint <= 'z')
+                    || (codePoint >= 'A' && codePoint <= 'Z')
+                    || (codePoint >= '0' && codePoint <= '9');
+            id.append(allowed ? (char) codePoint : '_');
+            i += Character.charCount(codePoint);
+        }
+        return id.toString();
+    }
+    
+    /**
+     * Совпадает ли id с generateId(name, team); проверка без построения строки
+     */
+    public static boolean isGeneratedId(String id, String name, String team) {
+        // Суррогатная пара дает один символ id, поэтому id не длиннее team + "_" + name
+        if (id == null || name == null || team == null
+                || id.length() < team.length() + 1 || id.length() > team.length() + 1 + name.length()
+                || !id.startsWith(team) || id.charAt(team.length()) != '_') {
+            return false;
+        }
+        int pos = team.length() + 1;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            char expected;
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')) {
+                expected = c;
+            } else {
+                expected = '_';
+                // Символ вне BMP, как у codePointAt в generateId, - один "_"
+                if (Character.isHighSurrogate(c) && i + 1 < name.length() && Character.isLowSurrogate(name.charAt(i + 1))) {
+                    i++;
+                }
+            }
+            if (pos >= id.length() || id.charAt(pos++) != expected) {
+                return false;
+            }
+        }
+        return pos == id.length();
+    }
+    
+    /**
+     * То же, что generateId(name, team).hashCode(), но без построения строки
+     */
+    public static int generatedIdHash(String name, String team) {
+        int hash = team.hashCode() * 31 + '_';
+        for (int i = 0; i < name.length(); ) {
+            int codePoint = name.codePointAt(i);
+            boolean allowed = (codePoint >= 'a' && codePoint <= 'z')
+                    || (codePoint >= 'A' && codePoint <= 'Z')
+                    || (codePoint >= '0' && codePoint <= '9');
+            hash = hash * 31 + (allowed ? codePoint : '_');
+            i += Character.charCount(codePoint);
+        }
+        return hash;
+    }
+    
+    /**
+     * 64-битный хэш FNV-1a по всем полям игрока, кроме ID: игроки с одним ID
+     * и одинаковым хэшем считаются неизменными при сравнении наборов
+     */
+    public static long contentHash(Player player) {
+        long hash = 0xcbf29ce484222325L;
+        hash = hash(hash, player.getName());
+        hash = hash(hash, player.getTeam());
+        hash = hash(hash, player.getPosition());
+        hash = hash(hash, player.getHeightInches() == null ? Long.MIN_VALUE : player.getHeightInches());
+        hash = hash(hash, player.getWeightLbs() == null ? Long.MIN_VALUE : player.getWeightLbs());
+        return hash(hash, player.getAge() == null ? Long.MIN_VALUE : Double.doubleToLongBits(player.getAge()));
+    }
+    
+    private static long hash(long hash, String value) {
+        if (value == null) {
+            return hash(hash, Long.MIN_VALUE);
+        }
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        // Длина отделяет поля друг от друга: "AB" + "C" и "A" + "BC" дают разные хэши
+        return hash(hash, value.length());
+    }
+    
+    private static long hash(long hash, long value) {
+        for (int i = 0; i < 8; i++) {
+            hash = (hash ^ (value & 0xff)) * 0x100000001b3L;
+            value >>>= 8;
+        }
+        return hash;
     }
     
     // Геттеры и сеттеры
-    public String getId() { return id; }
-    public void setId(String id) { this.id = id; }
+    public String getId() {
+        String result = id;
+        if (result == null && idPending) {
+            // Гонка безопасна: все потоки строят одну и ту же строку
+            result = id = generateId(name, team);
+        }
+        return result;
+    }
+    public void setId(String id) {
+        this.id = id;
+        this.idPending = false;
+    }
     
     public String getName() { return name; }
     public void setName(String name) { 
         this.name = name;
         if (team != null) {
-            this.id = generateId(name, team);
+            setId(generateId(name, team));
         }
     }
     
     public String getTeam() { return team; }
     public void setTeam(String team) { 
-        this.team = team;
+        this.team = StringPool.TEAMS.intern(team);
         if (name != null) {
-            this.id = generateId(name, team);
+            setId(generateId(name, team));
         }
     }
     
     public String getPosition() { return position; }
-    public void setPosition(String position) { this.position = position; }
+    public void setPosition(String position) { this.position = StringPool.POSITIONS.intern(position); }
     
     public Integer getHeightInches() { return heightInches; }
     public void setHeightInches(Integer heightInches) { 
@@ -106,6 +231,13 @@ public class Player {
         return null;
     }
     
+    // Hibernate заполняет поля напрямую, минуя сеттеры
+    @PostLoad
+    private void internStrings() {
+        this.team = StringPool.TEAMS.intern(team);
+        this.position = StringPool.POSITIONS.intern(position);
+    }
+    
     private void updateDerivedFields() {
         // Триггер для обновления производных полей
     }
@@ -115,11 +247,11 @@ public class Player {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Player player = (Player) o;
-        return Objects.equals(id, player.id);
+        return Objects.equals(getId(), player.getId());
     }
     
     @Override
     public int hashCode() {
-        return Objects.hash(id);
+        return Objects.hash(getId());
     }
 }
\ No newline at end of file
@@ -0,0 +1,139 @@
+package com.example.sportstats.repository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.FileTime;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Следит за внешним CSV файлом и при его изменении применяет разницу к хранилищу
+ * CSV профиля без перезапуска приложения. Отслеживается каталог файла, поэтому
+ * замена через переименование (запись во временный файл и move) тоже замечается.
+ * После события выжидается пауза без новых событий, чтобы не читать файл,
+ * который еще дописывается
+ */
+@Component
+@Profile("csv")
+public class CsvFileWatcher {
+    
+    private final CsvRepository csvRepository;
+    private final Path file;
+    private final long debounceMillis;
+    private WatchService watchService;
+    
+    // Размер и время изменения последней примененной версии файла
+    private long appliedSize = -1;
+    private FileTime appliedModified;
+    
+    /**
+     * @param watchPath отслеживаемый CSV файл; пустая строка - перезагрузка выключена
+     * @param debounceMillis сколько миллисекунд файл должен не меняться перед перезагрузкой
+     */
+    public CsvFileWatcher(
+            CsvRepository csvRepository,
+            @Value("${sportstats.csv.watch-path:}") String watchPath,
+            @Value("${sportstats.csv.watch-debounce-ms:500}") long debounceMillis) {
+        this.csvRepository = csvRepository;
+        this.file = watchPath.isBlank() ? null : Path.of(watchPath).toAbsolutePath();
+        this.debounceMillis = debounceMillis;
+    }
+    
+    @PostConstruct
+    public void start() throws IOException {
+        if (file == null) {
+            return;
+        }
+        Path dir = file.getParent();
+        if (!Files.isDirectory(dir)) {
+            System.err.println("х Каталог " + dir + " не существует, перезагрузка " + file.getFileName() + " выключена");
+            return;
+        }
+        watchService = dir.getFileSystem().newWatchService();
+        dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        
+        // Файл мог измениться, пока приложение не работало
+        reloadIfChanged();
+        
+        Thread thread = new Thread(this::watch, "players-csv-watch");
+        thread.setDaemon(true);
+        thread.start();
+        System.out.println("Отслеживаются изменения " + file);
+    }
+    
+    @PreDestroy
+    public void stop() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+    
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean relevant = drain(key);
+                // Ждем, пока события по файлу не прекратятся на время паузы
+                while (true) {
+                    WatchKey next = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    relevant |= drain(next);
+                }
+                if (relevant) {
+                    reloadIfChanged();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Приложение останавливается
+        }
+    }
+    
+    /**
+     * @return true, если среди событий есть события по отслеживаемому файлу
+     */
+    private boolean drain(WatchKey key) {
+        boolean relevant = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                    || file.getFileName().equals(event.context())) {
+                relevant = true;
+            }
+        }
+        key.reset();
+        return relevant;
+    }
+    
+    private void reloadIfChanged() {
+        try {
+            if (!Files.isRegularFile(file)) {
+                // Удаленный файл не означает пустой состав: хранилище не трогаем
+                return;
+            }
+            long size = Files.size(file);
+            FileTime modified = Files.getLastModifiedTime(file);
+            if (size == appliedSize && Objects.equals(modified, appliedModified)) {
+                return;
+            }
+            csvRepository.reloadFrom(file);
+            appliedSize = size;
+            appliedModified = modified;
+        } catch (Exception e) {
+            // Текущий состав остается в силе, следующее изменение файла попробует снова
+            System.err.println("х Не удалось перезагрузить " + file + ": " + e.getMessage());
+        }
+    }
+}
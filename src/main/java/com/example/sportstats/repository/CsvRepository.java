@@ -2,31 +2,449 @@ package com.example.sportstats.repository;
 
 import com.example.sportstats.model.Player;
 import com.example.sportstats.util.CsvParser;
+import com.example.sportstats.util.CsvStructureException;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Repository;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.OptionalDouble;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
 
 @Repository("CsvRepository")
 @Profile("csv")
-public class CsvRepository implements CommonRepository<Player> {
+public class CsvRepository implements CommonRepository<Player>, PlayerQueries {
     
-    private final Map<String, Player> storage = new ConcurrentHashMap<>();
+    // Игроки хранятся по колонкам (см. PlayerColumns). Перезагрузка из файла подменяет
+    // хранилище целиком, чтобы читатели видели либо старый, либо новый состав
+    // без промежуточных состояний
+    private volatile PlayerColumns storage = new PlayerColumns(0);
     private final CsvParser csvParser;
+    private final Path snapshotPath;
+    private final Path walDir;
+    private final boolean walFsync;
+    private final long compactBytes;
+    private final ClassPathResource source = new ClassPathResource("players.csv");
+    // Отпечаток players.csv для снимка: {размер, CRC32 содержимого}. Время изменения
+    // ресурса не годится - сборка проставляет его заново и неизменному файлу
+    private volatile long[] sourceFingerprint;
+    
+    // Запись в журнал и в хранилище выполняется под этой блокировкой, чтобы порядок
+    // записей в журнале совпадал с порядком изменений и перезагрузка не теряла
+    // параллельные изменения; ожидание fsync - уже без нее
+    private final Object writeLock = new Object();
+    // Номер версии хранилища, растет с каждым изменением; меняется под writeLock
+    private long version;
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    private PlayerWriteAheadLog wal;
+    // ID из последней примененной версии внешнего файла (см. reloadFrom);
+    // до первой перезагрузки неизвестны
+    private volatile Set<String> fileIds = Set.of();
     
     public CsvRepository(CsvParser csvParser) {
+        this(csvParser, "", "", true, Long.MAX_VALUE);
+    }
+    
+    /**
+     * @param snapshotPath файл бинарного снимка; пустая строка - снимок не используется,
+     *                     а при включенном журнале - players.snapshot рядом с каталогом журнала,
+     *                     иначе журнал нечем сжимать и он растет без ограничения
+     * @param walDir каталог журнала изменений; пустая строка - изменения не сохраняются между запусками
+     * @param walFsync сбрасывать ли журнал на диск (fsync) перед ответом на запрос
+     * @param compactBytes после скольких байт журнала он сжимается в снимок
+     */
+    @Autowired
+    public CsvRepository(
+            CsvParser csvParser,
+            @Value("${sportstats.csv.snapshot-path:}") String snapshotPath,
+            @Value("${sportstats.csv.wal.dir:}") String walDir,
+            @Value("${sportstats.csv.wal.fsync:true}") boolean walFsync,
+            @Value("${sportstats.csv.wal.compact-bytes:67108864}") long compactBytes) {
         this.csvParser = csvParser;
+        this.walDir = walDir.isBlank() ? null : Path.of(walDir);
+        if (!snapshotPath.isBlank()) {
+            this.snapshotPath = Path.of(snapshotPath);
+        } else if (this.walDir != null) {
+            this.snapshotPath = this.walDir.toAbsolutePath().resolveSibling("players.snapshot");
+        } else {
+            this.snapshotPath = null;
+        }
+        this.walFsync = walFsync;
+        this.compactBytes = compactBytes;
     }
     
     @PostConstruct
-    public void init() {
-        List<Player> players = csvParser.parseCsv("players.csv");
-        players.forEach(p -> storage.put(p.getId(), p));
-        System.out.println("Loaded " + players.size() + " players from CSV");
+    public void init() throws IOException {
+        long start = System.nanoTime();
+        long snapshotSequence = loadSnapshot();
+        if (snapshotSequence >= 0) {
+            System.out.println("Загружено " + storage.size() + " игроков из снимка " + snapshotPath
+                    + " за " + (System.nanoTime() - start) / 1_000_000 + " мс");
+        } else {
+            // Игроки сразу попадают в хранилище, промежуточный список не строится
+            csvParser.streamCsv("players.csv", storage::put);
+            System.out.println("Разбор players.csv занял " + (System.nanoTime() - start) / 1_000_000 + " мс");
+        }
+        // Колонки и индексы росли с запасом; копия без запаса отдает его до первых запросов
+        storage = storage.copy(0);
+        
+        long lastSequence = Math.max(0, snapshotSequence);
+        if (walDir != null) {
+            // Изменения из журнала накладываются поверх CSV или снимка
+            long replayStart = System.nanoTime();
+            int[] replayed = {0};
+            lastSequence = PlayerWriteAheadLog.replay(walDir, lastSequence, new PlayerWriteAheadLog.Replayer() {
+                @Override
+                public void put(Player player) {
+                    storage.put(player);
+                    replayed[0]++;
+                }
+                
+                @Override
+                public void delete(String id) {
+                    storage.remove(id);
+                    replayed[0]++;
+                }
+                
+                @Override
+                public void clear() {
+                    storage.clear();
+                    replayed[0]++;
+                }
+            });
+            if (replayed[0] > 0) {
+                System.out.println("Применено " + replayed[0] + " изменений из журнала за "
+                        + (System.nanoTime() - replayStart) / 1_000_000 + " мс");
+            }
+            wal = new PlayerWriteAheadLog(walDir, lastSequence, walFsync);
+            if (replayed[0] > 0) {
+                compact();
+                return;
+            }
+        }
+        if (snapshotSequence < 0 && snapshotPath != null) {
+            writeSnapshot(lastSequence);
+        }
+    }
+    
+    @PreDestroy
+    public void close() {
+        if (wal != null) {
+            wal.close();
+        }
+    }
+    
+    /**
+     * Сохраняет текущее содержимое хранилища в бинарный снимок для быстрого старта.
+     * При включенном журнале это сжатие: журнал, вошедший в снимок, удаляется
+     * @return false, если снимок не настроен или не записан
+     */
+    public boolean writeSnapshot() {
+        if (wal != null) {
+            return compact();
+        }
+        return writeSnapshot(0);
+    }
+    
+    private boolean writeSnapshot(long logSequence) {
+        if (snapshotPath == null) {
+            return false;
+        }
+        try {
+            long start = System.nanoTime();
+            long[] fingerprint = sourceFingerprint();
+            PlayerSnapshot.write(snapshotPath, storage.rows(), fingerprint[0], fingerprint[1],
+                    logSequence);
+            System.out.println("Снимок " + snapshotPath + " записан за " + (System.nanoTime() - start) / 1_000_000 + " мс");
+            return true;
+        } catch (IOException e) {
+            System.err.println("х Не удалось записать снимок " + snapshotPath + ": " + e.getMessage());
+            return false;
+        }
+    }
+    
+    /**
+     * Сжатие журнала: текущий сегмент закрывается, хранилище пишется в снимок,
+     * закрытые сегменты удаляются. Снимок пишется без остановки записи: изменения,
+     * сделанные во время записи, есть в новом сегменте и при восстановлении
+     * применятся повторно, а повторное применение записи журнала ничего не портит
+     */
+    private boolean compact() {
+        if (snapshotPath == null || !compacting.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            long sequence;
+            synchronized (writeLock) {
+                sequence = wal.rotate();
+            }
+            wal.awaitDurable(sequence);
+            if (!writeSnapshot(sequence)) {
+                return false;
+            }
+            wal.deleteSegmentsThrough(sequence);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("х Не удалось сжать журнал изменений: " + e.getMessage());
+            return false;
+        } finally {
+            compacting.set(false);
+        }
+    }
+    
+    /**
+     * Ждет фиксации записи журнала и при необходимости запускает сжатие в фоне
+     */
+    private void awaitDurable(long sequence) {
+        wal.awaitDurable(sequence);
+        if (wal.sizeSinceRotate() > compactBytes && snapshotPath != null && !compacting.get()) {
+            Thread compactor = new Thread(this::compact, "players-wal-compact");
+            compactor.setDaemon(true);
+            compactor.start();
+        }
+    }
+    
+    /**
+     * Размер и CRC32 players.csv; файл в classpath не меняется, поэтому считается один раз
+     */
+    private long[] sourceFingerprint() throws IOException {
+        long[] fingerprint = sourceFingerprint;
+        if (fingerprint == null) {
+            CRC32 crc = new CRC32();
+            long length = 0;
+            byte[] buffer = new byte[1 << 16];
+            try (InputStream in = source.getInputStream()) {
+                int read;
+                while ((read = in.read(buffer)) > 0) {
+                    crc.update(buffer, 0, read);
+                    length += read;
+                }
+            }
+            fingerprint = new long[] {length, crc.getValue()};
+            sourceFingerprint = fingerprint;
+        }
+        return fingerprint;
+    }
+    
+    /**
+     * Читает снимок, если он записан для текущей версии players.csv
+     * @return logSequence снимка или -1, если данные нужно читать из CSV
+     * @throws IllegalStateException если players.csv изменился после сохраненных изменений
+     *                               (см. {@link PlayerSnapshot}); запуск прерывается
+     */
+    private long loadSnapshot() {
+        if (snapshotPath == null) {
+            return -1;
+        }
+        try {
+            long[] fingerprint = sourceFingerprint();
+            long sequence = PlayerSnapshot.read(snapshotPath, fingerprint[0], fingerprint[1],
+                    storage::put);
+            if (sequence < 0) {
+                System.out.println("Снимок " + snapshotPath + " отсутствует или устарел, читаем players.csv");
+            }
+            return sequence;
+        } catch (IllegalStateException e) {
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("х Не удалось прочитать снимок " + snapshotPath + ": " + e.getMessage());
+            storage.clear();
+            return -1;
+        }
+    }
+    
+    /**
+     * Приводит хранилище к содержимому CSV файла, применяя только разницу: игроки
+     * сравниваются по ID и хэшу содержимого, изменяются лишь добавленные, измененные
+     * и исчезнувшие из файла. Файл разбирается без блокировок, затем разница
+     * публикуется одной подменой хранилища (см. {@link #publish})
+     * <p>
+     * Удаляются только игроки, которые были в предыдущей примененной версии файла:
+     * добавленные через API игроки, которых в файле нет, остаются. Первая перезагрузка
+     * (в том числе при запуске) поэтому ничего не удаляет - если игрока убрали из файла,
+     * пока приложение не работало, его нужно удалить через API
+     * @return количество добавленных, измененных, удаленных, неизменных игроков
+     *         и оставленных игроков не из файла
+     * @throws CsvStructureException если заголовки файла не совпадают с ожидаемыми
+     */
+    public Map<String, Object> reloadFrom(Path file) {
+        long start = System.nanoTime();
+        PlayerColumns current = storage;
+        Map<String, Player> upserts = new HashMap<>();
+        Set<String> seen = new HashSet<>(current.size() * 4 / 3 + 1);
+        csvParser.streamFile(file, player -> {
+            String id = player.getId();
+            seen.add(id);
+            Player existing = current.get(id);
+            if (existing == null || Player.contentHash(existing) != Player.contentHash(player)) {
+                upserts.put(id, player);
+            } else {
+                // Повторный ID в файле: побеждает последняя строка, как при обычной загрузке
+                upserts.remove(id);
+            }
+        });
+        int added = 0;
+        for (String id : upserts.keySet()) {
+            if (!current.contains(id)) {
+                added++;
+            }
+        }
+        // Удаляются только игроки из предыдущей версии файла, которые были в хранилище
+        // до начала разбора: добавленные через API, в том числе за время разбора, остаются
+        Set<String> previousFileIds = fileIds;
+        List<String> removed = new ArrayList<>();
+        int kept = 0;
+        for (String id : current.ids()) {
+            if (seen.contains(id)) {
+                continue;
+            }
+            if (previousFileIds.contains(id)) {
+                removed.add(id);
+            } else {
+                kept++;
+            }
+        }
+        
+        if (!upserts.isEmpty() || !removed.isEmpty()) {
+            publish(upserts.values(), removed, false);
+        }
+        fileIds = seen;
+        
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("added", added);
+        result.put("changed", upserts.size() - added);
+        result.put("removed", removed.size());
+        result.put("unchanged", seen.size() - upserts.size());
+        result.put("keptNotInFile", kept);
+        result.put("elapsedMs", (System.nanoTime() - start) / 1_000_000);
+        System.out.println("Перезагрузка " + file + ": " + result);
+        return result;
+    }
+    
+    /**
+     * Массовая загрузка: добавляет игроков, которых еще нет в хранилище, одной
+     * подменой хранилища. Читатели видят либо состояние до загрузки, либо всю загрузку
+     * @return игроки, которые действительно добавлены (без уже существовавших ID)
+     */
+    public List<Player> insertAbsent(Collection<Player> players) {
+        if (players.isEmpty()) {
+            return List.of();
+        }
+        return publish(players, List.of(), true);
+    }
+    
+    /**
+     * Заменяет все содержимое хранилища. Новое хранилище строится без блокировки
+     * и подменяет текущее одним присваиванием; старое просто достается сборщику
+     * мусора. В журнал пишется очистка и затем новый набор
+     * @param players новый набор; при повторе ID остается первый игрок
+     * @return количество игроков в замененном хранилище
+     */
+    public int replaceAll(Collection<Player> players) {
+        PlayerColumns next = new PlayerColumns(players.size());
+        List<Player> applied = new ArrayList<>(players.size());
+        for (Player player : players) {
+            if (next.putIfAbsent(player)) {
+                applied.add(player);
+            }
+        }
+        
+        long sequence = -1;
+        int replaced;
+        synchronized (writeLock) {
+            replaced = storage.size();
+            if (wal != null) {
+                sequence = wal.appendClear();
+                for (Player player : applied) {
+                    sequence = wal.appendPut(player);
+                }
+            }
+            storage = next;
+            version++;
+        }
+        if (sequence >= 0) {
+            awaitDurable(sequence);
+        }
+        return replaced;
+    }
+    
+    /**
+     * Удаляет всех игроков одной подменой хранилища на пустое
+     * @return количество удаленных игроков
+     */
+    public int deleteAll() {
+        return replaceAll(List.of());
+    }
+    
+    /**
+     * Публикует изменения одной подменой хранилища. Новое хранилище строится
+     * без блокировки из копии текущего, так что запросы на запись не ждут построения;
+     * если хранилище за это время изменилось, оно строится заново уже под блокировкой.
+     * При включенном журнале изменения записываются в него, как обычные сохранения и удаления
+     * @param skipExisting не перезаписывать игроков, уже имеющихся в хранилище
+     * @return игроки из upserts, которые попали в хранилище
+     */
+    private List<Player> publish(Collection<Player> upserts, Collection<String> removed, boolean skipExisting) {
+        PlayerColumns base;
+        long baseVersion;
+        synchronized (writeLock) {
+            base = storage;
+            baseVersion = version;
+        }
+        List<Player> applied = new ArrayList<>(upserts.size());
+        PlayerColumns next = build(base, upserts, removed, skipExisting, applied);
+        
+        long sequence = -1;
+        synchronized (writeLock) {
+            if (version != baseVersion) {
+                applied.clear();
+                next = build(storage, upserts, removed, skipExisting, applied);
+            }
+            if (wal != null) {
+                for (Player player : applied) {
+                    sequence = wal.appendPut(player);
+                }
+                for (String id : removed) {
+                    sequence = wal.appendDelete(id);
+                }
+            }
+            storage = next;
+            version++;
+        }
+        if (sequence >= 0) {
+            awaitDurable(sequence);
+        }
+        return applied;
+    }
+    
+    private static PlayerColumns build(PlayerColumns base, Collection<Player> upserts,
+                                       Collection<String> removed, boolean skipExisting, List<Player> applied) {
+        PlayerColumns next = base.copy(upserts.size());
+        for (Player player : upserts) {
+            if (!skipExisting) {
+                next.put(player);
+                applied.add(player);
+            } else if (next.putIfAbsent(player)) {
+                applied.add(player);
+            }
+        }
+        removed.forEach(next::remove);
+        return next;
     }
     
     @Override
@@ -34,43 +452,182 @@ public class CsvRepository implements CommonRepository<Player> {
         if (domain == null) {
             throw new IllegalArgumentException("Player cannot be null");
         }
-        storage.put(domain.getId(), domain);
+        if (wal == null) {
+            synchronized (writeLock) {
+                storage.put(domain);
+                version++;
+            }
+            return domain;
+        }
+        long sequence;
+        synchronized (writeLock) {
+            sequence = wal.appendPut(domain);
+            storage.put(domain);
+            version++;
+        }
+        awaitDurable(sequence);
         return domain;
     }
     
     @Override
     public Iterable<Player> save(Collection<Player> domains) {
-        domains.forEach(d -> storage.put(d.getId(), d));
+        if (wal == null) {
+            synchronized (writeLock) {
+                domains.forEach(storage::put);
+                version++;
+            }
+            return domains;
+        }
+        long sequence = -1;
+        synchronized (writeLock) {
+            for (Player domain : domains) {
+                sequence = wal.appendPut(domain);
+                storage.put(domain);
+            }
+            version++;
+        }
+        if (sequence >= 0) {
+            awaitDurable(sequence);
+        }
         return domains;
     }
     
     @Override
     public void delete(String id) {
-        storage.remove(id);
+        if (wal == null) {
+            synchronized (writeLock) {
+                storage.remove(id);
+                version++;
+            }
+            return;
+        }
+        long sequence;
+        synchronized (writeLock) {
+            sequence = wal.appendDelete(id);
+            storage.remove(id);
+            version++;
+        }
+        awaitDurable(sequence);
     }
     
     @Override
     public void delete(Player domain) {
-        storage.remove(domain.getId());
+        delete(domain.getId());
     }
     
+    /**
+     * Игрок собирается из колонок хранилища: изменения возвращенного объекта
+     * попадают в хранилище только через save
+     */
     @Override
     public Player findById(String id) {
         return storage.get(id);
     }
     
+    /**
+     * Неизменяемый список поверх копии колонок (см. {@link PlayerColumns#rows()})
+     */
     @Override
     public Iterable<Player> findAll() {
-        return storage.values();
+        return storage.rows();
+    }
+    
+    /**
+     * Сколько раз строки хранилища записывались (добавление или перезапись игрока)
+     */
+    long rowWrites() {
+        return storage.rowWrites();
     }
     
     @Override
     public boolean exists(String id) {
-        return storage.containsKey(id);
+        return storage.contains(id);
     }
     
     @Override
     public long count() {
         return storage.size();
     }
-}
\ No newline at end of file
+    
+    // ========== ВЫБОРКИ ПО КОЛОНКАМ ==========
+    
+    @Override
+    public List<Player> findByTeam(String team) {
+        return storage.findByTeam(team);
+    }
+    
+    @Override
+    public List<Player> findByPosition(String position) {
+        return storage.findByPosition(position);
+    }
+    
+    @Override
+    public List<Player> findByTeamAndPosition(String team, String position) {
+        return storage.findByTeamAndPosition(team, position);
+    }
+    
+    @Override
+    public List<Player> findInRange(Metric metric, double min, double max) {
+        return storage.findInRange(metric, min, max);
+    }
+    
+    @Override
+    public List<Player> findByBmiAbove(double threshold) {
+        return storage.findByBmiAbove(threshold);
+    }
+    
+    @Override
+    public List<Player> findByNameContaining(String text) {
+        return storage.findByNameContaining(text);
+    }
+    
+    @Override
+    public List<Player> findTop(Metric metric, int limit) {
+        return storage.findTop(metric, limit);
+    }
+    
+    @Override
+    public OptionalDouble average(Metric metric) {
+        return storage.average(metric);
+    }
+    
+    @Override
+    public OptionalDouble average(Metric metric, String team) {
+        return storage.average(metric, team);
+    }
+    
+    @Override
+    public long countInTeam(String team) {
+        return storage.countInTeam(team);
+    }
+    
+    @Override
+    public OptionalDouble min(Metric metric) {
+        return storage.min(metric);
+    }
+    
+    @Override
+    public OptionalDouble max(Metric metric) {
+        return storage.max(metric);
+    }
+    
+    @Override
+    public List<Player> findWithMin(Metric metric) {
+        return storage.findWithMin(metric);
+    }
+    
+    @Override
+    public List<Player> findWithMax(Metric metric) {
+        return storage.findWithMax(metric);
+    }
+    
+    @Override
+    public Map<String, Long> countByTeam() {
+        return storage.countByTeam();
+    }
+    
+    @Override
+    public Map<String, Long> countByPosition() {
+        return storage.countByPosition();
+    }
+}
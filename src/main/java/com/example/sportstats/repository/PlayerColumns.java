@@ -0,0 +1,997 @@
+package com.example.sportstats.repository;
+
+import com.example.sportstats.model.Player;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.OptionalDouble;
+import java.util.RandomAccess;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Колоночное хранилище игроков CSV профиля. Игрок - это строка в примитивных колонках,
+ * а не объект: рост и вес в int[], возраст в double[], null отмечается битом в маске,
+ * пара команда + позиция - одним кодом, который раскладывается на коды словарей команд
+ * и позиций. id, совпадающий с Player.generateId(name, team) (почти все игроки из CSV),
+ * не хранится: он однозначно следует из имени и команды. Хранятся только id, которые
+ * с ним не совпадают. Поиск по id идет через хэш-таблицу с открытой адресацией,
+ * в которой лежат номера строк, а у строки хранится байт хэша id: сравнение id
+ * со строкой идет только при совпадении байта и без построения строки id.
+ * <p>
+ * Player собирается из колонок при каждом чтении, поэтому изменение полученного объекта
+ * не меняет хранилище; id такого Player строится только при первом getId. Все игроки
+ * отдаются представлением {@link #rows()} поверх самих колонок без копирования: колонки
+ * отмечаются как отданные, и следующее изменение сначала копирует их (копирование при
+ * записи), так что представление остается на момент вызова. Удаление переносит последнюю
+ * строку на место удаленной, так что колонки остаются плотными.
+ * Чтение и выборки идут под блокировкой чтения, изменения - под блокировкой записи.
+ * <p>
+ * Выборки по паре команда + позиция идут по вторичному индексу (RowIndex), который
+ * обновляется при каждом изменении, и стоят O(размера результата), по команде или
+ * позиции - по спискам всех пар с ней, O(числа пар + размера результата).
+ * Выборки по диапазону возраста, роста и веса и первые по убыванию - по упорядоченным
+ * индексам (ValueIndex), O(log V + размер результата), как и наименьшее и наибольшее
+ * значения вместе с их игроками. Средние по всем игрокам
+ * и по команде берутся из сумм (RunningSum), которые обновляются вместе с индексами,
+ * количество игроков по командам и позициям - из размеров списков индекса пар
+ */
+final class PlayerColumns implements PlayerQueries {
+    
+    private static final int NULL_CODE = -1;
+    private static final int ABSENT_CODE = -2;
+    private static final Metric[] METRICS = Metric.values();
+    
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Dictionary teams;
+    private final Dictionary positions;
+    private int size;
+    private String[] names;
+    // Старший байт хэша id строки
+    private byte[] idTags;
+    private int[] pairs;
+    private int[] heights;
+    private int[] weights;
+    private double[] ages;
+    // Установленный бит - значение null
+    private BitSet heightNulls;
+    private BitSet weightNulls;
+    private BitSet ageNulls;
+    // Строки, id которых не совпадает с generateId(name, team), и их id
+    private BitSet customIdRows;
+    private Map<Integer, String> customIds;
+    // Колонки выше отданы представлению rows() и копируются перед изменением.
+    // Читатели только ставят флаг, писатель видит его после их блокировки чтения
+    private boolean shared;
+    // Хэш-таблица id: номер строки + 1, 0 - свободная ячейка; длина - степень двойки
+    private int[] slots;
+    // Пары команда + позиция: ключ из двух кодов словарей (NULL_CODE для null) -> код пары
+    private final Map<Long, Integer> pairCodes;
+    private int[] pairTeams;
+    private int[] pairPositions;
+    // Строки по коду пары
+    private final RowIndex pairIndex;
+    // Строки по значению возраста, роста и веса
+    private final ValueIndex ageIndex;
+    private final ValueIndex heightIndex;
+    private final ValueIndex weightIndex;
+    // Суммы колонок по всем игрокам и по коду команды, индекс - Metric.ordinal()
+    private final RunningSum[] sums;
+    private RunningSum[][] teamSums;
+    // Сколько раз строки записывались; переходит в копию
+    private long rowWrites;
+    
+    PlayerColumns(int capacity) {
+        capacity = Math.max(16, capacity);
+        teams = new Dictionary();
+        positions = new Dictionary();
+        names = new String[capacity];
+        idTags = new byte[capacity];
+        pairs = new int[capacity];
+        heights = new int[capacity];
+        weights = new int[capacity];
+        ages = new double[capacity];
+        heightNulls = new BitSet();
+        weightNulls = new BitSet();
+        ageNulls = new BitSet();
+        customIdRows = new BitSet();
+        customIds = new HashMap<>();
+        slots = new int[tableSize(capacity)];
+        pairCodes = new HashMap<>();
+        pairTeams = new int[0];
+        pairPositions = new int[0];
+        pairIndex = new RowIndex(capacity);
+        ageIndex = new ValueIndex(capacity);
+        heightIndex = new ValueIndex(capacity);
+        weightIndex = new ValueIndex(capacity);
+        sums = newSums();
+        teamSums = new RunningSum[0][];
+    }
+    
+    private PlayerColumns(PlayerColumns source, int capacity) {
+        teams = source.teams.copy();
+        positions = source.positions.copy();
+        size = source.size;
+        names = Arrays.copyOf(source.names, capacity);
+        idTags = Arrays.copyOf(source.idTags, capacity);
+        pairs = Arrays.copyOf(source.pairs, capacity);
+        heights = Arrays.copyOf(source.heights, capacity);
+        weights = Arrays.copyOf(source.weights, capacity);
+        ages = Arrays.copyOf(source.ages, capacity);
+        heightNulls = (BitSet) source.heightNulls.clone();
+        weightNulls = (BitSet) source.weightNulls.clone();
+        ageNulls = (BitSet) source.ageNulls.clone();
+        customIdRows = (BitSet) source.customIdRows.clone();
+        customIds = new HashMap<>(source.customIds);
+        pairCodes = new HashMap<>(source.pairCodes);
+        pairTeams = source.pairTeams.clone();
+        pairPositions = source.pairPositions.clone();
+        if (source.slots.length == tableSize(capacity)) {
+            slots = source.slots.clone();
+        } else {
+            rehash(tableSize(capacity));
+        }
+        pairIndex = source.pairIndex.copy(capacity);
+        ageIndex = source.ageIndex.copy(capacity);
+        heightIndex = source.heightIndex.copy(capacity);
+        weightIndex = source.weightIndex.copy(capacity);
+        sums = copySums(source.sums);
+        teamSums = new RunningSum[source.teamSums.length][];
+        for (int code = 0; code < teamSums.length; code++) {
+            teamSums[code] = copySums(source.teamSums[code]);
+        }
+        rowWrites = source.rowWrites;
+    }
+    
+    /**
+     * Копия с местом еще для extra игроков - для подготовки изменений без блокировки записи.
+     * copy(0) - копия без запаса, которая занимает не больше памяти, чем нужно строкам
+     */
+    PlayerColumns copy(int extra) {
+        lock.readLock().lock();
+        try {
+            return new PlayerColumns(this, Math.max(16, size + extra));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    long rowWrites() {
+        lock.readLock().lock();
+        try {
+            return rowWrites;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    Player get(String id) {
+        lock.readLock().lock();
+        try {
+            int slot = findSlot(id);
+            // id равен id строки, поэтому отдается сам и не строится заново
+            return slot < 0 ? null : player(slots[slot] - 1, id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    boolean contains(String id) {
+        lock.readLock().lock();
+        try {
+            return findSlot(id) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Добавляет или перезаписывает игрока
+     * @return true, если игрока с таким id не было
+     */
+    boolean put(Player player) {
+        return put(player, true);
+    }
+    
+    /**
+     * @return true, если игрок добавлен; существующий игрок не перезаписывается
+     */
+    boolean putIfAbsent(Player player) {
+        return put(player, false);
+    }
+    
+    private boolean put(Player player, boolean overwrite) {
+        String id = player.getId();
+        if (id == null) {
+            throw new IllegalArgumentException("Player id cannot be null");
+        }
+        int hash = hash(id);
+        lock.writeLock().lock();
+        try {
+            int slot = findSlot(id, hash);
+            if (slot >= 0) {
+                if (overwrite) {
+                    unshare();
+                    int row = slots[slot] - 1;
+                    unindex(row);
+                    setRow(row, player, hash);
+                    index(row);
+                }
+                return false;
+            }
+            unshare();
+            if (size == names.length) {
+                grow();
+            }
+            int row = size++;
+            setRow(row, player, hash);
+            index(row);
+            if (size * 2 > slots.length) {
+                rehash(tableSize(names.length));
+            } else {
+                insertSlot(row, hash);
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * @return true, если игрок был
+     */
+    boolean remove(String id) {
+        lock.writeLock().lock();
+        try {
+            int slot = findSlot(id);
+            if (slot < 0) {
+                return false;
+            }
+            unshare();
+            int row = slots[slot] - 1;
+            deleteSlot(slot);
+            unindex(row);
+            int last = --size;
+            if (row != last) {
+                // Ячейка ищется по id последней строки, пока она еще на своем месте
+                int lastSlot = slotOfRow(last);
+                moveRow(last, row);
+                slots[lastSlot] = row + 1;
+                moveIndexed(last, row);
+            }
+            names[last] = null;
+            heightNulls.clear(last);
+            weightNulls.clear(last);
+            ageNulls.clear(last);
+            if (customIdRows.get(last)) {
+                customIdRows.clear(last);
+                customIds.remove(last);
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    void clear() {
+        lock.writeLock().lock();
+        try {
+            unshare();
+            Arrays.fill(names, 0, size, null);
+            heightNulls.clear();
+            weightNulls.clear();
+            ageNulls.clear();
+            customIdRows.clear();
+            customIds.clear();
+            Arrays.fill(slots, 0);
+            pairIndex.clear();
+            for (Metric metric : METRICS) {
+                valueIndex(metric).clear();
+                sums[metric.ordinal()].clear();
+            }
+            teamSums = new RunningSum[0][];
+            size = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Все игроки на момент вызова: неизменяемый список поверх самих колонок, без копирования.
+     * Следующее изменение хранилища копирует колонки и меняет копию; Player строится
+     * при каждом get, поэтому обход не держит в памяти всех игроков сразу
+     */
+    List<Player> rows() {
+        lock.readLock().lock();
+        try {
+            shared = true;
+            return new Rows(this);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    List<String> ids() {
+        lock.readLock().lock();
+        try {
+            List<String> result = new ArrayList<>(size);
+            for (int row = 0; row < size; row++) {
+                result.add(customIdRows.get(row) ? customIds.get(row) : Player.generateId(names[row], team(row)));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    // ========== ВЫБОРКИ И АГРЕГАТЫ ==========
+    
+    @Override
+    public List<Player> findByTeam(String team) {
+        return findByCodes(team, null);
+    }
+    
+    @Override
+    public List<Player> findByPosition(String position) {
+        return findByCodes(null, position);
+    }
+    
+    @Override
+    public List<Player> findByTeamAndPosition(String team, String position) {
+        return findByCodes(team, position);
+    }
+    
+    /**
+     * Строки всех пар с командой team и позицией position
+     * @param team команда или null - любая
+     * @param position позиция или null - любая
+     */
+    private List<Player> findByCodes(String team, String position) {
+        lock.readLock().lock();
+        try {
+            int teamCode = team == null ? NULL_CODE : teams.find(team);
+            int positionCode = position == null ? NULL_CODE : positions.find(position);
+            if (teamCode == ABSENT_CODE || positionCode == ABSENT_CODE) {
+                return new ArrayList<>();
+            }
+            int count = 0;
+            for (int code = 0; code < pairTeams.length; code++) {
+                if (pairMatches(code, team, teamCode, position, positionCode)) {
+                    count += pairIndex.count(code);
+                }
+            }
+            List<Player> result = new ArrayList<>(count);
+            for (int code = 0; code < pairTeams.length; code++) {
+                if (pairMatches(code, team, teamCode, position, positionCode)) {
+                    for (int i = 0, rows = pairIndex.count(code); i < rows; i++) {
+                        result.add(player(pairIndex.row(code, i)));
+                    }
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private boolean pairMatches(int code, String team, int teamCode, String position, int positionCode) {
+        return (team == null || pairTeams[code] == teamCode) && (position == null || pairPositions[code] == positionCode);
+    }
+    
+    @Override
+    public List<Player> findInRange(Metric metric, double min, double max) {
+        lock.readLock().lock();
+        try {
+            List<Player> result = new ArrayList<>();
+            valueIndex(metric).forEachInRange(min, max, row -> result.add(player(row)));
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    @Override
+    public List<Player> findByBmiAbove(double threshold) {
+        lock.readLock().lock();
+        try {
+            List<Player> result = new ArrayList<>();
+            for (int row = 0; row < size; row++) {
+                // Та же формула, что в Player.getBmi
+                if (!heightNulls.get(row) && !weightNulls.get(row) && heights[row] > 0
+                        && (weights[row] * 703.0) / (heights[row] * heights[row]) > threshold) {
+                    result.add(player(row));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    @Override
+    public List<Player> findByNameContaining(String text) {
+        String lower = text.toLowerCase();
+        lock.readLock().lock();
+        try {
+            List<Player> result = new ArrayList<>();
+            for (int row = 0; row < size; row++) {
+                if (names[row] != null && names[row].toLowerCase().contains(lower)) {
+                    result.add(player(row));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    @Override
+    public List<Player> findTop(Metric metric, int limit) {
+        lock.readLock().lock();
+        try {
+            List<Player> result = new ArrayList<>(Math.max(0, Math.min(limit, size)));
+            if (limit > 0) {
+                valueIndex(metric).forEachDescending(row -> {
+                    result.add(player(row));
+                    return result.size() < limit;
+                });
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    @Override
+    public OptionalDouble average(Metric metric) {
+        lock.readLock().lock();
+        try {
+            return sums[metric.ordinal()].average();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    @Override
+    public OptionalDouble average(Metric metric, String team) {
+        lock.readLock().lock();
+        try {
+            int code = teams.find(team);
+            return code >= 0 && code < teamSums.length
+                    ? teamSums[code][metric.ordinal()].average() : OptionalDouble.empty();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    @Override
+    public long countInTeam(String team) {
+        lock.readLock().lock();
+        try {
+            int teamCode = teams.find(team);
+            long count = 0;
+            for (int code = 0; code < pairTeams.length; code++) {
+                if (pairTeams[code] == teamCode) {
+                    count += pairIndex.count(code);
+                }
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    @Override
+    public OptionalDouble min(Metric metric) {
+        lock.readLock().lock();
+        try {
+            return valueIndex(metric).min();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    @Override
+    public OptionalDouble max(Metric metric) {
+        lock.readLock().lock();
+        try {
+            return valueIndex(metric).max();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    @Override
+    public List<Player> findWithMin(Metric metric) {
+        return findAtExtreme(metric, false);
+    }
+    
+    @Override
+    public List<Player> findWithMax(Metric metric) {
+        return findAtExtreme(metric, true);
+    }
+    
+    private List<Player> findAtExtreme(Metric metric, boolean max) {
+        lock.readLock().lock();
+        try {
+            List<Player> result = new ArrayList<>();
+            valueIndex(metric).forEachAtExtreme(max, row -> result.add(player(row)));
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    @Override
+    public Map<String, Long> countByTeam() {
+        return countByCode(teams, pairTeams);
+    }
+    
+    @Override
+    public Map<String, Long> countByPosition() {
+        return countByCode(positions, pairPositions);
+    }
+    
+    /**
+     * Размеры списков индекса пар, сложенные по команде или позиции пары: O(числа пар)
+     * @param pairDictionaryCodes pairTeams или pairPositions
+     */
+    private Map<String, Long> countByCode(Dictionary dictionary, int[] pairDictionaryCodes) {
+        lock.readLock().lock();
+        try {
+            Map<String, Long> result = new HashMap<>();
+            for (int code = 0; code < pairDictionaryCodes.length; code++) {
+                int count = pairIndex.count(code);
+                if (count > 0 && pairDictionaryCodes[code] >= 0) {
+                    result.merge(dictionary.value(pairDictionaryCodes[code]), (long) count, Long::sum);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    // ========== СТРОКИ ==========
+    
+    private Player player(int row) {
+        return player(row, customIdRows.get(row) ? customIds.get(row) : null);
+    }
+    
+    /**
+     * @param id id строки или null - id равен generateId(name, team) и строится при первом getId
+     */
+    private Player player(int row, String id) {
+        int pair = pairs[row];
+        String team = teams.value(pairTeams[pair]);
+        String position = positions.value(pairPositions[pair]);
+        Integer height = heightNulls.get(row) ? null : heights[row];
+        Integer weight = weightNulls.get(row) ? null : weights[row];
+        Double age = ageNulls.get(row) ? null : ages[row];
+        return id != null
+                ? new Player(id, names[row], team, position, height, weight, age)
+                : Player.withGeneratedId(names[row], team, position, height, weight, age);
+    }
+    
+    private String team(int row) {
+        return teams.value(pairTeams[pairs[row]]);
+    }
+    
+    private double value(Metric metric, int row) {
+        return switch (metric) {
+            case AGE -> ages[row];
+            case HEIGHT -> heights[row];
+            case WEIGHT -> weights[row];
+        };
+    }
+    
+    private ValueIndex valueIndex(Metric metric) {
+        return switch (metric) {
+            case AGE -> ageIndex;
+            case HEIGHT -> heightIndex;
+            case WEIGHT -> weightIndex;
+        };
+    }
+    
+    private BitSet nulls(Metric metric) {
+        return switch (metric) {
+            case AGE -> ageNulls;
+            case HEIGHT -> heightNulls;
+            case WEIGHT -> weightNulls;
+        };
+    }
+    
+    private void setRow(int row, Player player, int hash) {
+        String id = player.getId();
+        rowWrites++;
+        names[row] = player.getName();
+        idTags[row] = tag(hash);
+        pairs[row] = pairCode(teams.code(player.getTeam()), positions.code(player.getPosition()));
+        if (Player.isGeneratedId(id, player.getName(), player.getTeam())) {
+            if (customIdRows.get(row)) {
+                customIdRows.clear(row);
+                customIds.remove(row);
+            }
+        } else {
+            customIdRows.set(row);
+            customIds.put(row, id);
+        }
+        Integer height = player.getHeightInches();
+        heights[row] = height == null ? 0 : height;
+        heightNulls.set(row, height == null);
+        Integer weight = player.getWeightLbs();
+        weights[row] = weight == null ? 0 : weight;
+        weightNulls.set(row, weight == null);
+        Double age = player.getAge();
+        ages[row] = age == null ? 0 : age;
+        ageNulls.set(row, age == null);
+    }
+    
+    private void moveRow(int from, int to) {
+        names[to] = names[from];
+        idTags[to] = idTags[from];
+        pairs[to] = pairs[from];
+        heights[to] = heights[from];
+        weights[to] = weights[from];
+        ages[to] = ages[from];
+        heightNulls.set(to, heightNulls.get(from));
+        weightNulls.set(to, weightNulls.get(from));
+        ageNulls.set(to, ageNulls.get(from));
+        if (customIdRows.get(to)) {
+            customIdRows.clear(to);
+            customIds.remove(to);
+        }
+        if (customIdRows.get(from)) {
+            customIdRows.clear(from);
+            customIdRows.set(to);
+            customIds.put(to, customIds.remove(from));
+        }
+    }
+    
+    /**
+     * Копирует колонки, отданные представлению rows(), перед их изменением
+     */
+    private void unshare() {
+        if (!shared) {
+            return;
+        }
+        shared = false;
+        names = names.clone();
+        pairs = pairs.clone();
+        heights = heights.clone();
+        weights = weights.clone();
+        ages = ages.clone();
+        heightNulls = (BitSet) heightNulls.clone();
+        weightNulls = (BitSet) weightNulls.clone();
+        ageNulls = (BitSet) ageNulls.clone();
+        customIdRows = (BitSet) customIdRows.clone();
+        customIds = new HashMap<>(customIds);
+    }
+    
+    private void index(int row) {
+        pairIndex.add(pairs[row], row);
+        int teamCode = pairTeams[pairs[row]];
+        RunningSum[] team = teamCode >= 0 ? teamSums(teamCode) : null;
+        for (Metric metric : METRICS) {
+            if (!nulls(metric).get(row)) {
+                double value = value(metric, row);
+                valueIndex(metric).add(value, row);
+                sums[metric.ordinal()].add(value);
+                if (team != null) {
+                    team[metric.ordinal()].add(value);
+                }
+            }
+        }
+    }
+    
+    private void unindex(int row) {
+        pairIndex.remove(pairs[row], row);
+        int teamCode = pairTeams[pairs[row]];
+        RunningSum[] team = teamCode >= 0 ? teamSums(teamCode) : null;
+        for (Metric metric : METRICS) {
+            if (!nulls(metric).get(row)) {
+                double value = value(metric, row);
+                valueIndex(metric).remove(value, row);
+                sums[metric.ordinal()].subtract(value);
+                if (team != null) {
+                    team[metric.ordinal()].subtract(value);
+                }
+            }
+        }
+    }
+    
+    private RunningSum[] teamSums(int teamCode) {
+        if (teamCode >= teamSums.length) {
+            int from = teamSums.length;
+            teamSums = Arrays.copyOf(teamSums, Math.max(teamCode + 1, from * 2));
+            for (int code = from; code < teamSums.length; code++) {
+                teamSums[code] = newSums();
+            }
+        }
+        return teamSums[teamCode];
+    }
+    
+    private static RunningSum[] newSums() {
+        RunningSum[] result = new RunningSum[METRICS.length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = new RunningSum();
+        }
+        return result;
+    }
+    
+    private static RunningSum[] copySums(RunningSum[] source) {
+        RunningSum[] result = new RunningSum[source.length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = source[i].copy();
+        }
+        return result;
+    }
+    
+    /**
+     * Строка from перенесена на место строки to
+     */
+    private void moveIndexed(int from, int to) {
+        pairIndex.move(pairs[to], from, to);
+        for (Metric metric : METRICS) {
+            if (!nulls(metric).get(to)) {
+                valueIndex(metric).move(value(metric, to), from, to);
+            }
+        }
+    }
+    
+    /**
+     * Код пары команда + позиция; коды словарей могут быть NULL_CODE.
+     * Новая пара добавляется
+     */
+    private int pairCode(int teamCode, int positionCode) {
+        long key = ((long) teamCode << 32) | (positionCode & 0xffffffffL);
+        Integer code = pairCodes.get(key);
+        if (code == null) {
+            code = pairCodes.size();
+            pairCodes.put(key, code);
+            // Массивы пар только дописываются: представления rows() держат прежние
+            pairTeams = Arrays.copyOf(pairTeams, code + 1);
+            pairPositions = Arrays.copyOf(pairPositions, code + 1);
+            pairTeams[code] = teamCode;
+            pairPositions[code] = positionCode;
+        }
+        return code;
+    }
+    
+    private void grow() {
+        int capacity = names.length + (names.length >> 1);
+        names = Arrays.copyOf(names, capacity);
+        idTags = Arrays.copyOf(idTags, capacity);
+        pairs = Arrays.copyOf(pairs, capacity);
+        heights = Arrays.copyOf(heights, capacity);
+        weights = Arrays.copyOf(weights, capacity);
+        ages = Arrays.copyOf(ages, capacity);
+    }
+    
+    // ========== ХЭШ-ТАБЛИЦА ID ==========
+    
+    private static int tableSize(int capacity) {
+        return Integer.highestOneBit(Math.max(8, capacity) * 2 - 1) << 1;
+    }
+    
+    private static int hash(String id) {
+        return spread(id.hashCode());
+    }
+    
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+    
+    private static byte tag(int hash) {
+        return (byte) (hash >>> 24);
+    }
+    
+    /**
+     * Хэш id строки: хранимого или построенного из имени и команды, без построения строки
+     */
+    private int rowHash(int row) {
+        return customIdRows.get(row)
+                ? hash(customIds.get(row))
+                : spread(Player.generatedIdHash(names[row], team(row)));
+    }
+    
+    private boolean idEquals(int row, String id) {
+        return customIdRows.get(row)
+                ? customIds.get(row).equals(id)
+                : Player.isGeneratedId(id, names[row], team(row));
+    }
+    
+    /**
+     * @return ячейка таблицы со строкой игрока id или -1
+     */
+    private int findSlot(String id) {
+        return findSlot(id, hash(id));
+    }
+    
+    private int findSlot(String id, int hash) {
+        byte tag = tag(hash);
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+            int row = slots[slot] - 1;
+            if (idTags[row] == tag && idEquals(row, id)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+    
+    private int slotOfRow(int row) {
+        int mask = slots.length - 1;
+        int slot = rowHash(row) & mask;
+        while (slots[slot] != row + 1) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+    
+    private void insertSlot(int row, int hash) {
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+        while (slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = row + 1;
+    }
+    
+    /**
+     * Освобождает ячейку, сдвигая назад следующие за ней записи той же цепочки,
+     * чтобы поиск не останавливался на образовавшейся дыре
+     */
+    private void deleteSlot(int slot) {
+        int mask = slots.length - 1;
+        int hole = slot;
+        slots[hole] = 0;
+        for (int next = (hole + 1) & mask; slots[next] != 0; next = (next + 1) & mask) {
+            int home = rowHash(slots[next] - 1) & mask;
+            // Запись можно перенести в дыру, если ее домашняя ячейка не лежит между дырой и ней
+            boolean between = hole <= next ? hole < home && home <= next : hole < home || home <= next;
+            if (!between) {
+                slots[hole] = slots[next];
+                slots[next] = 0;
+                hole = next;
+            }
+        }
+    }
+    
+    private void rehash(int tableSize) {
+        slots = new int[tableSize];
+        for (int row = 0; row < size; row++) {
+            insertSlot(row, rowHash(row));
+        }
+    }
+    
+    /**
+     * Представление всех строк: колонки на момент создания, которые хранилище больше
+     * не меняет, и копии небольших словарей
+     */
+    private static final class Rows extends AbstractList<Player> implements RandomAccess {
+        
+        private final int size;
+        private final String[] names;
+        private final String[] teams;
+        private final String[] positions;
+        private final int[] pairs;
+        private final int[] pairTeams;
+        private final int[] pairPositions;
+        private final int[] heights;
+        private final int[] weights;
+        private final double[] ages;
+        private final BitSet heightNulls;
+        private final BitSet weightNulls;
+        private final BitSet ageNulls;
+        private final BitSet customIdRows;
+        private final Map<Integer, String> customIds;
+        
+        Rows(PlayerColumns source) {
+            size = source.size;
+            names = source.names;
+            teams = source.teams.values();
+            positions = source.positions.values();
+            pairs = source.pairs;
+            pairTeams = source.pairTeams;
+            pairPositions = source.pairPositions;
+            heights = source.heights;
+            weights = source.weights;
+            ages = source.ages;
+            heightNulls = source.heightNulls;
+            weightNulls = source.weightNulls;
+            ageNulls = source.ageNulls;
+            customIdRows = source.customIdRows;
+            customIds = source.customIds;
+        }
+        
+        @Override
+        public Player get(int row) {
+            Objects.checkIndex(row, size);
+            int pair = pairs[row];
+            String team = pairTeams[pair] < 0 ? null : teams[pairTeams[pair]];
+            String position = pairPositions[pair] < 0 ? null : positions[pairPositions[pair]];
+            Integer height = heightNulls.get(row) ? null : heights[row];
+            Integer weight = weightNulls.get(row) ? null : weights[row];
+            Double age = ageNulls.get(row) ? null : ages[row];
+            return customIdRows.get(row)
+                    ? new Player(customIds.get(row), names[row], team, position, height, weight, age)
+                    : Player.withGeneratedId(names[row], team, position, height, weight, age);
+        }
+        
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+    
+    /**
+     * Словарь строк колонки: код - номер строки в порядке появления.
+     * Коды не освобождаются, в колонках команд и позиций значений немного
+     */
+    private static final class Dictionary {
+        
+        private final List<String> values;
+        private final Map<String, Integer> codes;
+        
+        Dictionary() {
+            values = new ArrayList<>();
+            codes = new HashMap<>();
+        }
+        
+        private Dictionary(Dictionary source) {
+            values = new ArrayList<>(source.values);
+            codes = new HashMap<>(source.codes);
+        }
+        
+        Dictionary copy() {
+            return new Dictionary(this);
+        }
+        
+        /**
+         * Код значения; новое значение добавляется в словарь
+         */
+        int code(String value) {
+            if (value == null) {
+                return NULL_CODE;
+            }
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                values.add(value);
+                codes.put(value, code);
+            }
+            return code;
+        }
+        
+        /**
+         * @return код значения или ABSENT_CODE, если его нет в словаре
+         */
+        int find(String value) {
+            Integer code = codes.get(value);
+            return code == null ? ABSENT_CODE : code;
+        }
+        
+        String value(int code) {
+            return code == NULL_CODE ? null : values.get(code);
+        }
+        
+        String[] values() {
+            return values.toArray(new String[0]);
+        }
+    }
+}
@@ -87,15 +87,16 @@ public class PlayerJdbcRepository implements CommonRepository<Player> {
     private static class PlayerRowMapper implements RowMapper<Player> {
         @Override
         public Player mapRow(ResultSet rs, int rowNum) throws SQLException {
-            Player player = new Player();
-            player.setId(rs.getString("id"));
-            player.setName(rs.getString("name"));
-            player.setTeam(rs.getString("team"));
-            player.setPosition(rs.getString("position"));
-            player.setHeightInches(rs.getInt("height_inches"));
-            player.setWeightLbs(rs.getInt("weight_lbs"));
-            player.setAge(rs.getDouble("age"));
-            return player;
+            // Конструктор с id не пересчитывает его и берет team/position из StringPool
+            return new Player(
+                rs.getString("id"),
+                rs.getString("name"),
+                rs.getString("team"),
+                rs.getString("position"),
+                rs.getInt("height_inches"),
+                rs.getInt("weight_lbs"),
+                rs.getDouble("age")
+            );
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,79 @@
+package com.example.sportstats.repository;
+
+import com.example.sportstats.model.Player;
+
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalDouble;
+
+/**
+ * Выборки и агрегаты, которые хранилище считает само, не отдавая всех игроков через
+ * findAll. PlayerService пользуется ими, если репозиторий их реализует (CsvRepository),
+ * а иначе считает по findAll. Результаты совпадают с подсчетом по findAll
+ */
+public interface PlayerQueries {
+    
+    /**
+     * Числовые поля игрока
+     */
+    enum Metric { AGE, HEIGHT, WEIGHT }
+    
+    List<Player> findByTeam(String team);
+    
+    List<Player> findByPosition(String position);
+    
+    List<Player> findByTeamAndPosition(String team, String position);
+    
+    /**
+     * Игроки со значением metric в [min, max]; игроки без значения не входят
+     */
+    List<Player> findInRange(Metric metric, double min, double max);
+    
+    /**
+     * Игроки с индексом массы тела больше threshold
+     */
+    List<Player> findByBmiAbove(double threshold);
+    
+    /**
+     * Игроки, в имени которых есть text без учета регистра
+     */
+    List<Player> findByNameContaining(String text);
+    
+    /**
+     * Первые limit игроков по убыванию metric; игроки без значения не входят
+     */
+    List<Player> findTop(Metric metric, int limit);
+    
+    /**
+     * Среднее по игрокам, у которых metric задана; пусто, если таких нет
+     */
+    OptionalDouble average(Metric metric);
+    
+    /**
+     * Среднее по игрокам команды, у которых metric задана; пусто, если таких нет
+     */
+    OptionalDouble average(Metric metric, String team);
+    
+    /**
+     * Сколько игроков в команде
+     */
+    long countInTeam(String team);
+    
+    OptionalDouble min(Metric metric);
+    
+    OptionalDouble max(Metric metric);
+    
+    /**
+     * Все игроки с наименьшим значением metric
+     */
+    List<Player> findWithMin(Metric metric);
+    
+    /**
+     * Все игроки с наибольшим значением metric
+     */
+    List<Player> findWithMax(Metric metric);
+    
+    Map<String, Long> countByTeam();
+    
+    Map<String, Long> countByPosition();
+}
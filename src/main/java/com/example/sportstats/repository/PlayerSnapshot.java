@@ -0,0 +1,357 @@
+package com.example.sportstats.repository;
+
+import com.example.sportstats.model.Player;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Бинарный снимок хранилища CSV профиля в колоночном формате.
+ * Рост, вес и возраст хранятся примитивными колонками с битовыми масками null,
+ * команда, позиция и имя - кодами в словарях строк. id хранится только если он
+ * отличается от Player.generateId(name, team), что для игроков из CSV не бывает.
+ * <p>
+ * Файл читается через отображение в память (mmap), колонки забираются целиком
+ * без разбора текста. В заголовке записан отпечаток исходного CSV (размер и CRC32
+ * содержимого; время изменения не годится - сборка проставляет его заново даже
+ * неизменному файлу): если CSV поменялся, снимок считается устаревшим. Контрольная сумма
+ * в конце файла отсекает недописанный или поврежденный снимок.
+ * <p>
+ * logSequence - номер последней записи журнала изменений (PlayerWriteAheadLog),
+ * вошедшей в снимок; 0 - снимок содержит только данные CSV. Вошедшие в снимок записи
+ * из журнала удалены, поэтому снимок с изменениями при изменившемся CSV нельзя ни
+ * использовать (новый CSV был бы проигнорирован), ни пересобрать из CSV и журнала -
+ * чтение такого снимка завершается ошибкой
+ * <pre>
+ * int magic, int version, long sourceLength, long sourceChecksum, long logSequence, int rows
+ * dict teams, dict positions, dict names, dict ids
+ * int[rows] id, team, position, name, height; int[rows] weight; double[rows] age
+ * long[] nulls(height), nulls(weight), nulls(age)
+ * long crc32
+ * </pre>
+ * Словарь - это int count и строки (int длина в байтах + UTF-8). Код -1 означает null,
+ * для id - что id генерируется из имени и команды
+ */
+public final class PlayerSnapshot {
+    
+    private static final int MAGIC = 0x53534E50; // "SSNP"
+    private static final int VERSION = 3;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 8 + 4;
+    
+    private PlayerSnapshot() {
+    }
+    
+    /**
+     * Записывает снимок атомарно: сначала во временный файл рядом, затем переименование,
+     * так что читатель никогда не увидит недописанный файл
+     */
+    public static void write(Path path, Collection<Player> players, long sourceLength, long sourceChecksum,
+            long logSequence) throws IOException {
+        int rows = players.size();
+        Dictionary teams = new Dictionary(64);
+        Dictionary positions = new Dictionary(64);
+        Dictionary names = new Dictionary(rows);
+        Dictionary ids = new Dictionary(64);
+        int[] idCodes = new int[rows];
+        int[] teamCodes = new int[rows];
+        int[] positionCodes = new int[rows];
+        int[] nameCodes = new int[rows];
+        int[] heights = new int[rows];
+        int[] weights = new int[rows];
+        double[] ages = new double[rows];
+        long[] heightNulls = new long[words(rows)];
+        long[] weightNulls = new long[words(rows)];
+        long[] ageNulls = new long[words(rows)];
+        
+        int row = 0;
+        for (Player player : players) {
+            if (row == rows) {
+                break; // коллекция выросла во время записи - остаток попадет в следующий снимок
+            }
+            boolean generatedId = Player.isGeneratedId(player.getId(), player.getName(), player.getTeam());
+            idCodes[row] = generatedId ? -1 : ids.code(player.getId());
+            teamCodes[row] = teams.code(player.getTeam());
+            positionCodes[row] = positions.code(player.getPosition());
+            nameCodes[row] = names.code(player.getName());
+            if (player.getHeightInches() != null) {
+                heights[row] = player.getHeightInches();
+            } else {
+                setBit(heightNulls, row);
+            }
+            if (player.getWeightLbs() != null) {
+                weights[row] = player.getWeightLbs();
+            } else {
+                setBit(weightNulls, row);
+            }
+            if (player.getAge() != null) {
+                ages[row] = player.getAge();
+            } else {
+                setBit(ageNulls, row);
+            }
+            row++;
+        }
+        rows = row;
+        
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        Path temp = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                SnapshotWriter out = new SnapshotWriter(channel);
+                out.putInt(MAGIC);
+                out.putInt(VERSION);
+                out.putLong(sourceLength);
+                out.putLong(sourceChecksum);
+                out.putLong(logSequence);
+                out.putInt(rows);
+                teams.writeTo(out);
+                positions.writeTo(out);
+                names.writeTo(out);
+                ids.writeTo(out);
+                for (int[] column : new int[][]{idCodes, teamCodes, positionCodes, nameCodes, heights, weights}) {
+                    for (int i = 0; i < rows; i++) {
+                        out.putInt(column[i]);
+                    }
+                }
+                for (int i = 0; i < rows; i++) {
+                    out.putDouble(ages[i]);
+                }
+                for (long[] nulls : new long[][]{heightNulls, weightNulls, ageNulls}) {
+                    for (int i = 0; i < words(rows); i++) {
+                        out.putLong(nulls[i]);
+                    }
+                }
+                out.finish();
+                channel.force(false);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+    
+    /**
+     * Читает снимок, если он есть и соответствует исходному CSV
+     * @param sink получатель игроков
+     * @return logSequence снимка или -1, если снимка нет, он устарел или поврежден
+     * @throws IllegalStateException если CSV изменился, а снимок содержит изменения из журнала
+     */
+    public static long read(Path path, long sourceLength, long sourceChecksum, Consumer<Player> sink)
+            throws IOException {
+        if (!Files.isRegularFile(path)) {
+            return -1;
+        }
+        try (FileChannel channel = FileChannel.open(path)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE + Long.BYTES) {
+                return -1;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return -1;
+            }
+            boolean sameSource = buffer.getLong() == sourceLength & buffer.getLong() == sourceChecksum;
+            long logSequence = buffer.getLong();
+            if (!sameSource && logSequence == 0) {
+                return -1;
+            }
+            
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate().position(0).limit((int) (size - Long.BYTES)));
+            if (buffer.getLong((int) (size - Long.BYTES)) != crc.getValue()) {
+                System.err.println("Снимок " + path + " поврежден (контрольная сумма не совпадает)");
+                return -1;
+            }
+            if (!sameSource) {
+                throw new IllegalStateException("players.csv изменился после записи снимка " + path
+                        + ", а снимок содержит изменения из журнала (до записи " + logSequence + "), которых"
+                        + " уже нет в журнале. Верните прежний players.csv или удалите снимок и журнал,"
+                        + " чтобы начать с нового players.csv без сохраненных изменений");
+            }
+            
+            int rows = buffer.getInt();
+            String[] teams = readDictionary(buffer);
+            String[] positions = readDictionary(buffer);
+            String[] names = readDictionary(buffer);
+            String[] ids = readDictionary(buffer);
+            int[] idCodes = readInts(buffer, rows);
+            int[] teamCodes = readInts(buffer, rows);
+            int[] positionCodes = readInts(buffer, rows);
+            int[] nameCodes = readInts(buffer, rows);
+            int[] heights = readInts(buffer, rows);
+            int[] weights = readInts(buffer, rows);
+            double[] ages = new double[rows];
+            buffer.asDoubleBuffer().get(ages);
+            buffer.position(buffer.position() + rows * Double.BYTES);
+            long[] heightNulls = readLongs(buffer, words(rows));
+            long[] weightNulls = readLongs(buffer, words(rows));
+            long[] ageNulls = readLongs(buffer, words(rows));
+            
+            for (int i = 0; i < rows; i++) {
+                String name = lookup(names, nameCodes[i]);
+                String team = lookup(teams, teamCodes[i]);
+                String id = idCodes[i] < 0 ? Player.generateId(name, team) : ids[idCodes[i]];
+                sink.accept(new Player(id, name, team, lookup(positions, positionCodes[i]),
+                        isSet(heightNulls, i) ? null : heights[i],
+                        isSet(weightNulls, i) ? null : weights[i],
+                        isSet(ageNulls, i) ? null : ages[i]));
+            }
+            return logSequence;
+        }
+    }
+    
+    private static String[] readDictionary(ByteBuffer buffer) {
+        String[] values = new String[buffer.getInt()];
+        byte[] bytes = new byte[64];
+        for (int i = 0; i < values.length; i++) {
+            int length = buffer.getInt();
+            if (length > bytes.length) {
+                bytes = new byte[Math.max(length, bytes.length * 2)];
+            }
+            buffer.get(bytes, 0, length);
+            values[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+        return values;
+    }
+    
+    private static int[] readInts(ByteBuffer buffer, int count) {
+        int[] values = new int[count];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + count * Integer.BYTES);
+        return values;
+    }
+    
+    private static long[] readLongs(ByteBuffer buffer, int count) {
+        long[] values = new long[count];
+        buffer.asLongBuffer().get(values);
+        buffer.position(buffer.position() + count * Long.BYTES);
+        return values;
+    }
+    
+    private static String lookup(String[] dictionary, int code) {
+        return code < 0 ? null : dictionary[code];
+    }
+    
+    private static int words(int rows) {
+        return (rows + 63) >>> 6;
+    }
+    
+    private static void setBit(long[] bits, int index) {
+        bits[index >>> 6] |= 1L << index;
+    }
+    
+    private static boolean isSet(long[] bits, int index) {
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+    
+    /**
+     * Словарь строк для записи: код - порядковый номер первого появления значения
+     */
+    private static class Dictionary {
+        private final Map<String, Integer> codes;
+        private final List<String> values;
+        
+        Dictionary(int expectedSize) {
+            codes = new HashMap<>(Math.max(16, expectedSize * 4 / 3 + 1));
+            values = new ArrayList<>(expectedSize);
+        }
+        
+        int code(String value) {
+            if (value == null) {
+                return -1;
+            }
+            Integer code = codes.putIfAbsent(value, values.size());
+            if (code == null) {
+                values.add(value);
+                return values.size() - 1;
+            }
+            return code;
+        }
+        
+        void writeTo(SnapshotWriter out) throws IOException {
+            out.putInt(values.size());
+            for (String value : values) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                out.putInt(bytes.length);
+                out.putBytes(bytes);
+            }
+        }
+    }
+    
+    /**
+     * Запись через буфер в памяти вне кучи, контрольная сумма считается по ходу записи
+     */
+    private static class SnapshotWriter {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+        private final CRC32 crc = new CRC32();
+        
+        SnapshotWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+        
+        void putInt(int value) throws IOException {
+            ensure(Integer.BYTES);
+            buffer.putInt(value);
+        }
+        
+        void putLong(long value) throws IOException {
+            ensure(Long.BYTES);
+            buffer.putLong(value);
+        }
+        
+        void putDouble(double value) throws IOException {
+            ensure(Double.BYTES);
+            buffer.putDouble(value);
+        }
+        
+        void putBytes(byte[] bytes) throws IOException {
+            for (int offset = 0; offset < bytes.length; ) {
+                ensure(1);
+                int length = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, length);
+                offset += length;
+            }
+        }
+        
+        /**
+         * Дописывает контрольную сумму всего записанного
+         */
+        void finish() throws IOException {
+            flush();
+            buffer.putLong(crc.getValue());
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+        
+        private void flush() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,448 @@
+package com.example.sportstats.repository;
+
+import com.example.sportstats.model.Player;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Журнал изменений (write-ahead log) хранилища CSV профиля.
+ * Каждое сохранение или удаление игрока (или очистка хранилища) дописывается в конец файла журнала
+ * до того, как вызов вернет управление, поэтому изменения переживают перезапуск.
+ * <p>
+ * Групповая фиксация: записи ставятся в очередь, один поток пишет все накопившиеся
+ * записи одним вызовом и делает один fsync на группу. Ожидающие потоки
+ * освобождаются, когда номер их записи становится не больше зафиксированного.
+ * <p>
+ * Журнал делится на сегменты {@code <номер первой записи>.wal}. Для сжатия текущий
+ * сегмент закрывается (rotate), хранилище записывается в снимок с номером последней
+ * записи закрытых сегментов, после чего эти сегменты удаляются.
+ * <p>
+ * Формат записи: int длина, int crc32, затем byte тип, long номер и поля игрока.
+ * Обрыв записи в конце последнего сегмента (сбой посреди записи) при восстановлении
+ * отбрасывается
+ */
+public final class PlayerWriteAheadLog implements Closeable {
+    
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final byte CLEAR = 3;
+    private static final String SUFFIX = ".wal";
+    private static final int MAX_GROUP = 4096;
+    
+    /**
+     * Получатель записей журнала при восстановлении
+     */
+    public interface Replayer {
+        void put(Player player);
+        void delete(String id);
+        void clear();
+    }
+    
+    private final Path dir;
+    private final boolean fsync;
+    private final BlockingQueue<Entry> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    
+    // Номер последней записи, поставленной в очередь; меняется под монитором журнала
+    private long lastSequence;
+    private volatile long durableSequence;
+    private volatile long bytesSinceRotate;
+    private volatile IOException failure;
+    private volatile boolean closed;
+    private final Object durableMonitor = new Object();
+    
+    // Принадлежат потоку записи
+    private FileChannel segment;
+    
+    /**
+     * Открывает журнал для записи; новые записи идут в новый сегмент
+     * @param lastSequence номер последней записи, уже прочитанной при восстановлении
+     */
+    public PlayerWriteAheadLog(Path dir, long lastSequence, boolean fsync) throws IOException {
+        this.dir = dir;
+        this.fsync = fsync;
+        this.lastSequence = lastSequence;
+        this.durableSequence = lastSequence;
+        Files.createDirectories(dir);
+        this.segment = openSegment(lastSequence + 1);
+        this.writer = new Thread(this::writeLoop, "players-wal");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+    
+    /**
+     * Применяет к replayer все записи с номером больше afterSequence по порядку
+     * @return номер последней записи журнала (или afterSequence, если журнал пуст)
+     */
+    public static long replay(Path dir, long afterSequence, Replayer replayer) throws IOException {
+        long last = afterSequence;
+        List<Path> segments = segments(dir);
+        for (int s = 0; s < segments.size(); s++) {
+            Path path = segments.get(s);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                ByteBuffer data = ByteBuffer.allocate((int) channel.size());
+                while (data.hasRemaining()) {
+                    if (channel.read(data) < 0) {
+                        break;
+                    }
+                }
+                data.flip();
+                
+                long validEnd = 0;
+                while (data.remaining() >= 8) {
+                    int length = data.getInt();
+                    int crc = data.getInt();
+                    if (length <= 0 || length > data.remaining() || crc != checksum(data, data.position(), length)) {
+                        break;
+                    }
+                    ByteBuffer record = data.slice(data.position(), length);
+                    data.position(data.position() + length);
+                    validEnd = data.position();
+                    
+                    byte type = record.get();
+                    long sequence = record.getLong();
+                    if (sequence <= afterSequence) {
+                        continue;
+                    }
+                    if (type == PUT) {
+                        replayer.put(readPlayer(record));
+                    } else if (type == DELETE) {
+                        replayer.delete(readString(record));
+                    } else {
+                        replayer.clear();
+                    }
+                    last = Math.max(last, sequence);
+                }
+                if (validEnd < channel.size()) {
+                    if (s < segments.size() - 1) {
+                        throw new IOException("Журнал " + path + " поврежден в середине, восстановление остановлено");
+                    }
+                    System.err.println("! Отброшен недописанный хвост журнала " + path + ": "
+                            + (channel.size() - validEnd) + " байт");
+                    channel.truncate(validEnd);
+                }
+            }
+        }
+        return last;
+    }
+    
+    /**
+     * Ставит в журнал сохранение игрока
+     * @return номер записи для {@link #awaitDurable(long)}
+     */
+    public synchronized long appendPut(Player player) {
+        long sequence = ++lastSequence;
+        enqueue(new Entry(sequence, encodePut(sequence, player), false));
+        return sequence;
+    }
+    
+    /**
+     * Ставит в журнал удаление игрока
+     * @return номер записи для {@link #awaitDurable(long)}
+     */
+    public synchronized long appendDelete(String id) {
+        long sequence = ++lastSequence;
+        enqueue(new Entry(sequence, encodeDelete(sequence, id), false));
+        return sequence;
+    }
+    
+    /**
+     * Ставит в журнал удаление всех игроков
+     * @return номер записи для {@link #awaitDurable(long)}
+     */
+    public synchronized long appendClear() {
+        long sequence = ++lastSequence;
+        enqueue(new Entry(sequence, new RecordBuilder(CLEAR, sequence).toBytes(), false));
+        return sequence;
+    }
+    
+    /**
+     * Закрывает текущий сегмент: все записи с номером не больше возвращенного
+     * лежат в закрытых сегментах, новые записи пойдут в новый
+     */
+    public synchronized long rotate() {
+        enqueue(new Entry(lastSequence, null, true));
+        bytesSinceRotate = 0;
+        return lastSequence;
+    }
+    
+    /**
+     * Ждет, пока запись с номером sequence не будет записана (и сброшена на диск при fsync)
+     * @throws UncheckedIOException если запись в журнал не удалась
+     */
+    public void awaitDurable(long sequence) {
+        synchronized (durableMonitor) {
+            while (durableSequence < sequence) {
+                if (failure != null) {
+                    throw new UncheckedIOException("Запись в журнал изменений не удалась", failure);
+                }
+                try {
+                    durableMonitor.wait(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Ожидание записи в журнал прервано", e);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Удаляет сегменты, все записи которых не новее sequence (уже вошли в снимок)
+     */
+    public void deleteSegmentsThrough(long sequence) throws IOException {
+        List<Path> segments = segments(dir);
+        for (int i = 0; i < segments.size() - 1; i++) {
+            // Сегмент содержит записи до начала следующего
+            if (firstSequence(segments.get(i + 1)) - 1 <= sequence) {
+                Files.deleteIfExists(segments.get(i));
+            }
+        }
+    }
+    
+    /**
+     * @return байт записано в журнал с последнего rotate
+     */
+    public long sizeSinceRotate() {
+        return bytesSinceRotate;
+    }
+    
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void enqueue(Entry entry) {
+        if (closed) {
+            throw new IllegalStateException("Журнал изменений закрыт");
+        }
+        if (entry.data != null) {
+            bytesSinceRotate += entry.data.length;
+        }
+        queue.add(entry);
+    }
+    
+    private void writeLoop() {
+        List<Entry> group = new ArrayList<>();
+        while (!closed || !queue.isEmpty()) {
+            try {
+                Entry first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                queue.drainTo(group, MAX_GROUP);
+                writeGroup(group);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException e) {
+                System.err.println("х Ошибка записи журнала изменений: " + e.getMessage());
+                failure = e;
+                synchronized (durableMonitor) {
+                    durableMonitor.notifyAll();
+                }
+                return;
+            } finally {
+                group.clear();
+            }
+        }
+        try {
+            segment.close();
+        } catch (IOException e) {
+            System.err.println("Не удалось закрыть журнал изменений: " + e.getMessage());
+        }
+    }
+    
+    private void writeGroup(List<Entry> group) throws IOException {
+        int size = 0;
+        for (Entry entry : group) {
+            size += entry.data != null ? entry.data.length : 0;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        long sequence = durableSequence;
+        for (Entry entry : group) {
+            if (entry.rotate) {
+                // Все, что стоит в очереди до rotate, должно попасть в закрываемый сегмент
+                writeFully(buffer.flip());
+                buffer.clear();
+                segment.force(false);
+                segment.close();
+                segment = openSegment(entry.sequence + 1);
+            } else {
+                buffer.put(entry.data);
+            }
+            sequence = Math.max(sequence, entry.sequence);
+        }
+        writeFully(buffer.flip());
+        if (fsync) {
+            segment.force(false);
+        }
+        
+        synchronized (durableMonitor) {
+            durableSequence = sequence;
+            durableMonitor.notifyAll();
+        }
+    }
+    
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            segment.write(buffer);
+        }
+    }
+    
+    private FileChannel openSegment(long firstSequence) throws IOException {
+        Path path = dir.resolve(String.format("%020d", firstSequence) + SUFFIX);
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+    
+    private static List<Path> segments(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+    
+    private static long firstSequence(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+    }
+    
+    private static byte[] encodePut(long sequence, Player player) {
+        RecordBuilder record = new RecordBuilder(PUT, sequence);
+        record.putString(player.getId());
+        record.putString(player.getName());
+        record.putString(player.getTeam());
+        record.putString(player.getPosition());
+        record.putNullableInt(player.getHeightInches());
+        record.putNullableInt(player.getWeightLbs());
+        record.putNullableDouble(player.getAge());
+        return record.toBytes();
+    }
+    
+    private static byte[] encodeDelete(long sequence, String id) {
+        RecordBuilder record = new RecordBuilder(DELETE, sequence);
+        record.putString(id);
+        return record.toBytes();
+    }
+    
+    private static Player readPlayer(ByteBuffer record) {
+        String id = readString(record);
+        String name = readString(record);
+        String team = readString(record);
+        String position = readString(record);
+        Integer height = record.get() == 0 ? null : record.getInt();
+        Integer weight = record.get() == 0 ? null : record.getInt();
+        Double age = record.get() == 0 ? null : record.getDouble();
+        return new Player(id, name, team, position, height, weight, age);
+    }
+    
+    private static String readString(ByteBuffer record) {
+        int length = record.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        record.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    private static int checksum(ByteBuffer data, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(data.slice(offset, length));
+        return (int) crc.getValue();
+    }
+    
+    private static class Entry {
+        final long sequence;
+        final byte[] data;
+        final boolean rotate;
+        
+        Entry(long sequence, byte[] data, boolean rotate) {
+            this.sequence = sequence;
+            this.data = data;
+            this.rotate = rotate;
+        }
+    }
+    
+    /**
+     * Собирает запись журнала: длина и контрольная сумма заполняются в toBytes
+     */
+    private static class RecordBuilder {
+        private ByteBuffer buffer = ByteBuffer.allocate(128);
+        
+        RecordBuilder(byte type, long sequence) {
+            buffer.position(8);
+            buffer.put(type);
+            buffer.putLong(sequence);
+        }
+        
+        void putString(String value) {
+            if (value == null) {
+                ensure(4);
+                buffer.putInt(-1);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            ensure(4 + bytes.length);
+            buffer.putInt(bytes.length);
+            buffer.put(bytes);
+        }
+        
+        void putNullableInt(Integer value) {
+            ensure(5);
+            buffer.put((byte) (value == null ? 0 : 1));
+            if (value != null) {
+                buffer.putInt(value);
+            }
+        }
+        
+        void putNullableDouble(Double value) {
+            ensure(9);
+            buffer.put((byte) (value == null ? 0 : 1));
+            if (value != null) {
+                buffer.putDouble(value);
+            }
+        }
+        
+        byte[] toBytes() {
+            int length = buffer.position() - 8;
+            buffer.putInt(0, length);
+            buffer.putInt(4, checksum(buffer, 8, length));
+            byte[] bytes = new byte[buffer.position()];
+            buffer.get(0, bytes);
+            return bytes;
+        }
+        
+        private void ensure(int bytes) {
+            if (buffer.remaining() < bytes) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+                larger.put(buffer.flip());
+                buffer = larger;
+            }
+        }
+    }
+}
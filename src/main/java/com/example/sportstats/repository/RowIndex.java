@@ -0,0 +1,112 @@
+package com.example.sportstats.repository;
+
+import java.util.Arrays;
+
+/**
+ * Вторичный индекс колонки кодов PlayerColumns: для каждого кода - список номеров
+ * строк с этим кодом. Для каждой строки запоминается ее место в списке, поэтому
+ * добавление, удаление и перенос строки на другой номер - O(1), а выборка по коду -
+ * O(размера результата). Строки с кодом null не индексируются.
+ * Синхронизации нет: индекс меняется и читается под блокировками PlayerColumns
+ */
+final class RowIndex {
+    
+    private int[][] rows;
+    private int[] counts;
+    // Место строки в списке ее кода
+    private int[] places;
+    
+    RowIndex(int capacity) {
+        rows = new int[0][];
+        counts = new int[0];
+        places = new int[capacity];
+    }
+    
+    private RowIndex(RowIndex source, int capacity) {
+        rows = new int[source.rows.length][];
+        for (int code = 0; code < rows.length; code++) {
+            rows[code] = Arrays.copyOf(source.rows[code], Math.max(source.counts[code], 4));
+        }
+        counts = source.counts.clone();
+        places = Arrays.copyOf(source.places, capacity);
+    }
+    
+    RowIndex copy(int capacity) {
+        return new RowIndex(this, capacity);
+    }
+    
+    /**
+     * Сколько строк с кодом code
+     */
+    int count(int code) {
+        return code >= 0 && code < counts.length ? counts[code] : 0;
+    }
+    
+    /**
+     * i-я строка с кодом code, i < count(code)
+     */
+    int row(int code, int i) {
+        return rows[code][i];
+    }
+    
+    void add(int code, int row) {
+        if (code < 0) {
+            return;
+        }
+        if (code >= rows.length) {
+            int length = Math.max(code + 1, rows.length * 2);
+            int from = rows.length;
+            rows = Arrays.copyOf(rows, length);
+            counts = Arrays.copyOf(counts, length);
+            for (int c = from; c < length; c++) {
+                rows[c] = new int[4];
+            }
+        }
+        if (row >= places.length) {
+            places = Arrays.copyOf(places, Math.max(row + 1, places.length + (places.length >> 1)));
+        }
+        int[] list = rows[code];
+        if (counts[code] == list.length) {
+            list = rows[code] = Arrays.copyOf(list, list.length * 2);
+        }
+        places[row] = counts[code];
+        list[counts[code]++] = row;
+    }
+    
+    void remove(int code, int row) {
+        if (code < 0) {
+            return;
+        }
+        int[] list = rows[code];
+        int place = places[row];
+        int last = list[--counts[code]];
+        // Последняя строка списка занимает место удаленной
+        list[place] = last;
+        places[last] = place;
+    }
+    
+    /**
+     * Код code остался без строк: его список сжимается до начального размера
+     */
+    void release(int code) {
+        if (code >= 0 && code < rows.length && rows[code].length > 4) {
+            rows[code] = new int[4];
+        }
+    }
+    
+    /**
+     * Строка с кодом code получила номер to вместо from
+     */
+    void move(int code, int from, int to) {
+        if (code < 0) {
+            return;
+        }
+        int place = places[from];
+        rows[code][place] = to;
+        places[to] = place;
+    }
+    
+    void clear() {
+        Arrays.fill(counts, 0);
+    }
+}
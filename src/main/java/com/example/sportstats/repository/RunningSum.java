@@ -0,0 +1,64 @@
+package com.example.sportstats.repository;
+
+import java.util.OptionalDouble;
+
+/**
+ * Количество и сумма значений числовой колонки, которые обновляются при каждом
+ * добавлении и удалении строки, так что среднее считается за O(1). Сумма ведется
+ * с компенсацией погрешности (алгоритм Ноймайера), чтобы после многих прибавлений
+ * и вычитаний дробных значений среднее не уплывало; сумма целых значений точна.
+ * Синхронизации нет: меняется и читается под блокировками PlayerColumns
+ */
+final class RunningSum {
+    
+    private long count;
+    private double sum;
+    private double compensation;
+    
+    RunningSum copy() {
+        RunningSum copy = new RunningSum();
+        copy.count = count;
+        copy.sum = sum;
+        copy.compensation = compensation;
+        return copy;
+    }
+    
+    void add(double value) {
+        count++;
+        accumulate(value);
+    }
+    
+    void subtract(double value) {
+        count--;
+        accumulate(-value);
+        if (count == 0) {
+            // Без значений сумма ровно ноль, накопленная погрешность сбрасывается
+            sum = 0;
+            compensation = 0;
+        }
+    }
+    
+    long count() {
+        return count;
+    }
+    
+    OptionalDouble average() {
+        return count == 0 ? OptionalDouble.empty() : OptionalDouble.of((sum + compensation) / count);
+    }
+    
+    void clear() {
+        count = 0;
+        sum = 0;
+        compensation = 0;
+    }
+    
+    private void accumulate(double value) {
+        double total = sum + value;
+        if (Math.abs(sum) >= Math.abs(value)) {
+            compensation += (sum - total) + value;
+        } else {
+            compensation += (value - total) + sum;
+        }
+        sum = total;
+    }
+}
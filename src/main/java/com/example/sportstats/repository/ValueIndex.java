@@ -0,0 +1,149 @@
+package com.example.sportstats.repository;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.TreeMap;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * Упорядоченный индекс числовой колонки PlayerColumns. Значения колонки кодируются
+ * словарем, строки с одним значением лежат в RowIndex под его кодом, а значения,
+ * у которых есть строки, - в TreeMap. Выборка диапазона - поиск границ в TreeMap
+ * и обход строк попавших в него значений: O(log V + k), где V - число различных
+ * значений (у роста и веса их десятки, у возраста - тысячи). Изменение строки -
+ * O(log V), колонки не пересортировываются. Наименьшее и наибольшее значения и их
+ * строки - края TreeMap, O(log V); значение без строк из TreeMap удаляется, так что
+ * после удаления крайних строк краем становится следующее значение.
+ * Код значения без строк освобождается и достается следующему новому значению, поэтому
+ * словарь и списки RowIndex не растут при перезаписи строк новыми значениями.
+ * Строки без значения (null) не индексируются.
+ * Синхронизации нет: индекс меняется и читается под блокировками PlayerColumns
+ */
+final class ValueIndex {
+    
+    private final Map<Double, Integer> codes;
+    // Освобожденные коды, берутся раньше новых
+    private int[] free;
+    private int freeCount;
+    private int nextCode;
+    // Значения, у которых есть хотя бы одна строка, -> код
+    private final TreeMap<Double, Integer> present;
+    private final RowIndex rows;
+    
+    ValueIndex(int capacity) {
+        codes = new HashMap<>();
+        free = new int[0];
+        present = new TreeMap<>();
+        rows = new RowIndex(capacity);
+    }
+    
+    private ValueIndex(ValueIndex source, int capacity) {
+        codes = new HashMap<>(source.codes);
+        free = Arrays.copyOf(source.free, source.freeCount);
+        freeCount = source.freeCount;
+        nextCode = source.nextCode;
+        present = new TreeMap<>(source.present);
+        rows = source.rows.copy(capacity);
+    }
+    
+    ValueIndex copy(int capacity) {
+        return new ValueIndex(this, capacity);
+    }
+    
+    void add(double value, int row) {
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = freeCount > 0 ? free[--freeCount] : nextCode++;
+            codes.put(value, code);
+            present.put(value, code);
+        }
+        rows.add(code, row);
+    }
+    
+    void remove(double value, int row) {
+        int code = codes.get(value);
+        rows.remove(code, row);
+        if (rows.count(code) == 0) {
+            present.remove(value);
+            codes.remove(value);
+            rows.release(code);
+            if (freeCount == free.length) {
+                free = Arrays.copyOf(free, Math.max(4, free.length * 2));
+            }
+            free[freeCount++] = code;
+        }
+    }
+    
+    /**
+     * Строка со значением value получила номер to вместо from
+     */
+    void move(double value, int from, int to) {
+        rows.move(codes.get(value), from, to);
+    }
+    
+    void clear() {
+        rows.clear();
+        present.clear();
+        codes.clear();
+        freeCount = 0;
+        nextCode = 0;
+    }
+    
+    /**
+     * Сколько кодов выдано за все время, включая освобожденные
+     */
+    int codeCount() {
+        return nextCode;
+    }
+    
+    OptionalDouble min() {
+        return present.isEmpty() ? OptionalDouble.empty() : OptionalDouble.of(present.firstKey());
+    }
+    
+    OptionalDouble max() {
+        return present.isEmpty() ? OptionalDouble.empty() : OptionalDouble.of(present.lastKey());
+    }
+    
+    /**
+     * Обходит строки с наименьшим (max = false) или наибольшим значением
+     */
+    void forEachAtExtreme(boolean max, IntConsumer action) {
+        if (present.isEmpty()) {
+            return;
+        }
+        int code = max ? present.lastEntry().getValue() : present.firstEntry().getValue();
+        for (int i = 0, count = rows.count(code); i < count; i++) {
+            action.accept(rows.row(code, i));
+        }
+    }
+    
+    /**
+     * Обходит строки со значением в [min, max] по возрастанию значения
+     */
+    void forEachInRange(double min, double max, IntConsumer action) {
+        if (!(min <= max)) {
+            return;
+        }
+        for (int code : present.subMap(min, true, max, true).values()) {
+            for (int i = 0, count = rows.count(code); i < count; i++) {
+                action.accept(rows.row(code, i));
+            }
+        }
+    }
+    
+    /**
+     * Обходит строки по убыванию значения, пока action возвращает true
+     */
+    void forEachDescending(IntPredicate action) {
+        for (int code : present.descendingMap().values()) {
+            for (int i = 0, count = rows.count(code); i < count; i++) {
+                if (!action.test(rows.row(code, i))) {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.sportstats.service;
+
+import com.example.sportstats.model.Player;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Стадия записи конвейера загрузки CSV. Поток разбора отдает готовые пачки
+ * в ограниченную очередь, а несколько потоков записи забирают их и пишут через
+ * PlayerBulkImporter, так что разбор следующих строк идет одновременно с записью.
+ * Когда очередь полна, поток разбора ждет (обратное давление): в памяти не больше
+ * capacity пачек, и чтение файла не убегает вперед медленной базы.
+ * <p>
+ * Ошибка записи останавливает стадию и передается потоку разбора при следующей
+ * отправке пачки или в finish(). При одном потоке записи пачки пишутся в порядке
+ * следования в файле; при нескольких порядок не определен, и если один ID встречается
+ * в разных пачках, неизвестно, какая из строк будет записана
+ */
+final class BatchWriteStage {
+    
+    // Признак конца очереди; сравнивается по ссылке
+    private static final Batch END = new Batch(List.of(), null);
+    private static final long POLL_MILLIS = 100;
+    
+    private final PlayerBulkImporter importer;
+    private final ImportCounters counters;
+    private final BlockingQueue<Batch> queue;
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile Throwable failure;
+    private volatile boolean stopped;
+    
+    BatchWriteStage(PlayerBulkImporter importer, ImportCounters counters, int writers, int capacity) {
+        this.importer = importer;
+        this.counters = counters;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        int count = Math.max(1, writers);
+        counters.setWriters(count);
+        for (int i = 1; i <= count; i++) {
+            Thread thread = new Thread(this::write, "csv-import-writer-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+    }
+    
+    /**
+     * Ставит пачку в очередь записи, ожидая места, если очередь полна
+     * @throws CancellationException если загрузку отменили во время ожидания
+     */
+    void submit(List<Player> players) {
+        submit(players, null);
+    }
+    
+    /**
+     * @param onWritten вызывается потоком записи после того, как пачка записана;
+     *                  получает счетчики только этой пачки (они же добавлены в общие)
+     */
+    void submit(List<Player> players, Consumer<ImportCounters> onWritten) {
+        Batch batch = new Batch(players, onWritten);
+        long start = System.nanoTime();
+        try {
+            while (!queue.offer(batch, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                checkFailure();
+                if (counters.isCancelled()) {
+                    throw new CancellationException("Загрузка отменена");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Загрузка прервана");
+        } finally {
+            counters.addWriteWaitNanos(System.nanoTime() - start);
+        }
+        counters.setQueuedBatches(queue.size());
+        checkFailure();
+    }
+    
+    /**
+     * Дожидается записи всех поставленных пачек и останавливает потоки записи
+     * @throws RuntimeException ошибка записи одной из пачек
+     */
+    void finish() {
+        try {
+            while (!queue.offer(END, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                checkFailure();
+            }
+            join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abort();
+            throw new CancellationException("Загрузка прервана");
+        }
+        checkFailure();
+    }
+    
+    /**
+     * Отбрасывает незаписанные пачки и дожидается, пока потоки записи закончат текущие.
+     * Повторный вызов и вызов после finish() ничего не делают
+     */
+    void abort() {
+        stopped = true;
+        queue.clear();
+        queue.offer(END);
+        try {
+            join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void join() throws InterruptedException {
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+    
+    private void write() {
+        try {
+            while (true) {
+                Batch batch = queue.take();
+                counters.setQueuedBatches(queue.size());
+                if (batch == END) {
+                    // Признак конца нужен и остальным потокам записи
+                    queue.offer(END);
+                    return;
+                }
+                if (stopped) {
+                    continue;
+                }
+                long start = System.nanoTime();
+                if (batch.onWritten == null) {
+                    importer.importChunk(batch.players, counters);
+                    counters.addBatchWritten(batch.players.size(), System.nanoTime() - start);
+                    continue;
+                }
+                // При нескольких потоках записи в общих счетчиках есть и чужие пачки,
+                // поэтому пачка считается отдельно
+                ImportCounters batchCounters = counters.forBatch();
+                importer.importChunk(batch.players, batchCounters);
+                counters.addBatch(batchCounters);
+                counters.addBatchWritten(batch.players.size(), System.nanoTime() - start);
+                batch.onWritten.accept(batchCounters);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException | Error e) {
+            if (failure == null) {
+                failure = e;
+            }
+            stopped = true;
+            queue.clear();
+            queue.offer(END);
+        }
+    }
+    
+    private static final class Batch {
+        
+        final List<Player> players;
+        final Consumer<ImportCounters> onWritten;
+        
+        Batch(List<Player> players, Consumer<ImportCounters> onWritten) {
+            this.players = players;
+            this.onWritten = onWritten;
+        }
+    }
+    
+    private void checkFailure() {
+        Throwable error = failure;
+        if (error instanceof RuntimeException runtime) {
+            throw runtime;
+        }
+        if (error != null) {
+            throw new IllegalStateException("Ошибка записи пачки: " + error.getMessage(), error);
+        }
+    }
+}
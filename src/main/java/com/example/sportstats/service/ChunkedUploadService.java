@@ -0,0 +1,176 @@
+package com.example.sportstats.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Загрузка больших CSV файлов по частям: initiate, PUT пронумерованных частей, complete.
+ * Фоновая задача загрузки запускается сразу при создании сессии и пишет строки в базу
+ * по мере поступления частей, так что запись идет параллельно с передачей по сети.
+ * Каждая часть - отдельный запрос, поэтому ограничения multipart на размер файла не действуют.
+ * <p>
+ * Задача ждет части, пока клиент их не шлет, поэтому загрузки по частям выполняются
+ * в собственном ограниченном пуле и не занимают общий пул фоновых загрузок
+ * (upload?async=true, replace?async=true, продолжение прерванных загрузок).
+ * Брошенные сессии прерываются по расписанию
+ */
+@Service
+public class ChunkedUploadService {
+    
+    private final CsvUploadService csvUploadService;
+    private final CsvImportJobService csvImportJobService;
+    private final long maxChunkSize;
+    private final long idleTimeoutMillis;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, ChunkedUploadSession> sessions = new ConcurrentHashMap<>();
+    
+    public ChunkedUploadService(
+            CsvUploadService csvUploadService,
+            CsvImportJobService csvImportJobService,
+            @Value("${sportstats.import.chunked.max-chunk-size:16777216}") long maxChunkSize,
+            @Value("${sportstats.import.chunked.idle-timeout-minutes:30}") long idleTimeoutMinutes,
+            @Value("${sportstats.import.chunked.threads:2}") int threads,
+            @Value("${sportstats.import.chunked.queue-capacity:4}") int queueCapacity) {
+        this.csvUploadService = csvUploadService;
+        this.csvImportJobService = csvImportJobService;
+        this.maxChunkSize = maxChunkSize;
+        this.idleTimeoutMillis = idleTimeoutMinutes * 60_000;
+        
+        AtomicInteger threadNumber = new AtomicInteger();
+        int poolSize = Math.max(1, threads);
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "csv-chunked-import-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        sessions.values().forEach(ChunkedUploadSession::abort);
+        executor.shutdownNow();
+    }
+    
+    /**
+     * Создает сессию и сразу запускает ее загрузку, которая ждет первую часть
+     * @throws ResponseStatusException 503, если очередь загрузок по частям заполнена
+     */
+    public ChunkedUploadSession initiate(String fileName) throws IOException {
+        Path file = Files.createTempFile("players-chunked-", ".csv");
+        ChunkedUploadSession session = new ChunkedUploadSession(UUID.randomUUID().toString(), fileName, file);
+        try {
+            session.setJob(csvImportJobService.start(executor, fileName, -1, counters -> {
+                try (InputStream in = session.openStream()) {
+                    return csvUploadService.importCsvStream(in, fileName, counters);
+                }
+            }, session::release));
+        } catch (ResponseStatusException e) {
+            session.release();
+            throw e;
+        }
+        sessions.put(session.getId(), session);
+        System.out.println("Начата загрузка по частям " + session.getId() + ": " + fileName);
+        return session;
+    }
+    
+    /**
+     * Принимает часть index. Повтор уже принятой части подтверждается без записи
+     * @throws ResponseStatusException 404 - нет сессии, 409 - часть не по порядку
+     *         или загрузка уже остановлена, 400 - тело части оборвалось или слишком велико
+     */
+    public ChunkedUploadSession appendChunk(String uploadId, int index, InputStream body) {
+        ChunkedUploadSession session = getSession(uploadId);
+        CsvImportJob job = session.getJob();
+        if (job.isFinished() && !session.isComplete()) {
+            // Загрузка уже остановилась (неверный заголовок, отмена) - дальше слать части незачем
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Загрузка остановлена: " + job.getStatus());
+        }
+        try {
+            session.appendChunk(index, body, maxChunkSize);
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Часть " + index + " не принята: " + e.getMessage());
+        }
+        return session;
+    }
+    
+    /**
+     * Отмечает конец файла; загрузка дочитывает принятые части и завершается
+     */
+    public ChunkedUploadSession complete(String uploadId, Integer expectedChunks) {
+        ChunkedUploadSession session = getSession(uploadId);
+        try {
+            session.complete(expectedChunks);
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        }
+        return session;
+    }
+    
+    /**
+     * Прерывает загрузку. Уже записанные в базу пачки остаются
+     */
+    public void abort(String uploadId) {
+        ChunkedUploadSession session = getSession(uploadId);
+        session.getJob().cancel();
+        session.abort();
+    }
+    
+    public ChunkedUploadSession getSession(String uploadId) {
+        ChunkedUploadSession session = sessions.get(uploadId);
+        if (session == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Загрузка не найдена: " + uploadId);
+        }
+        return session;
+    }
+    
+    public List<ChunkedUploadSession> getSessions() {
+        List<ChunkedUploadSession> list = new ArrayList<>(sessions.values());
+        list.sort(Comparator.comparing(ChunkedUploadSession::getLastActivityMillis).reversed());
+        return list;
+    }
+    
+    /**
+     * Брошенные клиентом сессии прерываются. Завершенная сессия остается в реестре,
+     * пока не простоит столько же, чтобы клиент мог узнать итог по uploadId
+     */
+    @Scheduled(fixedDelayString = "${sportstats.import.chunked.reap-interval-ms:60000}",
+            initialDelayString = "${sportstats.import.chunked.reap-interval-ms:60000}")
+    public void abortIdleSessions() {
+        long deadline = System.currentTimeMillis() - idleTimeoutMillis;
+        for (ChunkedUploadSession session : sessions.values()) {
+            if (session.getLastActivityMillis() < deadline) {
+                if (!session.getJob().isFinished()) {
+                    System.out.println("Загрузка по частям " + session.getId() + " прервана по простою");
+                    session.getJob().cancel();
+                    session.abort();
+                }
+                sessions.remove(session.getId());
+            }
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.example.sportstats.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Загрузка CSV файла по частям. Части дописываются во временный файл строго по порядку,
+ * а фоновая задача загрузки читает этот файл через {@link #openStream()} одновременно
+ * с приемом: чтение ждет следующую часть, пока загрузка не завершена.
+ * <p>
+ * Часть считается принятой только после того, как записана целиком: обрыв соединения
+ * посреди части откатывает файл к последней принятой части, и клиент продолжает с нее
+ */
+public class ChunkedUploadSession {
+    
+    private static final int COPY_BUFFER_SIZE = 1 << 16;
+    private static final long READ_WAIT_MILLIS = 1000;
+    
+    private final String id;
+    private final String fileName;
+    private final Path file;
+    private final FileChannel writeChannel;
+    private final Object writeLock = new Object();
+    
+    // Состояние, видимое читателю; меняется под монитором сессии
+    private long committedBytes;
+    private int nextChunk;
+    private boolean complete;
+    private boolean aborted;
+    
+    private volatile long lastActivityMillis = System.currentTimeMillis();
+    private final Instant createdAt = Instant.now();
+    private volatile CsvImportJob job;
+    
+    public ChunkedUploadSession(String id, String fileName, Path file) throws IOException {
+        this.id = id;
+        this.fileName = fileName;
+        this.file = file;
+        this.writeChannel = FileChannel.open(file, StandardOpenOption.WRITE);
+    }
+    
+    public String getId() { return id; }
+    public String getFileName() { return fileName; }
+    public CsvImportJob getJob() { return job; }
+    
+    void setJob(CsvImportJob job) {
+        this.job = job;
+    }
+    
+    public synchronized int getNextChunk() {
+        return nextChunk;
+    }
+    
+    public synchronized boolean isComplete() {
+        return complete;
+    }
+    
+    public synchronized boolean isAborted() {
+        return aborted;
+    }
+    
+    long getLastActivityMillis() {
+        return lastActivityMillis;
+    }
+    
+    /**
+     * Дописывает часть с номером index. Повторно присланная уже принятая часть
+     * игнорируется, так что клиент может безопасно повторить запрос после обрыва
+     * @return true, если часть записана; false, если она уже была принята раньше
+     * @throws IllegalStateException если часть пришла не по порядку или загрузка уже завершена
+     * @throws IOException если тело запроса оборвалось или превысило maxChunkSize
+     */
+    public boolean appendChunk(int index, InputStream body, long maxChunkSize) throws IOException {
+        synchronized (writeLock) {
+            long position;
+            synchronized (this) {
+                if (aborted) {
+                    throw new IllegalStateException("Загрузка прервана");
+                }
+                if (index < nextChunk) {
+                    return false;
+                }
+                if (complete) {
+                    throw new IllegalStateException("Загрузка уже завершена");
+                }
+                if (index > nextChunk) {
+                    throw new IllegalStateException("Ожидается часть " + nextChunk + ", получена " + index);
+                }
+                position = committedBytes;
+            }
+            lastActivityMillis = System.currentTimeMillis();
+            
+            long written = 0;
+            try {
+                ReadableByteChannel source = Channels.newChannel(body);
+                ByteBuffer buffer = ByteBuffer.allocate(COPY_BUFFER_SIZE);
+                while (source.read(buffer) >= 0) {
+                    buffer.flip();
+                    written += buffer.remaining();
+                    if (written > maxChunkSize) {
+                        throw new IOException("Часть больше допустимого размера " + maxChunkSize + " байт");
+                    }
+                    while (buffer.hasRemaining()) {
+                        writeChannel.write(buffer, position + written - buffer.remaining());
+                    }
+                    buffer.clear();
+                }
+            } catch (IOException | RuntimeException e) {
+                // Недописанная часть не должна попасть к читателю и мешать повторной отправке
+                writeChannel.truncate(position);
+                throw e;
+            }
+            
+            synchronized (this) {
+                committedBytes = position + written;
+                nextChunk++;
+                lastActivityMillis = System.currentTimeMillis();
+                notifyAll();
+            }
+            return true;
+        }
+    }
+    
+    /**
+     * Отмечает конец файла: читатель дочитает принятые части и получит конец потока
+     * @param expectedChunks ожидаемое число частей или null, если проверять не нужно
+     * @throws IllegalStateException если приняты не все части
+     */
+    public synchronized void complete(Integer expectedChunks) {
+        if (aborted) {
+            throw new IllegalStateException("Загрузка прервана");
+        }
+        if (expectedChunks != null && expectedChunks != nextChunk) {
+            throw new IllegalStateException("Принято " + nextChunk + " частей из " + expectedChunks);
+        }
+        complete = true;
+        lastActivityMillis = System.currentTimeMillis();
+        notifyAll();
+    }
+    
+    /**
+     * Прерывает загрузку: ожидающий читатель получит ошибку, файл будет удален
+     */
+    public synchronized void abort() {
+        aborted = true;
+        notifyAll();
+    }
+    
+    /**
+     * Поток для чтения принятых частей. Блокируется, пока следующая часть не пришла;
+     * конец потока - только после {@link #complete(Integer)}
+     */
+    public InputStream openStream() throws IOException {
+        FileChannel readChannel = FileChannel.open(file, StandardOpenOption.READ);
+        return new InputStream() {
+            private long position;
+            
+            @Override
+            public int read() throws IOException {
+                byte[] one = new byte[1];
+                return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+            }
+            
+            @Override
+            public int read(byte[] target, int offset, int length) throws IOException {
+                if (length == 0) {
+                    return 0;
+                }
+                long available = awaitData(position);
+                if (available <= 0) {
+                    return -1;
+                }
+                int read = readChannel.read(ByteBuffer.wrap(target, offset, (int) Math.min(length, available)), position);
+                position += read;
+                return read;
+            }
+            
+            @Override
+            public void close() throws IOException {
+                readChannel.close();
+            }
+        };
+    }
+    
+    /**
+     * @return сколько принятых байт доступно с позиции position; 0 - конец файла
+     */
+    private synchronized long awaitData(long position) throws IOException {
+        while (position >= committedBytes && !complete && !aborted) {
+            CsvImportJob current = job;
+            if (current != null && current.getCounters().isCancelled()) {
+                throw new CancellationException("Загрузка отменена");
+            }
+            try {
+                wait(READ_WAIT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Ожидание следующей части прервано", e);
+            }
+        }
+        if (aborted) {
+            CsvImportJob current = job;
+            if (current != null && current.getCounters().isCancelled()) {
+                throw new CancellationException("Загрузка отменена");
+            }
+            throw new IOException("Загрузка по частям прервана");
+        }
+        return committedBytes - position;
+    }
+    
+    /**
+     * Закрывает и удаляет временный файл; вызывается после завершения задачи загрузки
+     */
+    void release() {
+        try {
+            writeChannel.close();
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            System.err.println("Не удалось удалить временный файл " + file + ": " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Состояние загрузки для ответа API
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        synchronized (this) {
+            map.put("uploadId", id);
+            map.put("fileName", fileName);
+            map.put("createdAt", createdAt.toString());
+            map.put("nextChunk", nextChunk);
+            map.put("bytesReceived", committedBytes);
+            map.put("complete", complete);
+            map.put("aborted", aborted);
+        }
+        CsvImportJob current = job;
+        if (current != null) {
+            map.put("job", current.toMap());
+        }
+        return map;
+    }
+}
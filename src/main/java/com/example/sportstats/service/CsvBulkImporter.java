@@ -0,0 +1,117 @@
+package com.example.sportstats.service;
+
+import com.example.sportstats.model.Player;
+import com.example.sportstats.repository.CsvRepository;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Загрузка CSV в хранилище CSV профиля. Пачки копятся в стороне, хранилище до конца
+ * загрузки не меняется; в конце все новые игроки публикуются одной подменой хранилища
+ * (CsvRepository.insertAbsent), так что читатели не видят наполовину загруженный файл.
+ * Отмененная или прерванная ошибкой загрузка не оставляет в хранилище ничего.
+ * <p>
+ * Замена набора устроена так же, только в конце новый набор не добавляется
+ * к хранилищу, а подменяет его целиком (CsvRepository.replaceAll)
+ */
+@Component
+@Profile("csv")
+public class CsvBulkImporter implements PlayerBulkImporter, PlayerDatasetReplacer {
+    
+    private final CsvRepository csvRepository;
+    
+    public CsvBulkImporter(CsvRepository csvRepository) {
+        this.csvRepository = csvRepository;
+    }
+    
+    @Override
+    public PlayerBulkImporter begin() {
+        return new StagedImport(false);
+    }
+    
+    @Override
+    public PlayerBulkImporter beginReplace() {
+        return new StagedImport(true);
+    }
+    
+    @Override
+    public int clear() {
+        return csvRepository.deleteAll();
+    }
+    
+    /**
+     * Пачка вне begin/finish публикуется сразу
+     */
+    @Override
+    public void importChunk(List<Player> chunk, ImportCounters counters) {
+        PlayerBulkImporter staged = begin();
+        staged.importChunk(chunk, counters);
+        staged.finish(counters);
+    }
+    
+    /**
+     * Одна загрузка: игроки, которых нет среди уже накопленных
+     * и (кроме замены набора) в хранилище. Пачки могут приходить
+     * из нескольких потоков записи одновременно
+     */
+    private class StagedImport implements PlayerBulkImporter {
+        
+        private final boolean replace;
+        private final List<Player> staged = new ArrayList<>();
+        private final Set<String> stagedIds = new HashSet<>();
+        
+        StagedImport(boolean replace) {
+            this.replace = replace;
+        }
+        
+        @Override
+        public synchronized void importChunk(List<Player> chunk, ImportCounters counters) {
+            int added = 0;
+            for (Player player : chunk) {
+                if ((replace || !csvRepository.exists(player.getId())) && stagedIds.add(player.getId())) {
+                    staged.add(player);
+                    added++;
+                }
+            }
+            counters.addImported(added);
+            counters.addDuplicates(chunk.size() - added);
+        }
+        
+        @Override
+        public synchronized void finish(ImportCounters counters) {
+            long start = System.nanoTime();
+            if (replace) {
+                int replaced = csvRepository.replaceAll(staged);
+                System.out.println(" Набор из " + replaced + " игроков заменен на " + staged.size() + " за "
+                        + (System.nanoTime() - start) / 1_000_000 + " мс");
+                discard();
+                return;
+            }
+            int published = csvRepository.insertAbsent(staged).size();
+            // Игроков с теми же ID могли добавить запросами во время загрузки
+            int lost = staged.size() - published;
+            if (lost > 0) {
+                counters.addImported(-lost);
+                counters.addDuplicates(lost);
+            }
+            System.out.println(" Опубликовано " + published + " игроков за "
+                    + (System.nanoTime() - start) / 1_000_000 + " мс");
+            discard();
+        }
+        
+        @Override
+        public synchronized void abort() {
+            discard();
+        }
+        
+        private void discard() {
+            staged.clear();
+            stagedIds.clear();
+        }
+    }
+}
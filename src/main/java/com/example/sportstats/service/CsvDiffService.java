@@ -0,0 +1,186 @@
+package com.example.sportstats.service;
+
+import com.example.sportstats.model.Player;
+import com.example.sportstats.repository.CommonRepository;
+import com.example.sportstats.repository.PlayerJpaRepository;
+import com.example.sportstats.util.CsvParser;
+import com.example.sportstats.util.CsvRowHandler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Предпросмотр загрузки: что изменится, если заменить текущий набор игроков файлом.
+ * <p>
+ * Сравнение за один проход по каждой стороне: сначала текущий набор сворачивается
+ * в карту ID -> хэш содержимого (Player.contentHash), затем файл читается потоково
+ * и каждая строка сверяется с картой по ID, а запись помечается как найденная.
+ * Что осталось непомеченным - удалено. В памяти держатся только ID и хэши,
+ * а не сами игроки; образцы изменений дочитываются из хранилища по ID
+ */
+@Service
+public class CsvDiffService {
+    
+    private static final int JPA_PAGE_SIZE = 10_000;
+    
+    private final CsvParser csvParser;
+    private final CommonRepository<Player> repository;
+    private final PlayerJpaRepository playerJpaRepository;
+    
+    public CsvDiffService(
+            CsvParser csvParser,
+            @Autowired(required = false) CommonRepository<Player> repository,
+            @Autowired(required = false) PlayerJpaRepository playerJpaRepository) {
+        this.csvParser = csvParser;
+        this.repository = repository;
+        this.playerJpaRepository = playerJpaRepository;
+    }
+    
+    /**
+     * Сравнивает файл с текущим набором игроков, ничего не меняя
+     * @param sampleSize сколько примеров показать для каждого вида изменений
+     * @return счетчики added/modified/removed/unchanged и примеры
+     * @throws com.example.sportstats.util.CsvStructureException если заголовки не совпадают с ожидаемыми
+     */
+    public Map<String, Object> diff(MultipartFile file, int sampleSize) {
+        long start = System.nanoTime();
+        Map<String, CurrentRow> current = new HashMap<>();
+        forEachCurrent(player -> current.put(player.getId(), new CurrentRow(Player.contentHash(player))));
+        int currentSize = current.size();
+        
+        List<Player> addedSamples = new ArrayList<>();
+        List<Player> modifiedSamples = new ArrayList<>();
+        // ID из файла, которых нет в текущем наборе: нужны, чтобы отличить повтор строки от нового игрока
+        Set<String> addedIds = new HashSet<>();
+        long[] counts = new long[5];
+        final int added = 0, modified = 1, unchanged = 2, duplicates = 3, rejected = 4;
+        
+        int totalRows = csvParser.streamCsvMultipart(file, new CsvRowHandler() {
+            @Override
+            public void accept(Player player) {
+                CurrentRow row = current.get(player.getId());
+                if (row == null) {
+                    if (addedIds.add(player.getId())) {
+                        counts[added]++;
+                        addSample(addedSamples, player, sampleSize);
+                    } else {
+                        counts[duplicates]++;
+                    }
+                } else if (row.matched) {
+                    counts[duplicates]++;
+                } else {
+                    row.matched = true;
+                    if (row.hash != Player.contentHash(player)) {
+                        counts[modified]++;
+                        addSample(modifiedSamples, player, sampleSize);
+                    } else {
+                        counts[unchanged]++;
+                    }
+                }
+            }
+            
+            @Override
+            public void onReject(long lineNumber, String[] record, String reason) {
+                counts[rejected]++;
+            }
+        });
+        
+        Map<String, Object> samples = new LinkedHashMap<>();
+        samples.put("added", addedSamples);
+        List<Map<String, Object>> modifiedList = new ArrayList<>();
+        for (Player incoming : modifiedSamples) {
+            Map<String, Object> change = new LinkedHashMap<>();
+            change.put("id", incoming.getId());
+            change.put("current", findById(incoming.getId()));
+            change.put("incoming", incoming);
+            modifiedList.add(change);
+        }
+        samples.put("modified", modifiedList);
+        List<Player> removedSamples = new ArrayList<>();
+        long removed = 0;
+        for (Map.Entry<String, CurrentRow> entry : current.entrySet()) {
+            if (entry.getValue().matched) {
+                continue;
+            }
+            removed++;
+            if (removedSamples.size() < sampleSize) {
+                Player player = findById(entry.getKey());
+                if (player != null) {
+                    removedSamples.add(player);
+                }
+            }
+        }
+        samples.put("removed", removedSamples);
+        
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("success", true);
+        result.put("fileName", file.getOriginalFilename());
+        result.put("currentPlayers", currentSize);
+        result.put("filePlayers", totalRows);
+        result.put("added", counts[added]);
+        result.put("modified", counts[modified]);
+        result.put("removed", removed);
+        result.put("unchanged", counts[unchanged]);
+        result.put("duplicates", counts[duplicates]);
+        result.put("rejected", counts[rejected]);
+        result.put("samples", samples);
+        result.put("elapsedMs", (System.nanoTime() - start) / 1_000_000);
+        return result;
+    }
+    
+    /**
+     * Обходит текущий набор: через CommonRepository.findAll (csv, jdbc) или
+     * постранично через JPA, чтобы не держать в памяти все сущности сразу
+     */
+    private void forEachCurrent(Consumer<Player> consumer) {
+        if (repository != null) {
+            repository.findAll().forEach(consumer);
+            return;
+        }
+        if (playerJpaRepository == null) {
+            throw new IllegalStateException("Нет хранилища игроков для сравнения");
+        }
+        PageRequest pageRequest = PageRequest.of(0, JPA_PAGE_SIZE, Sort.by("id"));
+        Page<Player> page;
+        do {
+            page = playerJpaRepository.findAll(pageRequest);
+            page.forEach(consumer);
+            pageRequest = pageRequest.next();
+        } while (page.hasNext());
+    }
+    
+    private Player findById(String id) {
+        return repository != null ? repository.findById(id) : playerJpaRepository.findById(id).orElse(null);
+    }
+    
+    /**
+     * Игрок текущего набора: хэш содержимого и встречался ли его ID в файле
+     */
+    private static final class CurrentRow {
+        
+        final long hash;
+        boolean matched;
+        
+        CurrentRow(long hash) {
+            this.hash = hash;
+        }
+    }
+    
+    private static void addSample(List<Player> samples, Player player, int sampleSize) {
+        if (samples.size() < sampleSize) {
+            samples.add(player);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.sportstats.service;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Фоновая загрузка CSV файла: состояние, прогресс и итоговый результат
+ */
+public class CsvImportJob {
+    
+    public enum Status { QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED }
+    
+    private final String id;
+    private final String fileName;
+    private final long fileSize;
+    private final ImportCounters counters = new ImportCounters();
+    private final Instant createdAt = Instant.now();
+    
+    private volatile Status status = Status.QUEUED;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile long startedNanos;
+    private volatile long finishedNanos;
+    private volatile Map<String, Object> result;
+    
+    public CsvImportJob(String id, String fileName, long fileSize) {
+        this.id = id;
+        this.fileName = fileName;
+        this.fileSize = fileSize;
+    }
+    
+    public String getId() { return id; }
+    public String getFileName() { return fileName; }
+    public Status getStatus() { return status; }
+    public ImportCounters getCounters() { return counters; }
+    public Instant getCreatedAt() { return createdAt; }
+    public Instant getFinishedAt() { return finishedAt; }
+    
+    public boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.FAILED || status == Status.CANCELLED;
+    }
+    
+    /**
+     * @return false, если задачу отменили, пока она ждала в очереди
+     */
+    synchronized boolean markRunning() {
+        if (status != Status.QUEUED) {
+            return false;
+        }
+        startedAt = Instant.now();
+        startedNanos = System.nanoTime();
+        status = Status.RUNNING;
+        return true;
+    }
+    
+    synchronized void markFinished(Status finalStatus, Map<String, Object> result) {
+        this.result = result;
+        finishedAt = Instant.now();
+        finishedNanos = System.nanoTime();
+        status = finalStatus;
+    }
+    
+    /**
+     * Задача в очереди сразу считается отмененной, у выполняемой выставляется флаг отмены,
+     * который загрузка проверяет на следующей строке
+     * @return false, если задача уже завершена
+     */
+    synchronized boolean cancel() {
+        if (isFinished()) {
+            return false;
+        }
+        counters.cancel();
+        if (status == Status.QUEUED) {
+            // Задача остается в очереди: при запуске она увидит отмену и только освободит ресурсы
+            markFinished(Status.CANCELLED, null);
+        }
+        return true;
+    }
+    
+    /**
+     * Состояние задачи для ответа API
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("jobId", id);
+        map.put("fileName", fileName);
+        map.put("fileSize", fileSize);
+        map.put("status", status);
+        map.put("createdAt", createdAt.toString());
+        map.put("startedAt", startedAt != null ? startedAt.toString() : null);
+        map.put("finishedAt", finishedAt != null ? finishedAt.toString() : null);
+        
+        long elapsedNanos = 0;
+        if (startedNanos != 0) {
+            elapsedNanos = (finishedNanos != 0 ? finishedNanos : System.nanoTime()) - startedNanos;
+        }
+        long rowsRead = counters.getRowsRead();
+        map.put("elapsedMs", elapsedNanos / 1_000_000);
+        map.put("rowsRead", rowsRead);
+        map.put("rowsPerSecond", elapsedNanos > 0 ? Math.round(rowsRead * 1e9 / elapsedNanos) : 0);
+        map.put("imported", counters.getImported());
+        map.put("duplicates", counters.getDuplicates());
+        map.put("errors", counters.getErrors());
+        map.put("rejected", counters.getRejected());
+        map.put("stages", counters.stagesToMap(elapsedNanos));
+        RejectReport report = counters.getRejectReport();
+        if (report != null && report.toMap() != null) {
+            map.put("rejectReport", report.toMap());
+        }
+        if (result != null) {
+            map.put("result", result);
+        }
+        return map;
+    }
+}
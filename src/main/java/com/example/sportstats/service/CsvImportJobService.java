@@ -0,0 +1,270 @@
+package com.example.sportstats.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Фоновые загрузки CSV файлов. Загрузка сохраняется во временный файл
+ * (servlet удаляет свой временный файл по окончании запроса), после чего
+ * запрос сразу получает id задачи, а сама загрузка идет в ограниченном пуле потоков.
+ * Если пул и очередь заняты, новая задача отклоняется, а не копится в памяти.
+ * <p>
+ * Если включены контрольные точки (ImportCheckpointStore), файл сохраняется не во
+ * временный файл, а в каталог контрольных точек, и загрузка, прерванная остановкой
+ * или сбоем приложения, продолжается при следующем запуске
+ */
+@Service
+public class CsvImportJobService {
+    
+    private final CsvUploadService csvUploadService;
+    private final ImportCheckpointStore checkpointStore;
+    private final ThreadPoolExecutor executor;
+    private final int retainedJobs;
+    private final Map<String, CsvImportJob> jobs = new ConcurrentHashMap<>();
+    private volatile boolean shuttingDown;
+    
+    public CsvImportJobService(
+            CsvUploadService csvUploadService,
+            ImportCheckpointStore checkpointStore,
+            @Value("${sportstats.import.async.threads:2}") int threads,
+            @Value("${sportstats.import.async.queue-capacity:10}") int queueCapacity,
+            @Value("${sportstats.import.async.retained-jobs:100}") int retainedJobs) {
+        this.csvUploadService = csvUploadService;
+        this.checkpointStore = checkpointStore;
+        this.retainedJobs = Math.max(1, retainedJobs);
+        
+        AtomicInteger threadNumber = new AtomicInteger();
+        int poolSize = Math.max(1, threads);
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "csv-import-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        shuttingDown = true;
+        jobs.values().forEach(CsvImportJob::cancel);
+        executor.shutdownNow();
+    }
+    
+    /**
+     * Сохраняет файл и ставит его загрузку в очередь
+     * @return созданная задача
+     * @throws ResponseStatusException 503, если очередь загрузок заполнена
+     */
+    public CsvImportJob submit(MultipartFile file) throws IOException {
+        return submit(file, false);
+    }
+    
+    /**
+     * Сохраняет файл и ставит в очередь его загрузку или замену им всего набора игроков
+     * @param replace заменить набор (CsvUploadService.replaceDataset), а не дополнить
+     * @return созданная задача
+     * @throws ResponseStatusException 503, если очередь загрузок заполнена
+     */
+    public CsvImportJob submit(MultipartFile file, boolean replace) throws IOException {
+        if (checkpointStore.isEnabled()) {
+            ImportCheckpoint checkpoint = checkpointStore.create(file.getOriginalFilename(), replace);
+            try {
+                file.transferTo(checkpoint.getSource());
+                checkpoint.save();
+                return startCheckpointed(checkpoint);
+            } catch (IOException | RuntimeException e) {
+                checkpointStore.delete(checkpoint);
+                throw e;
+            }
+        }
+        
+        Path temp = Files.createTempFile("players-import-", ".csv");
+        try {
+            file.transferTo(temp);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        
+        try {
+            return start(file.getOriginalFilename(), file.getSize(),
+                    counters -> replace
+                            ? csvUploadService.replaceDataset(temp, file.getOriginalFilename(), counters)
+                            : csvUploadService.importCsvFile(temp, file.getOriginalFilename(), counters),
+                    () -> deleteQuietly(temp));
+        } catch (ResponseStatusException e) {
+            deleteQuietly(temp);
+            throw e;
+        }
+    }
+    
+    /**
+     * Продолжает загрузки, прерванные остановкой или сбоем приложения
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterrupted() {
+        for (ImportCheckpoint checkpoint : checkpointStore.pending()) {
+            try {
+                CsvImportJob job = startCheckpointed(checkpoint);
+                System.out.println("Прерванная загрузка " + checkpoint.getFileName() + " продолжается задачей "
+                        + job.getId() + (checkpoint.getOffset() > 0 ? " со строки " + (checkpoint.getLines() + 1) : ""));
+            } catch (ResponseStatusException | IOException e) {
+                // Контрольная точка остается до следующего запуска
+                System.err.println("х Не удалось продолжить загрузку " + checkpoint.getFileName() + ": " + e.getMessage());
+            }
+        }
+    }
+    
+    private CsvImportJob startCheckpointed(ImportCheckpoint checkpoint) throws IOException {
+        boolean[] done = new boolean[1];
+        return start(checkpoint.getFileName(), Files.size(checkpoint.getSource()), counters -> {
+            Map<String, Object> result = csvUploadService.importCheckpointed(checkpoint, counters);
+            done[0] = !Boolean.TRUE.equals(result.get("cancelled"));
+            return result;
+        }, () -> {
+            // Загрузка, прерванная остановкой приложения, продолжится при следующем запуске
+            if (!shuttingDown || done[0]) {
+                checkpointStore.delete(checkpoint);
+            }
+        });
+    }
+    
+    /**
+     * Ставит в очередь загрузку из произвольного источника
+     * @param fileSize размер файла или -1, если он еще неизвестен
+     * @param work сама загрузка; получает счетчики задачи
+     * @param cleanup выполняется после завершения загрузки (в том числе неудачного)
+     * @throws ResponseStatusException 503, если очередь загрузок заполнена
+     */
+    public CsvImportJob start(String fileName, long fileSize, ImportWork work, Runnable cleanup) {
+        return start(executor, fileName, fileSize, work, cleanup);
+    }
+    
+    /**
+     * Ставит загрузку в очередь другого пула потоков; задача видна в реестре и отменяется,
+     * как обычная. Нужно загрузкам, которые могут долго ждать клиента (ChunkedUploadService)
+     * @param pool пул с ограниченной очередью
+     * @throws ResponseStatusException 503, если очередь пула заполнена
+     */
+    public CsvImportJob start(Executor pool, String fileName, long fileSize, ImportWork work, Runnable cleanup) {
+        CsvImportJob job = new CsvImportJob(UUID.randomUUID().toString(), fileName, fileSize);
+        evictFinishedJobs();
+        jobs.put(job.getId(), job);
+        try {
+            pool.execute(() -> run(job, work, cleanup));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Очередь загрузок заполнена, повторите позже");
+        }
+        System.out.println("Задача загрузки " + job.getId() + " поставлена в очередь: " + fileName);
+        return job;
+    }
+    
+    public Optional<CsvImportJob> getJob(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+    
+    /**
+     * @return задачи, начиная с самых новых
+     */
+    public List<CsvImportJob> getJobs() {
+        List<CsvImportJob> list = new ArrayList<>(jobs.values());
+        list.sort(Comparator.comparing(CsvImportJob::getCreatedAt).reversed());
+        return list;
+    }
+    
+    /**
+     * @return false, если задача уже завершена
+     * @throws ResponseStatusException 404, если задача не найдена
+     */
+    public boolean cancel(String jobId) {
+        CsvImportJob job = getJob(jobId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Задача не найдена: " + jobId));
+        return job.cancel();
+    }
+    
+    private void run(CsvImportJob job, ImportWork work, Runnable cleanup) {
+        try {
+            if (!job.markRunning()) {
+                return;
+            }
+            Map<String, Object> result = work.run(job.getCounters());
+            CsvImportJob.Status status;
+            if (Boolean.TRUE.equals(result.get("cancelled"))) {
+                status = CsvImportJob.Status.CANCELLED;
+            } else if (Boolean.TRUE.equals(result.get("success"))) {
+                status = CsvImportJob.Status.COMPLETED;
+            } else {
+                status = CsvImportJob.Status.FAILED;
+            }
+            job.markFinished(status, result);
+        } catch (Exception e) {
+            System.err.println("х Ошибка фоновой загрузки " + job.getId() + ": " + e.getMessage());
+            job.markFinished(CsvImportJob.Status.FAILED, Map.of(
+                    "success", false,
+                    "message", "Ошибка при обработке файла: " + e.getMessage()));
+        } finally {
+            cleanup.run();
+        }
+    }
+    
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            System.err.println("Не удалось удалить временный файл " + path + ": " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Реестр задач держится в памяти, поэтому хранятся только последние завершенные задачи
+     */
+    private void evictFinishedJobs() {
+        List<CsvImportJob> finished = new ArrayList<>();
+        for (CsvImportJob job : jobs.values()) {
+            if (job.isFinished()) {
+                finished.add(job);
+            }
+        }
+        if (finished.size() < retainedJobs) {
+            return;
+        }
+        finished.sort(Comparator.comparing(CsvImportJob::getFinishedAt));
+        for (int i = 0; i <= finished.size() - retainedJobs; i++) {
+            jobs.remove(finished.get(i).getId());
+        }
+    }
+    
+    /**
+     * Загрузка, выполняемая фоновой задачей
+     */
+    @FunctionalInterface
+    public interface ImportWork {
+        Map<String, Object> run(ImportCounters counters) throws Exception;
+    }
+}
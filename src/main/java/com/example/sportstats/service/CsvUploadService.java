@@ -2,37 +2,69 @@ package com.example.sportstats.service;
 
 import com.example.sportstats.model.Player;
 import com.example.sportstats.util.CsvParser;
-import com.example.sportstats.util.CsvValidator;
+import com.example.sportstats.util.CsvRowHandler;
+import com.example.sportstats.util.CsvStructureException;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.annotation.Profile;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.concurrent.CancellationException;
 
 @Service
 public class CsvUploadService {
     
+    private static final int LOGGED_REJECTS = 10;
+    
     private final JdbcTemplate jdbcTemplate;
     private final CsvParser csvParser;
-    private final CsvValidator csvValidator;
-    private final PlayerJpaService playerJpaService;
+    private final PlayerBulkImporter bulkImporter;
+    private final PlayerDatasetReplacer datasetReplacer;
+    private final RejectReportStore rejectReportStore;
+    private final ImportCheckpointStore checkpointStore;
+    private final int batchSize;
+    private final int writers;
+    private final int queueCapacity;
+    private final long maxErrors;
     private final String activeProfile;
     
+    /**
+     * @param writers число потоков записи пачек в базу (стадия записи конвейера загрузки)
+     * @param queueCapacity сколько готовых пачек может ждать записи, прежде чем разбор остановится
+     * @param maxErrors после скольких отклоненных и ошибочных строк загрузка прерывается, -1 - не прерывается
+     */
     @Autowired
     public CsvUploadService(
             JdbcTemplate jdbcTemplate,
             CsvParser csvParser,
-            CsvValidator csvValidator,
-            @Autowired(required = false) PlayerJpaService playerJpaService,
+            @Autowired(required = false) PlayerBulkImporter bulkImporter,
+            @Autowired(required = false) PlayerDatasetReplacer datasetReplacer,
+            RejectReportStore rejectReportStore,
+            ImportCheckpointStore checkpointStore,
+            @Value("${sportstats.import.batch-size:1000}") int batchSize,
+            @Value("${sportstats.import.pipeline.writers:1}") int writers,
+            @Value("${sportstats.import.pipeline.queue-capacity:4}") int queueCapacity,
+            @Value("${sportstats.import.max-errors:-1}") long maxErrors,
             @Autowired(required = false) org.springframework.core.env.Environment environment) {
         this.jdbcTemplate = jdbcTemplate;
         this.csvParser = csvParser;
-        this.csvValidator = csvValidator;
-        this.playerJpaService = playerJpaService;
+        this.bulkImporter = bulkImporter;
+        this.datasetReplacer = datasetReplacer;
+        this.rejectReportStore = rejectReportStore;
+        this.checkpointStore = checkpointStore;
+        this.batchSize = Math.max(1, batchSize);
+        this.writers = Math.max(1, writers);
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.maxErrors = maxErrors;
         
         // Определяем активный профиль
         if (environment != null && environment.getActiveProfiles().length > 0) {
@@ -48,106 +80,193 @@ public class CsvUploadService {
      * @return результат загрузки с статистикой
      */
     public Map<String, Object> uploadCsvFile(MultipartFile file) {
+        return runImport(file.getOriginalFilename(), file.getSize(),
+                handler -> csvParser.streamCsvMultipart(file, handler), new ImportCounters(), false, null);
+    }
+    
+    /**
+     * Заменяет весь набор игроков содержимым CSV файла. Файл загружается в теневую
+     * копию, текущие данные остаются доступны для чтения и подменяются одной операцией
+     * только после успешной загрузки. Отмененная или неудачная замена ничего не меняет
+     * @param file CSV файл с новым набором
+     * @return результат загрузки с статистикой
+     */
+    public Map<String, Object> replaceDataset(MultipartFile file) {
+        return runImport(file.getOriginalFilename(), file.getSize(),
+                handler -> csvParser.streamCsvMultipart(file, handler), new ImportCounters(), true, null);
+    }
+    
+    /**
+     * Заменяет весь набор игроков содержимым CSV файла на диске (фоновая замена)
+     * @see #replaceDataset(MultipartFile)
+     */
+    public Map<String, Object> replaceDataset(Path path, String fileName, ImportCounters counters) throws IOException {
+        return runImport(fileName, Files.size(path), handler -> csvParser.streamFile(path, handler), counters, true, null);
+    }
+    
+    /**
+     * Загружает в базу данных CSV файл, уже сохраненный на диск (фоновая загрузка).
+     * Через counters вызывающий код видит прогресс и может отменить загрузку
+     * @param path файл для загрузки
+     * @param fileName исходное имя файла для журнала
+     * @param counters счетчики, обновляемые по мере загрузки
+     * @return результат загрузки с статистикой
+     */
+    public Map<String, Object> importCsvFile(Path path, String fileName, ImportCounters counters) throws IOException {
+        return runImport(fileName, Files.size(path), handler -> csvParser.streamFile(path, handler), counters, false, null);
+    }
+    
+    /**
+     * Загружает в базу данных CSV из потока, который может еще дописываться
+     * (загрузка по частям): строки пишутся в базу по мере поступления данных
+     * @param in поток с содержимым файла, конец потока - конец файла
+     * @param fileName исходное имя файла для журнала
+     * @param counters счетчики, обновляемые по мере загрузки
+     * @return результат загрузки с статистикой
+     */
+    public Map<String, Object> importCsvStream(InputStream in, String fileName, ImportCounters counters) {
+        return runImport(fileName, -1, handler -> csvParser.streamInput(in, handler), counters, false, null);
+    }
+    
+    /**
+     * Фоновая загрузка или замена набора с контрольной точкой (CsvImportJobService).
+     * Если пачки фиксируются по одной и база переживает перезапуск, файл разбирается
+     * блоками по batchSize записей, после каждой записанной пачки сохраняется позиция
+     * в файле, и прерванная загрузка продолжается с нее без повторного чтения и записи
+     * готовых пачек. Иначе (CSV профиль, замена набора, база в памяти) прерванная
+     * загрузка повторяется с начала сохраненного файла
+     * @param checkpoint контрольная точка с сохраненным файлом загрузки
+     * @param counters счетчики, обновляемые по мере загрузки
+     * @return результат загрузки с статистикой
+     */
+    public Map<String, Object> importCheckpointed(ImportCheckpoint checkpoint, ImportCounters counters)
+            throws IOException {
+        Path path = checkpoint.getSource();
+        long size = Files.size(path);
+        if (checkpoint.isReplace() || bulkImporter == null || !checkpointStore.canResumeFromOffset(bulkImporter)) {
+            return runImport(checkpoint.getFileName(), size, handler -> csvParser.streamFile(path, handler),
+                    counters, checkpoint.isReplace(), null);
+        }
+        
+        long offset = checkpoint.getOffset();
+        long lines = checkpoint.getLines();
+        long playersBefore = checkpoint.playersBefore();
+        if (offset > 0) {
+            System.out.println("Продолжение загрузки " + checkpoint.getFileName() + " со строки " + (lines + 1));
+            checkpoint.restore(counters);
+        }
+        Map<String, Object> result = runImport(checkpoint.getFileName(), size,
+                handler -> (int) (playersBefore + csvParser.streamFileFrom(path, offset, lines, batchSize, handler)),
+                counters, false, checkpoint);
+        if (offset > 0) {
+            result.put("resumedFromLine", lines + 1);
+        }
+        return result;
+    }
+    
+    public String getActiveProfile() {
+        return activeProfile;
+    }
+    
+    /**
+     * @param checkpoint если задана, source разбирает файл блоками (CsvParser.streamFileFrom),
+     *                   каждый блок записывается одной пачкой, и после ее записи сохраняется позиция
+     */
+    private Map<String, Object> runImport(String fileName, long size, CsvSource source, ImportCounters counters,
+                                          boolean replace, ImportCheckpoint checkpoint) {
         Map<String, Object> result = new HashMap<>();
         
-        System.out.println("\n=== ЗАГРУЗКА CSV ФАЙЛА ===");
+        System.out.println(replace ? "\n=== ЗАМЕНА НАБОРА ИЗ CSV ФАЙЛА ===" : "\n=== ЗАГРУЗКА CSV ФАЙЛА ===");
         System.out.println("Профиль: " + activeProfile);
-        System.out.println("Имя файла: " + file.getOriginalFilename());
-        System.out.println("Размер: " + file.getSize() + " байт");
+        System.out.println("Имя файла: " + fileName);
+        System.out.println("Размер: " + (size >= 0 ? size + " байт" : "передается по частям"));
         
-        // Проверяем структуру CSV
-        if (!csvValidator.validateCsvStructure(file)) {
+        // Способ записи зависит от профиля: JdbcBatchImporter, JpaBulkImporter или CsvBulkImporter,
+        // для замены - ShadowTableReplacer или CsvBulkImporter.
+        // Проверяем его до чтения файла, чтобы не парсить файл впустую
+        if (replace ? datasetReplacer == null : bulkImporter == null) {
             result.put("success", false);
-            result.put("message", "CSV файл не соответствует шаблону");
-            result.put("expectedHeaders", List.of("Name", "Team", "Position", "Height(inches)", "Weight(lbs)", "Age"));
+            result.put("message", "Неподдерживаемый профиль: " + activeProfile);
             return result;
         }
+        System.out.println(" Используем " + activeProfile.toUpperCase() + " режим (пакеты по " + batchSize
+                + " строк, потоков записи: " + writers + ")");
+        
+        long start = System.nanoTime();
+        // Отклоненные строки и ошибки записи потоково пишутся в отчет на диске,
+        // если задан каталог отчетов; иначе они только считаются
+        RejectReport rejectReport = rejectReportStore.create();
+        counters.attachRejectReport(rejectReport, maxErrors);
+        PlayerBulkImporter importer = replace ? datasetReplacer.beginReplace() : bulkImporter.begin();
+        boolean finished = false;
+        
+        // Конвейер: файл читается один раз, заголовок проверяется до записи первой строки,
+        // строки разбираются и проверяются (CsvParser, параллельно для больших файлов),
+        // собираются в пачки и через ограниченную очередь уходят потокам записи
+        BatchWriteStage writeStage = new BatchWriteStage(importer, counters, writers, queueCapacity);
+        BatchCollector handler = new BatchCollector(writeStage, counters, batchSize, checkpoint);
         
         try {
-            // Парсим CSV
-            List<Player> players = csvParser.parseCsvMultipart(file);
+            int totalPlayers = source.parse(handler);
+            // Дописываем неполную последнюю пачку и ждем записи всех пачек
+            handler.flush();
+            writeStage.finish();
             
-            if (players.isEmpty()) {
+            // Пустой файл не должен заменить набор пустым: такая загрузка отменяется
+            if (totalPlayers == 0) {
                 result.put("success", false);
                 result.put("message", "CSV файл не содержит данных");
                 return result;
             }
+            importer.finish(counters);
+            finished = true;
             
-            System.out.println("📊 Загружаем " + players.size() + " игроков...");
-            
-            int successCount = 0;
-            int duplicateCount = 0;
-            int errorCount = 0;
-            
-            // Загружаем в зависимости от профиля
-            if ("jpa".equals(activeProfile) && playerJpaService != null) {
-                System.out.println(" Используем JPA режим");
-                for (Player player : players) {
-                    try {
-                        // Проверяем, существует ли уже игрок
-                        if (!jpaPlayerExists(player.getId())) {
-                            playerJpaService.create(player);
-                            successCount++;
-                        } else {
-                            duplicateCount++;
-                        }
-                    } catch (Exception e) {
-                        errorCount++;
-                        System.err.println("   Ошибка при загрузке игрока " + player.getId() + ": " + e.getMessage());
-                    }
-                }
-            } else if ("jdbc".equals(activeProfile)) {
-                System.out.println(" Используем JDBC режим");
-                for (Player player : players) {
-                    try {
-                        // Проверяем, существует ли уже игрок
-                        if (!jdbcPlayerExists(player.getId())) {
-                            String sql = "INSERT INTO players (id, name, team, position, height_inches, weight_lbs, age) " +
-                                       "VALUES (?, ?, ?, ?, ?, ?, ?)";
-                            int updated = jdbcTemplate.update(sql,
-                                player.getId(),
-                                player.getName(),
-                                player.getTeam(),
-                                player.getPosition(),
-                                player.getHeightInches(),
-                                player.getWeightLbs(),
-                                player.getAge()
-                            );
-                            if (updated > 0) {
-                                successCount++;
-                            } else {
-                                errorCount++;
-                            }
-                        } else {
-                            duplicateCount++;
-                        }
-                    } catch (Exception e) {
-                        errorCount++;
-                        System.err.println("   Ошибка при загрузке игрока " + player.getId() + ": " + e.getMessage());
-                    }
-                }
-            } else {
-                result.put("success", false);
-                result.put("message", "Неподдерживаемый профиль: " + activeProfile);
-                return result;
+            System.out.println(" Успешно загружено: " + counters.getImported());
+            System.out.println("! Пропущено (дубликаты): " + counters.getDuplicates());
+            if (counters.getErrors() > 0) {
+                System.out.println("х Ошибок: " + counters.getErrors());
             }
-            
-            System.out.println(" Успешно загружено: " + successCount);
-            System.out.println("! Пропущено (дубликаты): " + duplicateCount);
-            if (errorCount > 0) {
-                System.out.println("х Ошибок: " + errorCount);
+            if (counters.getRejected() > 0) {
+                System.out.println("х Отклонено строк: " + counters.getRejected());
             }
             
             result.put("success", true);
-            result.put("message", "Файл успешно загружен");
+            result.put("message", replace ? "Набор игроков заменен" : "Файл успешно загружен");
+            if (replace) {
+                result.put("replaced", true);
+            }
             result.put("profile", activeProfile);
-            result.put("totalPlayers", players.size());
-            result.put("imported", successCount);
-            result.put("duplicates", duplicateCount);
-            result.put("errors", errorCount);
+            result.put("totalPlayers", totalPlayers);
+            putCounters(result, counters);
+            result.put("stages", counters.stagesToMap(System.nanoTime() - start));
             
             return result;
             
+        } catch (ErrorLimitExceededException e) {
+            // Как и при отмене, уже записанные пачки остаются, а незаписанные отбрасываются
+            System.out.println("х " + e.getMessage() + ", загрузка прервана после " + counters.getRowsRead() + " строк");
+            result.put("success", false);
+            result.put("aborted", true);
+            result.put("message", e.getMessage());
+            result.put("profile", activeProfile);
+            putCounters(result, counters);
+            return result;
+        } catch (CancellationException e) {
+            // Уже записанные пачки остаются в базе, незаписанный хвост отбрасывается.
+            // В CSV профиле и при замене набора пачки не публикуются до конца загрузки,
+            // поэтому не остается ничего
+            System.out.println("! Загрузка отменена после " + counters.getRowsRead() + " строк");
+            result.put("success", false);
+            result.put("cancelled", true);
+            result.put("message", "Загрузка отменена");
+            result.put("profile", activeProfile);
+            putCounters(result, counters);
+            return result;
+        } catch (CsvStructureException e) {
+            result.put("success", false);
+            result.put("message", e.getMessage());
+            result.put("expectedHeaders", List.of("Name", "Team", "Position", "Height(inches)", "Weight(lbs)", "Age"));
+            return result;
         } catch (Exception e) {
             System.err.println("х Ошибка при обработке файла: " + e.getMessage());
             e.printStackTrace();
@@ -155,35 +274,121 @@ public class CsvUploadService {
             result.put("success", false);
             result.put("message", "Ошибка при обработке файла: " + e.getMessage());
             return result;
+        } finally {
+            writeStage.abort();
+            if (!finished) {
+                importer.abort();
+            }
+            if (rejectReport != null) {
+                rejectReport.close();
+                if (rejectReport.toMap() != null) {
+                    System.out.println("! Отчет об отклоненных строках: " + rejectReport.getPath());
+                    result.put("rejectReport", rejectReport.toMap());
+                }
+            }
         }
     }
     
     /**
-     * Очищает таблицу players
-     * @return количество удаленных записей
+     * Собирает прочитанные строки в пачки по batchSize и передает их стадии записи.
+     * С контрольной точкой пачка - ровно один блок разбора, чтобы у каждой пачки
+     * была позиция в файле, с которой можно продолжить загрузку
      */
-    public int clearDatabase() {
-        String sql = "DELETE FROM players";
-        int deleted = jdbcTemplate.update(sql);
-        System.out.println(" Удалено " + deleted + " записей из базы данных");
-        return deleted;
+    private static class BatchCollector implements CsvRowHandler {
+        
+        private final BatchWriteStage writeStage;
+        private final ImportCounters counters;
+        private final int batchSize;
+        private final ImportCheckpoint checkpoint;
+        private List<Player> chunk;
+        
+        BatchCollector(BatchWriteStage writeStage, ImportCounters counters, int batchSize,
+                       ImportCheckpoint checkpoint) {
+            this.writeStage = writeStage;
+            this.counters = counters;
+            this.batchSize = batchSize;
+            this.checkpoint = checkpoint;
+            this.chunk = new ArrayList<>(batchSize);
+        }
+        
+        @Override
+        public void accept(Player player) {
+            checkCancelled(counters);
+            counters.addRowsRead(1);
+            chunk.add(player);
+            if (checkpoint == null && chunk.size() >= batchSize) {
+                flush();
+            }
+        }
+        
+        @Override
+        public void onBlockEnd(long offset, long lines) {
+            if (checkpoint == null) {
+                return;
+            }
+            // Пачка отправляется, даже если все строки блока отклонены: позиция все равно сдвигается
+            long seq = checkpoint.batchSubmitted(offset, lines, counters.getRowsRead(), counters.getRejected());
+            writeStage.submit(chunk, batch -> checkpoint.batchWritten(seq, batch));
+            chunk = new ArrayList<>(batchSize);
+        }
+        
+        @Override
+        public void onReject(long lineNumber, String[] record, String reason) {
+            checkCancelled(counters);
+            counters.addRowsRead(1);
+            counters.reject(lineNumber, record, reason);
+            // Все отклоненные строки есть в отчете, в журнал попадают только первые
+            if (counters.getRejected() <= LOGGED_REJECTS) {
+                System.err.println("   Строка " + lineNumber + " отклонена: " + reason);
+            }
+        }
+        
+        void flush() {
+            if (!chunk.isEmpty()) {
+                writeStage.submit(chunk);
+                chunk = new ArrayList<>(batchSize);
+            }
+        }
     }
     
-    private boolean jdbcPlayerExists(String id) {
-        try {
-            String sql = "SELECT COUNT(*) FROM players WHERE id = ?";
-            Integer count = jdbcTemplate.queryForObject(sql, Integer.class, id);
-            return count != null && count > 0;
-        } catch (Exception e) {
-            return false;
+    private static void checkCancelled(ImportCounters counters) {
+        if (counters.isCancelled()) {
+            throw new CancellationException("Загрузка отменена");
+        }
+        if (counters.isErrorLimitExceeded()) {
+            throw new ErrorLimitExceededException(counters.getMaxErrors());
         }
     }
     
-    private boolean jpaPlayerExists(String id) {
-        try {
-            return playerJpaService.getById(id) != null;
-        } catch (Exception e) {
-            return false;
+    private static void putCounters(Map<String, Object> result, ImportCounters counters) {
+        result.put("imported", counters.getImported());
+        result.put("duplicates", counters.getDuplicates());
+        result.put("errors", counters.getErrors());
+        result.put("rejected", counters.getRejected());
+    }
+    
+    /**
+     * Источник строк для загрузки: загруженный файл или файл на диске
+     */
+    @FunctionalInterface
+    private interface CsvSource {
+        int parse(CsvRowHandler handler) throws IOException;
+    }
+    
+    /**
+     * Очищает набор игроков. В профилях с заменой набора это подмена пустой
+     * теневой копией: без построчного DELETE, читатели видят либо все, либо ничего
+     * @return количество удаленных записей
+     */
+    public int clearDatabase() {
+        if (datasetReplacer != null) {
+            int deleted = datasetReplacer.clear();
+            System.out.println(" Удалено " + deleted + " записей");
+            return deleted;
         }
+        String sql = "DELETE FROM players";
+        int deleted = jdbcTemplate.update(sql);
+        System.out.println(" Удалено " + deleted + " записей из базы данных");
+        return deleted;
     }
 }
\ No newline at end of file
@@ -0,0 +1,14 @@
+package com.example.sportstats.service;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Загрузка прервана, потому что отклоненных и ошибочных строк больше допустимого.
+ * Наследует CancellationException, чтобы проходить через парсер так же, как отмена
+ */
+class ErrorLimitExceededException extends CancellationException {
+    
+    ErrorLimitExceededException(long maxErrors) {
+        super("Превышен порог ошибок: больше " + maxErrors + " отклоненных или ошибочных строк");
+    }
+}
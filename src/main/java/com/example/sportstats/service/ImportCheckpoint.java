@@ -0,0 +1,177 @@
+package com.example.sportstats.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Контрольная точка фоновой загрузки. Загружаемый файл лежит рядом с ней в каталоге
+ * контрольных точек, а после каждой записанной пачки на диск атомарно (запись во
+ * временный файл, fsync, переименование) записывается позиция в файле, до которой
+ * все строки уже в базе, и счетчики на этот момент. Если приложение остановилось
+ * посреди загрузки, при следующем запуске она продолжается с этой позиции.
+ * <p>
+ * Пачки могут записываться несколькими потоками не по порядку, поэтому позиция
+ * сдвигается только за непрерывный префикс записанных пачек, а счетчики складываются
+ * из итогов пачек этого префикса: пачки, записанные дальше позиции, после перезапуска
+ * записываются и считаются заново
+ */
+public class ImportCheckpoint {
+    
+    private final String id;
+    private final String fileName;
+    private final boolean replace;
+    private final Path source;
+    private final Path file;
+    
+    // Сохраненная позиция: байт в файле, физических строк до него и счетчики
+    private long offset;
+    private long lines;
+    private long rowsRead;
+    private long rejected;
+    private long imported;
+    private long duplicates;
+    private long errors;
+    
+    // Пачки, поставленные в очередь: номер -> позиция сразу за пачкой {offset, lines, rowsRead, rejected}
+    private final Map<Long, long[]> positions = new HashMap<>();
+    // Записанные пачки за пределами префикса: номер -> {вставлено, дубликатов, ошибок}
+    private final Map<Long, long[]> written = new HashMap<>();
+    private long nextSubmitted;
+    private long nextWritten;
+    
+    ImportCheckpoint(String id, String fileName, boolean replace, Path source, Path file) {
+        this.id = id;
+        this.fileName = fileName;
+        this.replace = replace;
+        this.source = source;
+        this.file = file;
+    }
+    
+    public String getId() { return id; }
+    public String getFileName() { return fileName; }
+    public boolean isReplace() { return replace; }
+    public Path getSource() { return source; }
+    public synchronized long getOffset() { return offset; }
+    public synchronized long getLines() { return lines; }
+    
+    /**
+     * Переносит счетчики сохраненной позиции в счетчики продолжения загрузки
+     */
+    synchronized void restore(ImportCounters counters) {
+        counters.addRowsRead(rowsRead);
+        counters.addRejected(rejected);
+        counters.addImported(imported);
+        counters.addDuplicates(duplicates);
+        counters.addErrors(errors);
+    }
+    
+    /**
+     * Игроков в файле до сохраненной позиции
+     */
+    synchronized long playersBefore() {
+        return rowsRead - rejected;
+    }
+    
+    /**
+     * Регистрирует пачку, которая заканчивается на позиции offset
+     * @return номер пачки для {@link #batchWritten(long, ImportCounters)}
+     */
+    synchronized long batchSubmitted(long offset, long lines, long rowsRead, long rejected) {
+        long seq = nextSubmitted++;
+        positions.put(seq, new long[] {offset, lines, rowsRead, rejected});
+        return seq;
+    }
+    
+    /**
+     * Пачка записана. Если вместе с ней записан непрерывный префикс пачек,
+     * позиция сдвигается за последнюю из них и сохраняется на диск
+     * @param batch счетчики только этой пачки
+     */
+    synchronized void batchWritten(long seq, ImportCounters batch) {
+        written.put(seq, new long[] {batch.getImported(), batch.getDuplicates(), batch.getErrors()});
+        long[] last = null;
+        long[] counts;
+        while ((counts = written.remove(nextWritten)) != null) {
+            last = positions.remove(nextWritten);
+            imported += counts[0];
+            duplicates += counts[1];
+            errors += counts[2];
+            nextWritten++;
+        }
+        if (last == null) {
+            return;
+        }
+        offset = last[0];
+        lines = last[1];
+        rowsRead = last[2];
+        rejected = last[3];
+        try {
+            save();
+        } catch (UncheckedIOException e) {
+            // Загрузка продолжается; после сбоя она продолжится с предыдущей сохраненной позиции
+            System.err.println("х " + e.getMessage() + ": " + e.getCause().getMessage());
+        }
+    }
+    
+    synchronized void save() {
+        Properties properties = new Properties();
+        properties.setProperty("fileName", fileName);
+        properties.setProperty("replace", String.valueOf(replace));
+        properties.setProperty("offset", String.valueOf(offset));
+        properties.setProperty("lines", String.valueOf(lines));
+        properties.setProperty("rowsRead", String.valueOf(rowsRead));
+        properties.setProperty("rejected", String.valueOf(rejected));
+        properties.setProperty("imported", String.valueOf(imported));
+        properties.setProperty("duplicates", String.valueOf(duplicates));
+        properties.setProperty("errors", String.valueOf(errors));
+        
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream out = Channels.newOutputStream(channel);
+            properties.store(out, "Контрольная точка загрузки " + id);
+            out.flush();
+            channel.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось сохранить контрольную точку " + file, e);
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось сохранить контрольную точку " + file, e);
+        }
+    }
+    
+    static ImportCheckpoint load(String id, Path source, Path file) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            properties.load(in);
+        }
+        ImportCheckpoint checkpoint = new ImportCheckpoint(id, properties.getProperty("fileName"),
+                Boolean.parseBoolean(properties.getProperty("replace")), source, file);
+        checkpoint.offset = Long.parseLong(properties.getProperty("offset"));
+        checkpoint.lines = Long.parseLong(properties.getProperty("lines"));
+        checkpoint.rowsRead = Long.parseLong(properties.getProperty("rowsRead"));
+        checkpoint.rejected = Long.parseLong(properties.getProperty("rejected"));
+        checkpoint.imported = Long.parseLong(properties.getProperty("imported"));
+        checkpoint.duplicates = Long.parseLong(properties.getProperty("duplicates"));
+        checkpoint.errors = Long.parseLong(properties.getProperty("errors"));
+        return checkpoint;
+    }
+    
+    void delete() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(source);
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.sportstats.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Каталог контрольных точек фоновых загрузок: для каждой незавершенной загрузки
+ * в нем лежат сам файл (id.csv) и его контрольная точка (id.checkpoint)
+ */
+@Component
+public class ImportCheckpointStore {
+    
+    private static final String SOURCE_SUFFIX = ".csv";
+    private static final String CHECKPOINT_SUFFIX = ".checkpoint";
+    
+    private final Path dir;
+    private final boolean databasePersistent;
+    
+    /**
+     * @param dir каталог контрольных точек; пустая строка - загрузки не продолжаются после перезапуска
+     * @param datasourceUrl база в памяти не переживает перезапуск, и записанные в нее пачки
+     *                      теряются вместе с ней: такая загрузка продолжается с начала файла
+     */
+    public ImportCheckpointStore(
+            @Value("${sportstats.import.checkpoint.dir:}") String dir,
+            @Value("${spring.datasource.url:}") String datasourceUrl) {
+        this.dir = dir.isBlank() ? null : Path.of(dir).toAbsolutePath();
+        this.databasePersistent = !datasourceUrl.startsWith("jdbc:h2:mem:");
+    }
+    
+    public boolean isEnabled() {
+        return dir != null;
+    }
+    
+    /**
+     * Можно ли продолжать загрузку с позиции: пачки importer фиксируются по одной
+     * и переживают перезапуск вместе с базой
+     */
+    boolean canResumeFromOffset(PlayerBulkImporter importer) {
+        return importer.commitsEachChunk() && databasePersistent;
+    }
+    
+    /**
+     * Новая контрольная точка с позицией в начале файла; сам файл нужно записать в getSource()
+     */
+    public ImportCheckpoint create(String fileName, boolean replace) throws IOException {
+        Files.createDirectories(dir);
+        String id = UUID.randomUUID().toString();
+        return new ImportCheckpoint(id, fileName != null ? fileName : "upload.csv", replace,
+                dir.resolve(id + SOURCE_SUFFIX), dir.resolve(id + CHECKPOINT_SUFFIX));
+    }
+    
+    /**
+     * Прерванные загрузки. Файл без контрольной точки, контрольная точка без файла
+     * (загрузка завершилась, но их не успели удалить) и недописанные временные файлы удаляются
+     */
+    public List<ImportCheckpoint> pending() {
+        List<ImportCheckpoint> checkpoints = new ArrayList<>();
+        if (dir == null || !Files.isDirectory(dir)) {
+            return checkpoints;
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path path : files.toList()) {
+                String name = path.getFileName().toString();
+                if (name.endsWith(SOURCE_SUFFIX)) {
+                    String id = name.substring(0, name.length() - SOURCE_SUFFIX.length());
+                    Path checkpointFile = dir.resolve(id + CHECKPOINT_SUFFIX);
+                    if (!Files.exists(checkpointFile)) {
+                        Files.deleteIfExists(path);
+                        continue;
+                    }
+                    try {
+                        checkpoints.add(ImportCheckpoint.load(id, path, checkpointFile));
+                    } catch (IOException | RuntimeException e) {
+                        System.err.println("х Контрольная точка " + checkpointFile + " повреждена: " + e.getMessage());
+                    }
+                } else if (name.endsWith(".tmp") || name.endsWith(CHECKPOINT_SUFFIX)
+                        && !Files.exists(dir.resolve(name.replace(CHECKPOINT_SUFFIX, SOURCE_SUFFIX)))) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("х Не удалось прочитать каталог контрольных точек " + dir + ": " + e.getMessage());
+        }
+        return checkpoints;
+    }
+    
+    public void delete(ImportCheckpoint checkpoint) {
+        try {
+            checkpoint.delete();
+        } catch (IOException e) {
+            System.err.println("х Не удалось удалить контрольную точку " + checkpoint.getId() + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.sportstats.service;
+
+import com.example.sportstats.model.Player;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Счетчики результатов загрузки CSV файла и флаг отмены.
+ * Обновляются потоком загрузки и читаются другими потоками (прогресс фоновой задачи)
+ */
+public class ImportCounters {
+    
+    private final AtomicLong rowsRead = new AtomicLong();
+    private final AtomicLong imported = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private volatile boolean cancelled;
+    
+    // Стадия записи конвейера загрузки (BatchWriteStage)
+    private final AtomicLong batchesWritten = new AtomicLong();
+    private final AtomicLong rowsWritten = new AtomicLong();
+    private final AtomicLong writeNanos = new AtomicLong();
+    private final AtomicLong writeWaitNanos = new AtomicLong();
+    private volatile int queuedBatches;
+    private volatile int writers;
+    
+    // Отчет об отклоненных строках и порог ошибок, после которого загрузка прерывается
+    private volatile RejectReport rejectReport;
+    private volatile long maxErrors = -1;
+    
+    public void addRowsRead(long count) { rowsRead.addAndGet(count); }
+    public void addImported(long count) { imported.addAndGet(count); }
+    public void addDuplicates(long count) { duplicates.addAndGet(count); }
+    public void addErrors(long count) { errors.addAndGet(count); }
+    public void addRejected(long count) { rejected.addAndGet(count); }
+    
+    public long getRowsRead() { return rowsRead.get(); }
+    public long getImported() { return imported.get(); }
+    public long getDuplicates() { return duplicates.get(); }
+    public long getErrors() { return errors.get(); }
+    public long getRejected() { return rejected.get(); }
+    public RejectReport getRejectReport() { return rejectReport; }
+    public long getMaxErrors() { return maxErrors; }
+    
+    /**
+     * @param maxErrors сколько отклоненных и ошибочных строк допускается, отрицательное - без ограничения
+     */
+    void attachRejectReport(RejectReport report, long maxErrors) {
+        this.rejectReport = report;
+        this.maxErrors = maxErrors;
+    }
+    
+    /**
+     * Строка, отклоненная при разборе: считается и попадает в отчет
+     */
+    public void reject(long lineNumber, String[] record, String reason) {
+        rejected.incrementAndGet();
+        RejectReport report = rejectReport;
+        if (report != null) {
+            report.reject(lineNumber, record, reason);
+        }
+    }
+    
+    /**
+     * Игрок, которого не удалось записать в базу: считается и попадает в отчет
+     */
+    public void addError(Player player, String reason) {
+        errors.incrementAndGet();
+        RejectReport report = rejectReport;
+        if (report != null) {
+            report.error(player, reason);
+        }
+    }
+    
+    /**
+     * Счетчики одной пачки: ошибки попадают в тот же отчет, а итоги пачки
+     * переносятся в общие счетчики через {@link #addBatch(ImportCounters)}
+     */
+    ImportCounters forBatch() {
+        ImportCounters batch = new ImportCounters();
+        batch.rejectReport = rejectReport;
+        return batch;
+    }
+    
+    void addBatch(ImportCounters batch) {
+        imported.addAndGet(batch.getImported());
+        duplicates.addAndGet(batch.getDuplicates());
+        errors.addAndGet(batch.getErrors());
+    }
+    
+    public boolean isErrorLimitExceeded() {
+        return maxErrors >= 0 && rejected.get() + errors.get() > maxErrors;
+    }
+    
+    void addBatchWritten(long rows, long nanos) {
+        batchesWritten.incrementAndGet();
+        rowsWritten.addAndGet(rows);
+        writeNanos.addAndGet(nanos);
+    }
+    void addWriteWaitNanos(long nanos) { writeWaitNanos.addAndGet(nanos); }
+    void setQueuedBatches(int count) { queuedBatches = count; }
+    void setWriters(int count) { writers = count; }
+    
+    /**
+     * Пропускная способность стадий загрузки: разбор (чтение и проверка строк)
+     * и запись пачек. waitingForWritersMs - сколько разбор простоял на полной очереди,
+     * busyMs - суммарное время записи по всем потокам записи
+     * @param elapsedNanos время загрузки на данный момент
+     */
+    public Map<String, Object> stagesToMap(long elapsedNanos) {
+        Map<String, Object> parse = new LinkedHashMap<>();
+        parse.put("rows", getRowsRead());
+        parse.put("rowsPerSecond", perSecond(getRowsRead(), elapsedNanos));
+        parse.put("waitingForWritersMs", writeWaitNanos.get() / 1_000_000);
+        
+        Map<String, Object> write = new LinkedHashMap<>();
+        write.put("writers", writers);
+        write.put("batches", batchesWritten.get());
+        write.put("rows", rowsWritten.get());
+        write.put("rowsPerSecond", perSecond(rowsWritten.get(), elapsedNanos));
+        write.put("busyMs", writeNanos.get() / 1_000_000);
+        write.put("queuedBatches", queuedBatches);
+        
+        Map<String, Object> stages = new LinkedHashMap<>();
+        stages.put("parse", parse);
+        stages.put("write", write);
+        return stages;
+    }
+    
+    private static long perSecond(long rows, long nanos) {
+        return nanos > 0 ? Math.round(rows * 1e9 / nanos) : 0;
+    }
+    
+    // Отмена проверяется загрузкой на каждой строке
+    public void cancel() { cancelled = true; }
+    public boolean isCancelled() { return cancelled; }
+}
@@ -0,0 +1,150 @@
+package com.example.sportstats.service;
+
+import com.example.sportstats.model.Player;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Пакетная запись игроков через JdbcTemplate.batchUpdate.
+ * Каждая пачка - одна транзакция. Дубликаты отсекает сама база: строки пачки
+ * передаются как VALUES в INSERT ... SELECT с анти-соединением (NOT EXISTS) по players,
+ * так что нет ни запроса на каждую строку, ни отдельного поиска существующих id
+ */
+@Component
+@Profile("jdbc")
+public class JdbcBatchImporter implements PlayerBulkImporter {
+    
+    // Строк в одном INSERT: короткий оператор быстрее разбирается и кэшируется базой,
+    // а пачка все равно уходит одним JDBC пакетом
+    private static final int ROWS_PER_STATEMENT = 50;
+    
+    private static final String VALUES_ROW =
+            "(CAST(? AS VARCHAR), CAST(? AS VARCHAR), CAST(? AS VARCHAR), CAST(? AS VARCHAR), " +
+            "CAST(? AS INTEGER), CAST(? AS INTEGER), CAST(? AS DOUBLE))";
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<Integer, String> insertSqlCache = new ConcurrentHashMap<>();
+    
+    public JdbcBatchImporter(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+    
+    @Override
+    public boolean commitsEachChunk() {
+        return true;
+    }
+    
+    @Override
+    public void importChunk(List<Player> chunk, ImportCounters counters) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try {
+            // Счетчики обновляются только после фиксации транзакции
+            int[] result = transactionTemplate.execute(status -> insertNew(chunk));
+            counters.addImported(result[0]);
+            counters.addDuplicates(result[1]);
+        } catch (DataAccessException e) {
+            // Пачка откатилась целиком - повторяем построчно, чтобы найти ошибочные строки
+            System.err.println("   Пакетная запись не удалась (" + e.getMessage() + "), повтор по одной строке");
+            importRowByRow(chunk, counters);
+        }
+    }
+    
+    /**
+     * @return {вставлено, дубликатов}
+     */
+    private int[] insertNew(List<Player> chunk) {
+        // Повторы внутри пачки отбрасываются здесь, повторы с базой - анти-соединением в SQL
+        List<Player> unique = new ArrayList<>(chunk.size());
+        Set<String> seen = new HashSet<>();
+        for (Player player : chunk) {
+            if (seen.add(player.getId())) {
+                unique.add(player);
+            }
+        }
+        
+        int fullRows = unique.size() - unique.size() % ROWS_PER_STATEMENT;
+        List<List<Player>> slices = new ArrayList<>(fullRows / ROWS_PER_STATEMENT);
+        for (int from = 0; from < fullRows; from += ROWS_PER_STATEMENT) {
+            slices.add(unique.subList(from, from + ROWS_PER_STATEMENT));
+        }
+        
+        int inserted = 0;
+        if (!slices.isEmpty()) {
+            int[][] counts = jdbcTemplate.batchUpdate(
+                    insertSql(ROWS_PER_STATEMENT), slices, slices.size(), this::bindRows);
+            for (int[] batch : counts) {
+                for (int count : batch) {
+                    inserted += count;
+                }
+            }
+        }
+        if (fullRows < unique.size()) {
+            List<Player> tail = unique.subList(fullRows, unique.size());
+            inserted += jdbcTemplate.update(insertSql(tail.size()), ps -> bindRows(ps, tail));
+        }
+        
+        return new int[]{inserted, chunk.size() - inserted};
+    }
+    
+    private void bindRows(PreparedStatement ps, List<Player> rows) throws SQLException {
+        int index = 1;
+        for (Player player : rows) {
+            ps.setString(index++, player.getId());
+            ps.setString(index++, player.getName());
+            ps.setString(index++, player.getTeam());
+            ps.setString(index++, player.getPosition());
+            ps.setObject(index++, player.getHeightInches(), Types.INTEGER);
+            ps.setObject(index++, player.getWeightLbs(), Types.INTEGER);
+            ps.setObject(index++, player.getAge(), Types.DOUBLE);
+        }
+    }
+    
+    /**
+     * INSERT ... SELECT FROM (VALUES ...) WHERE NOT EXISTS на заданное число строк.
+     * Текст оператора зависит только от числа строк, поэтому кэшируется
+     */
+    private String insertSql(int rows) {
+        return insertSqlCache.computeIfAbsent(rows, n -> {
+            StringBuilder sql = new StringBuilder(
+                    "INSERT INTO players (id, name, team, position, height_inches, weight_lbs, age) " +
+                    "SELECT v.id, v.name, v.team, v.position, v.height_inches, v.weight_lbs, v.age FROM (VALUES ");
+            for (int i = 0; i < n; i++) {
+                sql.append(i == 0 ? "" : ", ").append(VALUES_ROW);
+            }
+            return sql.append(") AS v(id, name, team, position, height_inches, weight_lbs, age) ")
+                    .append("WHERE NOT EXISTS (SELECT 1 FROM players p WHERE p.id = v.id)")
+                    .toString();
+        });
+    }
+    
+    private void importRowByRow(List<Player> chunk, ImportCounters counters) {
+        for (Player player : chunk) {
+            try {
+                int[] result = transactionTemplate.execute(status -> insertNew(List.of(player)));
+                counters.addImported(result[0]);
+                counters.addDuplicates(result[1]);
+            } catch (DataAccessException e) {
+                counters.addError(player, e.getMessage());
+                System.err.println("   Ошибка при загрузке игрока " + player.getId() + ": " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.sportstats.service;
+
+import com.example.sportstats.model.Player;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Пакетная запись игроков через JPA в обход PlayerJpaService.create.
+ * На пачку - одна транзакция, один запрос на поиск дубликатов и
+ * persist без предварительного SELECT. Hibernate собирает INSERT в JDBC пакеты
+ * (hibernate.jdbc.batch_size), а flush/clear после каждой пачки не дает
+ * контексту персистентности расти, так что память не зависит от размера файла
+ */
+@Component
+@Profile("jpa")
+public class JpaBulkImporter implements PlayerBulkImporter {
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    private final TransactionTemplate transactionTemplate;
+    
+    public JpaBulkImporter(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+    
+    @Override
+    public boolean commitsEachChunk() {
+        return true;
+    }
+    
+    @Override
+    public void importChunk(List<Player> chunk, ImportCounters counters) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try {
+            // Счетчики обновляются только после фиксации транзакции
+            int[] result = transactionTemplate.execute(status -> persistNew(chunk));
+            counters.addImported(result[0]);
+            counters.addDuplicates(result[1]);
+        } catch (RuntimeException e) {
+            // Пачка откатилась целиком - повторяем построчно, чтобы найти ошибочные строки
+            System.err.println("   Пакетная запись не удалась (" + e.getMessage() + "), повтор по одной строке");
+            importRowByRow(chunk, counters);
+        }
+    }
+    
+    /**
+     * @return {вставлено, дубликатов}
+     */
+    private int[] persistNew(List<Player> chunk) {
+        Set<String> existing = findExistingIds(chunk);
+        
+        int inserted = 0;
+        Set<String> seen = new HashSet<>();
+        for (Player player : chunk) {
+            // Дубликат либо уже в базе, либо встречался раньше в этой же пачке
+            if (!existing.contains(player.getId()) && seen.add(player.getId())) {
+                // persist, а не save: у игрока уже есть id, и save выполнил бы merge с SELECT
+                entityManager.persist(player);
+                inserted++;
+            }
+        }
+        
+        entityManager.flush();
+        entityManager.clear();
+        
+        return new int[]{inserted, chunk.size() - inserted};
+    }
+    
+    private Set<String> findExistingIds(List<Player> chunk) {
+        List<String> ids = new ArrayList<>(chunk.size());
+        chunk.forEach(p -> ids.add(p.getId()));
+        return new HashSet<>(entityManager
+                .createQuery("SELECT p.id FROM Player p WHERE p.id IN :ids", String.class)
+                .setParameter("ids", ids)
+                .getResultList());
+    }
+    
+    private void importRowByRow(List<Player> chunk, ImportCounters counters) {
+        for (Player player : chunk) {
+            try {
+                int[] result = transactionTemplate.execute(status -> persistNew(List.of(player)));
+                counters.addImported(result[0]);
+                counters.addDuplicates(result[1]);
+            } catch (RuntimeException e) {
+                counters.addError(player, e.getMessage());
+                System.err.println("   Ошибка при загрузке игрока " + player.getId() + ": " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.sportstats.service;
+
+import com.example.sportstats.model.Player;
+
+import java.util.List;
+
+/**
+ * Запись пачки игроков, прочитанных из CSV файла
+ */
+@FunctionalInterface
+public interface PlayerBulkImporter {
+    
+    /**
+     * Записывает пачку игроков и обновляет счетчики. Уже существующие игроки
+     * считаются дубликатами и не перезаписываются
+     */
+    void importChunk(List<Player> chunk, ImportCounters counters);
+    
+    /**
+     * Начинает загрузку одного файла. JDBC и JPA фиксируют каждую пачку сразу,
+     * поэтому по умолчанию возвращается сам импортер; реализация, которая копит
+     * пачки до конца загрузки, возвращает отдельный объект на каждую загрузку
+     */
+    default PlayerBulkImporter begin() {
+        return this;
+    }
+    
+    /**
+     * true, если каждая пачка фиксируется в importChunk сразу: после сбоя загрузку
+     * можно продолжить с первой незаписанной пачки. Реализация, которая публикует
+     * загрузку целиком в finish, возвращает false - такая загрузка повторяется с начала
+     */
+    default boolean commitsEachChunk() {
+        return false;
+    }
+    
+    /**
+     * Завершает загрузку, начатую {@link #begin()}
+     */
+    default void finish(ImportCounters counters) {
+    }
+    
+    /**
+     * Отменяет загрузку, начатую {@link #begin()}: вызывается вместо finish,
+     * если загрузка отменена или прервана ошибкой
+     */
+    default void abort() {
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.sportstats.service;
+
+/**
+ * Замена всего набора игроков без простоя: новый набор загружается в теневую
+ * копию (таблицу или хранилище в памяти), которая затем одной операцией
+ * подменяет текущие данные. Читатели видят либо старый набор, либо новый целиком
+ */
+public interface PlayerDatasetReplacer {
+    
+    /**
+     * Начинает загрузку в новую пустую теневую копию. finish подменяет ею текущие
+     * данные, abort удаляет ее. Дубликатами считаются только повторы внутри файла
+     */
+    PlayerBulkImporter beginReplace();
+    
+    /**
+     * Заменяет текущие данные пустым набором
+     * @return сколько игроков было удалено
+     */
+    int clear();
+}
@@ -2,6 +2,8 @@ package com.example.sportstats.service;
 
 import com.example.sportstats.model.Player;
 import com.example.sportstats.repository.CommonRepository;
+import com.example.sportstats.repository.PlayerQueries;
+import com.example.sportstats.repository.PlayerQueries.Metric;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Profile;
 import org.springframework.http.HttpStatus;
@@ -16,17 +18,26 @@ import java.util.stream.Collectors;
 public class PlayerService {
     
     protected CommonRepository<Player> repository;
+    // Выборки и агрегаты самого хранилища (CSV профиль: по колонкам, без копии всех игроков);
+    // null - считаем по findAll
+    private final PlayerQueries queries;
     
     @Autowired
     public PlayerService(CommonRepository<Player> repository) {
         this.repository = repository;
+        this.queries = repository instanceof PlayerQueries q ? q : null;
     }
     
     // ========== БАЗОВЫЕ CRUD ==========
     
     public List<Player> getAll() {
+        Iterable<Player> all = repository.findAll();
+        if (all instanceof List<Player> list) {
+            // CSV профиль отдает представление, которое строит игроков по мере обхода
+            return list;
+        }
         List<Player> result = new ArrayList<>();
-        repository.findAll().forEach(result::add);
+        all.forEach(result::add);
         return result;
     }
     
@@ -65,18 +76,27 @@ public class PlayerService {
     // ========== ФИЛЬТРАЦИЯ ==========
     
     public List<Player> getPlayersByTeam(String team) {
+        if (queries != null) {
+            return queries.findByTeam(team);
+        }
         return getAll().stream()
                 .filter(p -> team.equals(p.getTeam()))
                 .collect(Collectors.toList());
     }
     
     public List<Player> getPlayersByPosition(String position) {
+        if (queries != null) {
+            return queries.findByPosition(position);
+        }
         return getAll().stream()
                 .filter(p -> position.equals(p.getPosition()))
                 .collect(Collectors.toList());
     }
     
     public List<Player> getPlayersByAgeRange(Double minAge, Double maxAge) {
+        if (queries != null) {
+            return queries.findInRange(Metric.AGE, minAge, maxAge);
+        }
         return getAll().stream()
                 .filter(p -> p.getAge() != null)
                 .filter(p -> p.getAge() >= minAge && p.getAge() <= maxAge)
@@ -85,24 +105,36 @@ public class PlayerService {
     
     // Новые методы фильтрации
     public List<Player> getPlayersByMinHeight(Integer minHeight) {
+        if (queries != null) {
+            return queries.findInRange(Metric.HEIGHT, minHeight, Double.POSITIVE_INFINITY);
+        }
         return getAll().stream()
                 .filter(p -> p.getHeightInches() != null && p.getHeightInches() >= minHeight)
                 .collect(Collectors.toList());
     }
     
     public List<Player> getPlayersByMinWeight(Integer minWeight) {
+        if (queries != null) {
+            return queries.findInRange(Metric.WEIGHT, minWeight, Double.POSITIVE_INFINITY);
+        }
         return getAll().stream()
                 .filter(p -> p.getWeightLbs() != null && p.getWeightLbs() >= minWeight)
                 .collect(Collectors.toList());
     }
     
     public List<Player> getPlayersByTeamAndPosition(String team, String position) {
+        if (queries != null) {
+            return queries.findByTeamAndPosition(team, position);
+        }
         return getAll().stream()
                 .filter(p -> team.equals(p.getTeam()) && position.equals(p.getPosition()))
                 .collect(Collectors.toList());
     }
     
     public List<Player> searchPlayersByName(String name) {
+        if (queries != null) {
+            return queries.findByNameContaining(name);
+        }
         return getAll().stream()
                 .filter(p -> p.getName() != null && p.getName().toLowerCase().contains(name.toLowerCase()))
                 .collect(Collectors.toList());
@@ -111,6 +143,9 @@ public class PlayerService {
     // ========== СТАТИСТИКА ==========
     
     public Double getAverageAge() {
+        if (queries != null) {
+            return queries.average(Metric.AGE).orElse(0.0);
+        }
         return getAll().stream()
                 .filter(p -> p.getAge() != null)
                 .mapToDouble(Player::getAge)
@@ -119,6 +154,9 @@ public class PlayerService {
     }
     
     public Double getAverageHeight() {
+        if (queries != null) {
+            return queries.average(Metric.HEIGHT).orElse(0.0);
+        }
         return getAll().stream()
                 .filter(p -> p.getHeightInches() != null)
                 .mapToInt(Player::getHeightInches)
@@ -127,6 +165,9 @@ public class PlayerService {
     }
     
     public Double getAverageWeight() {
+        if (queries != null) {
+            return queries.average(Metric.WEIGHT).orElse(0.0);
+        }
         return getAll().stream()
                 .filter(p -> p.getWeightLbs() != null)
                 .mapToInt(Player::getWeightLbs)
@@ -135,17 +176,28 @@ public class PlayerService {
     }
     
     public Map<String, Long> getPlayersCountByTeam() {
+        if (queries != null) {
+            return queries.countByTeam();
+        }
         return getAll().stream()
                 .collect(Collectors.groupingBy(Player::getTeam, Collectors.counting()));
     }
     
     public Map<String, Long> getPlayersCountByPosition() {
+        if (queries != null) {
+            return queries.countByPosition();
+        }
         return getAll().stream()
                 .collect(Collectors.groupingBy(Player::getPosition, Collectors.counting()));
     }
     
     public Map<String, Integer> getHeightStats() {
         Map<String, Integer> stats = new HashMap<>();
+        if (queries != null) {
+            stats.put("max", (int) queries.max(Metric.HEIGHT).orElse(0));
+            stats.put("min", (int) queries.min(Metric.HEIGHT).orElse(0));
+            return stats;
+        }
         stats.put("max", getAll().stream()
                 .filter(p -> p.getHeightInches() != null)
                 .mapToInt(Player::getHeightInches)
@@ -161,6 +213,11 @@ public class PlayerService {
     
     public Map<String, Integer> getWeightStats() {
         Map<String, Integer> stats = new HashMap<>();
+        if (queries != null) {
+            stats.put("max", (int) queries.max(Metric.WEIGHT).orElse(0));
+            stats.put("min", (int) queries.min(Metric.WEIGHT).orElse(0));
+            return stats;
+        }
         stats.put("max", getAll().stream()
                 .filter(p -> p.getWeightLbs() != null)
                 .mapToInt(Player::getWeightLbs)
@@ -175,6 +232,9 @@ public class PlayerService {
     }
     
     public List<Player> getYoungestPlayers() {
+        if (queries != null) {
+            return queries.findWithMin(Metric.AGE);
+        }
         Double minAge = getAll().stream()
                 .filter(p -> p.getAge() != null)
                 .mapToDouble(Player::getAge)
@@ -187,6 +247,9 @@ public class PlayerService {
     }
     
     public List<Player> getOldestPlayers() {
+        if (queries != null) {
+            return queries.findWithMax(Metric.AGE);
+        }
         Double maxAge = getAll().stream()
                 .filter(p -> p.getAge() != null)
                 .mapToDouble(Player::getAge)
@@ -199,10 +262,17 @@ public class PlayerService {
     }
     
     public Map<String, Object> getTeamStatistics(String teamCode) {
-        List<Player> teamPlayers = getPlayersByTeam(teamCode);
         Map<String, Object> stats = new HashMap<>();
         
         stats.put("team", teamCode);
+        if (queries != null) {
+            stats.put("totalPlayers", (int) queries.countInTeam(teamCode));
+            stats.put("averageAge", queries.average(Metric.AGE, teamCode).orElse(0.0));
+            stats.put("averageHeight", queries.average(Metric.HEIGHT, teamCode).orElse(0.0));
+            stats.put("averageWeight", queries.average(Metric.WEIGHT, teamCode).orElse(0.0));
+            return stats;
+        }
+        List<Player> teamPlayers = getPlayersByTeam(teamCode);
         stats.put("totalPlayers", teamPlayers.size());
         stats.put("averageAge", teamPlayers.stream()
                 .filter(p -> p.getAge() != null)
@@ -224,12 +294,18 @@ public class PlayerService {
     }
     
     public List<Player> getPlayersWithHighBmi(Double bmiThreshold) {
+        if (queries != null) {
+            return queries.findByBmiAbove(bmiThreshold);
+        }
         return getAll().stream()
                 .filter(p -> p.getBmi() != null && p.getBmi() > bmiThreshold)
                 .collect(Collectors.toList());
     }
     
     public List<Player> getTop10Tallest() {
+        if (queries != null) {
+            return queries.findTop(Metric.HEIGHT, 10);
+        }
         return getAll().stream()
                 .filter(p -> p.getHeightInches() != null)
                 .sorted(Comparator.comparing(Player::getHeightInches).reversed())
@@ -238,6 +314,9 @@ public class PlayerService {
     }
     
     public List<Player> getTop10Heaviest() {
+        if (queries != null) {
+            return queries.findTop(Metric.WEIGHT, 10);
+        }
         return getAll().stream()
                 .filter(p -> p.getWeightLbs() != null)
                 .sorted(Comparator.comparing(Player::getWeightLbs).reversed())
@@ -246,10 +325,9 @@ public class PlayerService {
     }
     
     public Map<String, Object> getOverallStatistics() {
-        List<Player> allPlayers = getAll();
         Map<String, Object> stats = new HashMap<>();
         
-        stats.put("totalPlayers", allPlayers.size());
+        stats.put("totalPlayers", queries != null ? (int) repository.count() : getAll().size());
         stats.put("averageAge", getAverageAge());
         stats.put("averageHeight", getAverageHeight());
         stats.put("averageWeight", getAverageWeight());
@@ -0,0 +1,128 @@
+package com.example.sportstats.service;
+
+import com.example.sportstats.model.Player;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Отчет об отклоненных строках одной загрузки: CSV файл со строками
+ * "номер строки, причина, поля исходной строки". Строки дописываются в файл
+ * по мере загрузки, в памяти отчет не копится. Файл создается при первой записи,
+ * поэтому у загрузки без ошибок отчета нет. Пишут поток разбора (отклоненные строки)
+ * и потоки записи (ошибки базы, у них номер строки неизвестен)
+ */
+public class RejectReport {
+    
+    private static final String HEADER = "line,reason,row";
+    
+    private final String id;
+    private final Path path;
+    private final Runnable onClose;
+    private BufferedWriter writer;
+    private long rows;
+    private boolean failed;
+    
+    /**
+     * @param onClose вызывается при закрытии отчета (RejectReportStore перестает считать его открытым)
+     */
+    RejectReport(String id, Path path, Runnable onClose) {
+        this.id = id;
+        this.path = path;
+        this.onClose = onClose;
+    }
+    
+    public String getId() { return id; }
+    public Path getPath() { return path; }
+    public synchronized long getRows() { return rows; }
+    
+    /**
+     * Строка, не прошедшая проверку при разборе
+     */
+    public void reject(long lineNumber, String[] record, String reason) {
+        write(String.valueOf(lineNumber), reason, record);
+    }
+    
+    /**
+     * Игрок, которого не удалось записать в базу; вместо исходной строки - его поля
+     */
+    public void error(Player player, String reason) {
+        write("", reason, new String[] {
+                player.getName(), player.getTeam(), player.getPosition(),
+                Objects.toString(player.getHeightInches(), ""),
+                Objects.toString(player.getWeightLbs(), ""),
+                Objects.toString(player.getAge(), "")});
+    }
+    
+    private synchronized void write(String line, String reason, String[] record) {
+        if (failed) {
+            return;
+        }
+        try {
+            if (writer == null) {
+                Files.createDirectories(path.getParent());
+                writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+                writer.write(HEADER);
+                writer.newLine();
+            }
+            writer.write(line);
+            writer.write(',');
+            writer.write(quote(reason));
+            for (String field : record) {
+                writer.write(',');
+                writer.write(quote(field));
+            }
+            writer.newLine();
+            rows++;
+        } catch (IOException e) {
+            // Отчет вспомогательный: без него загрузка продолжается
+            failed = true;
+            System.err.println("х Не удалось записать отчет об ошибках " + path + ": " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Дописывает буфер на диск. После закрытия отчет можно скачивать
+     */
+    public synchronized void close() {
+        try {
+            if (writer != null) {
+                writer.close();
+            }
+        } catch (IOException e) {
+            System.err.println("х Не удалось закрыть отчет об ошибках " + path + ": " + e.getMessage());
+        } finally {
+            onClose.run();
+        }
+    }
+    
+    /**
+     * Описание отчета для ответа API; null, если отклоненных строк не было
+     */
+    public synchronized Map<String, Object> toMap() {
+        if (rows == 0) {
+            return null;
+        }
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("id", id);
+        map.put("rows", rows);
+        map.put("url", "/api/admin/csv/rejects/" + id);
+        return map;
+    }
+    
+    private static String quote(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.sportstats.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Каталог отчетов об отклоненных строках. Хранятся только последние retained отчетов
+ * завершенных загрузок, более старые удаляются при создании нового. Отчеты загрузок,
+ * которые еще идут, не удаляются и не считаются
+ */
+@Component
+public class RejectReportStore {
+    
+    private static final Pattern ID = Pattern.compile("[0-9a-f]{8}(-[0-9a-f]{4}){3}-[0-9a-f]{12}");
+    private static final String SUFFIX = ".csv";
+    
+    private final Path dir;
+    private final int retained;
+    // Id отчетов, которые еще не закрыты: их загрузки продолжаются
+    private final Set<String> open = ConcurrentHashMap.newKeySet();
+    
+    /**
+     * @param dir каталог отчетов; пустая строка - отчеты не пишутся, загрузка сообщает только количество
+     * @param retained сколько последних отчетов хранить
+     */
+    public RejectReportStore(
+            @Value("${sportstats.import.rejects.dir:}") String dir,
+            @Value("${sportstats.import.rejects.retained:20}") int retained) {
+        this.dir = dir.isBlank() ? null : Path.of(dir).toAbsolutePath();
+        this.retained = Math.max(1, retained);
+    }
+    
+    public boolean isEnabled() {
+        return dir != null;
+    }
+    
+    /**
+     * Отчет для новой загрузки; файл появится при первой отклоненной строке
+     * @return null, если каталог отчетов не задан
+     */
+    public RejectReport create() {
+        if (dir == null) {
+            return null;
+        }
+        pruneOldReports();
+        String id = UUID.randomUUID().toString();
+        open.add(id);
+        return new RejectReport(id, dir.resolve(id + SUFFIX), () -> open.remove(id));
+    }
+    
+    /**
+     * @return файл отчета, если он есть; id проверяется, чтобы нельзя было выйти за каталог
+     */
+    public Optional<Path> find(String id) {
+        if (dir == null || !ID.matcher(id).matches()) {
+            return Optional.empty();
+        }
+        Path path = dir.resolve(id + SUFFIX);
+        return Files.isRegularFile(path) ? Optional.of(path) : Optional.empty();
+    }
+    
+    private void pruneOldReports() {
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            List<Path> reports = files
+                    .filter(path -> path.getFileName().toString().endsWith(SUFFIX))
+                    .filter(path -> !open.contains(idOf(path)))
+                    .sorted(Comparator.comparing(RejectReportStore::lastModified).reversed())
+                    .toList();
+            // Место для создаваемого отчета
+            for (Path old : reports.subList(Math.min(reports.size(), retained - 1), reports.size())) {
+                Files.deleteIfExists(old);
+            }
+        } catch (IOException e) {
+            System.err.println("х Не удалось удалить старые отчеты об ошибках: " + e.getMessage());
+        }
+    }
+    
+    private static String idOf(Path path) {
+        String name = path.getFileName().toString();
+        return name.substring(0, name.length() - SUFFIX.length());
+    }
+    
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
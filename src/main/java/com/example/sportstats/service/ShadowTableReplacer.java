@@ -0,0 +1,262 @@
+package com.example.sportstats.service;
+
+import com.example.sportstats.model.Player;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Замена набора игроков в базе через теневую таблицу. Файл загружается в новую
+ * таблицу players_N, пока запросы продолжают читать текущую. Имя players - синоним
+ * (CREATE SYNONYM) реальной таблицы, поэтому подмена - один оператор
+ * CREATE OR REPLACE SYNONYM: запрос видит либо старую таблицу, либо новую целиком.
+ * Старая таблица затем удаляется через DROP TABLE, без построчного DELETE
+ * и без роста журнала отмены.
+ * <p>
+ * Исходная таблица players переименовывается и заменяется синонимом один раз при старте,
+ * до приема запросов: DDL в H2 фиксируется сразу, и между переименованием и созданием
+ * синонима запросы не нашли бы players. Поэтому каждая замена - только подмена синонима.
+ * Записи, сделанные запросами во время загрузки, в новый набор не попадают.
+ * <p>
+ * Структура теневой таблицы берется с текущей таблицы (CREATE TABLE ... AS SELECT),
+ * а не из отдельного описания, поэтому не расходится со schema.sql или схемой Hibernate.
+ * CREATE TABLE AS в H2 переносит только столбцы и типы, так что NOT NULL
+ * и первичный ключ переносятся отдельно по INFORMATION_SCHEMA; других ограничений
+ * (UNIQUE, CHECK, внешних ключей) у таблицы players нет
+ */
+@Component
+@Profile({"jdbc", "jpa"})
+public class ShadowTableReplacer implements PlayerDatasetReplacer {
+    
+    private static final String TABLE = "players";
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    // Номер следующей теневой таблицы; время старта исключает совпадение с оставшимися таблицами
+    private final AtomicLong generation = new AtomicLong(System.currentTimeMillis());
+    // Подмены выполняются по одной
+    private final Object swapLock = new Object();
+    
+    private final ObjectProvider<EntityManagerFactory> entityManagerFactory;
+    
+    public ShadowTableReplacer(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                               ObjectProvider<EntityManagerFactory> entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.entityManagerFactory = entityManagerFactory;
+    }
+    
+    /**
+     * Делает players синонимом реальной таблицы. Выполняется при старте, до приема запросов;
+     * в JPA профиле - после того, как Hibernate создал таблицу
+     */
+    @PostConstruct
+    public void init() {
+        entityManagerFactory.getIfAvailable();
+        synchronized (swapLock) {
+            if (synonymTarget() != null) {
+                return;
+            }
+            String table = TABLE + "_" + generation.incrementAndGet();
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " RENAME TO " + table + "; " +
+                    "CREATE SYNONYM " + TABLE + " FOR " + table);
+            System.out.println(" Таблица " + TABLE + " переименована в " + table + ", " + TABLE + " - синоним");
+        }
+    }
+    
+    @Override
+    public PlayerBulkImporter beginReplace() {
+        return new ShadowImport(createShadowTable());
+    }
+    
+    @Override
+    public int clear() {
+        String shadow = createShadowTable();
+        try {
+            return swap(shadow);
+        } catch (RuntimeException e) {
+            dropQuietly(shadow);
+            throw e;
+        }
+    }
+    
+    /**
+     * Пустая копия текущей таблицы players: те же столбцы, NOT NULL и первичный ключ
+     */
+    private String createShadowTable() {
+        String shadow = TABLE + "_" + generation.incrementAndGet();
+        // Под блокировкой подмены: текущая таблица не удаляется, пока с нее читается структура
+        synchronized (swapLock) {
+            String live = liveTable();
+            List<String> notNull = jdbcTemplate.queryForList(
+                    "SELECT COLUMN_NAME FROM INFORMATION_SCHEMA.COLUMNS " +
+                    "WHERE TABLE_SCHEMA = SCHEMA() AND TABLE_NAME = UPPER(?) AND IS_NULLABLE = 'NO' " +
+                    "ORDER BY ORDINAL_POSITION", String.class, live);
+            List<String> primaryKey = jdbcTemplate.queryForList(
+                    "SELECT k.COLUMN_NAME FROM INFORMATION_SCHEMA.TABLE_CONSTRAINTS c " +
+                    "JOIN INFORMATION_SCHEMA.KEY_COLUMN_USAGE k " +
+                    "ON k.CONSTRAINT_SCHEMA = c.CONSTRAINT_SCHEMA AND k.CONSTRAINT_NAME = c.CONSTRAINT_NAME " +
+                    "WHERE c.TABLE_SCHEMA = SCHEMA() AND c.TABLE_NAME = UPPER(?) " +
+                    "AND c.CONSTRAINT_TYPE = 'PRIMARY KEY' ORDER BY k.ORDINAL_POSITION", String.class, live);
+            
+            jdbcTemplate.execute("CREATE TABLE " + shadow + " AS SELECT * FROM " + TABLE + " WHERE 1=0");
+            try {
+                for (String column : notNull) {
+                    jdbcTemplate.execute("ALTER TABLE " + shadow + " ALTER COLUMN \"" + column + "\" SET NOT NULL");
+                }
+                if (!primaryKey.isEmpty()) {
+                    jdbcTemplate.execute("ALTER TABLE " + shadow + " ADD PRIMARY KEY (\""
+                            + String.join("\", \"", primaryKey) + "\")");
+                }
+            } catch (RuntimeException e) {
+                dropQuietly(shadow);
+                throw e;
+            }
+        }
+        return shadow;
+    }
+    
+    /**
+     * Таблица, на которую указывает синоним players; null, если players еще не синоним
+     */
+    private String synonymTarget() {
+        List<String> targets = jdbcTemplate.queryForList(
+                "SELECT SYNONYM_FOR FROM INFORMATION_SCHEMA.SYNONYMS " +
+                "WHERE SYNONYM_SCHEMA = SCHEMA() AND SYNONYM_NAME = UPPER(?)", String.class, TABLE);
+        return targets.isEmpty() ? null : targets.get(0);
+    }
+    
+    /**
+     * @throws IllegalStateException если players не синоним (init не выполнен)
+     */
+    private String liveTable() {
+        String target = synonymTarget();
+        if (target == null) {
+            throw new IllegalStateException("Таблица " + TABLE + " не заменена синонимом, замена набора невозможна");
+        }
+        return target;
+    }
+    
+    /**
+     * Подменяет players теневой таблицей и удаляет прежнюю
+     * @return сколько строк было в прежней таблице
+     */
+    private int swap(String shadow) {
+        synchronized (swapLock) {
+            long start = System.nanoTime();
+            String previous = liveTable();
+            jdbcTemplate.execute("CREATE OR REPLACE SYNONYM " + TABLE + " FOR " + shadow);
+            
+            // Подмена уже выполнена: ошибка удаления прежней таблицы не должна ее отменять
+            Integer replaced = null;
+            try {
+                replaced = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + previous, Integer.class);
+                jdbcTemplate.execute("DROP TABLE " + previous);
+            } catch (DataAccessException e) {
+                System.err.println("х Не удалось удалить прежнюю таблицу " + previous + ": " + e.getMessage());
+            }
+            System.out.println(" Таблица " + TABLE + " подменена на " + shadow + " за "
+                    + (System.nanoTime() - start) / 1_000_000 + " мс");
+            return replaced == null ? 0 : replaced;
+        }
+    }
+    
+    private void dropQuietly(String table) {
+        try {
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + table);
+        } catch (DataAccessException e) {
+            System.err.println("х Не удалось удалить теневую таблицу " + table + ": " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Загрузка одного файла в теневую таблицу. Таблица новая и пустая, поэтому
+     * вставка идет обычным пакетным INSERT, а дубликаты - только повторы внутри файла.
+     * Пачки могут записываться несколькими потоками одновременно
+     */
+    private class ShadowImport implements PlayerBulkImporter {
+        
+        private final String table;
+        private final String insertSql;
+        private final Set<String> seen = new HashSet<>();
+        
+        ShadowImport(String table) {
+            this.table = table;
+            this.insertSql = "INSERT INTO " + table +
+                    " (id, name, team, position, height_inches, weight_lbs, age) VALUES (?, ?, ?, ?, ?, ?, ?)";
+        }
+        
+        @Override
+        public void importChunk(List<Player> chunk, ImportCounters counters) {
+            List<Player> unique = new ArrayList<>(chunk.size());
+            synchronized (seen) {
+                for (Player player : chunk) {
+                    if (seen.add(player.getId())) {
+                        unique.add(player);
+                    }
+                }
+            }
+            counters.addDuplicates(chunk.size() - unique.size());
+            if (unique.isEmpty()) {
+                return;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                        jdbcTemplate.batchUpdate(insertSql, unique, unique.size(), ShadowTableReplacer::bindRow));
+                counters.addImported(unique.size());
+            } catch (DataAccessException e) {
+                // Пачка откатилась целиком - повторяем построчно, чтобы найти ошибочные строки
+                System.err.println("   Пакетная запись не удалась (" + e.getMessage() + "), повтор по одной строке");
+                for (Player player : unique) {
+                    try {
+                        jdbcTemplate.update(insertSql, ps -> bindRow(ps, player));
+                        counters.addImported(1);
+                    } catch (DataAccessException rowError) {
+                        counters.addError(player, rowError.getMessage());
+                        System.err.println("   Ошибка при загрузке игрока " + player.getId() + ": " + rowError.getMessage());
+                    }
+                }
+            }
+        }
+        
+        @Override
+        public void finish(ImportCounters counters) {
+            try {
+                swap(table);
+            } catch (RuntimeException e) {
+                dropQuietly(table);
+                throw e;
+            }
+        }
+        
+        @Override
+        public void abort() {
+            dropQuietly(table);
+        }
+    }
+    
+    private static void bindRow(PreparedStatement ps, Player player) throws SQLException {
+        ps.setString(1, player.getId());
+        ps.setString(2, player.getName());
+        ps.setString(3, player.getTeam());
+        ps.setString(4, player.getPosition());
+        ps.setObject(5, player.getHeightInches(), Types.INTEGER);
+        ps.setObject(6, player.getWeightLbs(), Types.INTEGER);
+        ps.setObject(7, player.getAge(), Types.DOUBLE);
+    }
+}
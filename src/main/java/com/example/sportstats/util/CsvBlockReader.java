@@ -0,0 +1,136 @@
+package com.example.sportstats.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Режет поток CSV на блоки байтов, которые заканчиваются на границе записи, чтобы
+ * блоки можно было разбирать независимо и параллельно. То же, что CsvChunkSplitter
+ * делает для файла, но за один проход по потоку: перевод строки внутри поля
+ * в кавычках границей не считается, состояние кавычек переносится между блоками
+ */
+final class CsvBlockReader {
+    
+    private static final int READ_SIZE = 1 << 16;
+    
+    private final InputStream in;
+    // Прочитанные, но еще не отданные байты: [0, length), из них [0, scanned) уже просмотрены
+    private byte[] buffer = new byte[READ_SIZE];
+    private int length;
+    private int scanned;
+    private boolean inQuotes;
+    private boolean eof;
+    // Позиция начала следующего блока: байт от начала потока и физических строк до него
+    private long offset;
+    private long lines;
+    
+    CsvBlockReader(InputStream in) {
+        this.in = in;
+    }
+    
+    /**
+     * Блок [0, length) массива bytes, начинающийся с физической строки firstLine.
+     * endOffset и endLines - позиция сразу за блоком, с которой можно продолжить чтение
+     */
+    static final class Block {
+        final byte[] bytes;
+        final int length;
+        final long firstLine;
+        final long endOffset;
+        final long endLines;
+        
+        Block(byte[] bytes, int length, long firstLine, long endOffset, long endLines) {
+            this.bytes = bytes;
+            this.length = length;
+            this.firstLine = firstLine;
+            this.endOffset = endOffset;
+            this.endLines = endLines;
+        }
+    }
+    
+    /**
+     * Читает следующий блок: он заканчивается на первой границе записи не раньше
+     * minSize байт или в конце потока
+     * @return null, если поток закончился
+     */
+    Block next(int minSize) throws IOException {
+        return next(minSize, Integer.MAX_VALUE);
+    }
+    
+    /**
+     * Читает следующий блок ровно из records записей (последний блок может быть короче)
+     * @return null, если поток закончился
+     */
+    Block nextRecords(int records) throws IOException {
+        return next(Integer.MAX_VALUE, records);
+    }
+    
+    /**
+     * Пропускает поток до байта target, не разбирая его, - для продолжения чтения
+     * с сохраненной позиции. Вызывается на границе блока; target должен быть границей записи
+     * @param targetLines сколько физических строк до target
+     */
+    void skipTo(long target, long targetLines) throws IOException {
+        long skip = target - offset;
+        if (skip < 0) {
+            throw new IllegalArgumentException("Позиция " + target + " уже прочитана");
+        }
+        // Часть пропускаемых байтов уже может быть прочитана в буфер
+        int buffered = (int) Math.min(skip, length);
+        System.arraycopy(buffer, buffered, buffer, 0, length - buffered);
+        length -= buffered;
+        scanned = 0;
+        in.skipNBytes(skip - buffered);
+        offset = target;
+        lines = targetLines;
+    }
+    
+    private Block next(int minSize, int maxRecords) throws IOException {
+        long firstLine = lines + 1;
+        int records = 0;
+        int cut = -1;
+        while (cut < 0) {
+            if (scanned == length) {
+                if (eof) {
+                    cut = length;
+                    break;
+                }
+                fill();
+                continue;
+            }
+            byte b = buffer[scanned++];
+            // Удвоенная кавычка внутри поля переключает состояние дважды и ничего не меняет
+            if (b == '"') {
+                inQuotes = !inQuotes;
+            } else if (b == '\n') {
+                lines++;
+                if (!inQuotes && (scanned >= minSize || ++records >= maxRecords)) {
+                    cut = scanned;
+                }
+            }
+        }
+        if (cut == 0) {
+            return null;
+        }
+        
+        offset += cut;
+        Block block = new Block(Arrays.copyOf(buffer, cut), cut, firstLine, offset, lines);
+        System.arraycopy(buffer, cut, buffer, 0, length - cut);
+        length -= cut;
+        scanned = 0;
+        return block;
+    }
+    
+    private void fill() throws IOException {
+        if (buffer.length - length < READ_SIZE) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + READ_SIZE));
+        }
+        int read = in.read(buffer, length, buffer.length - length);
+        if (read < 0) {
+            eof = true;
+        } else {
+            length += read;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.sportstats.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Делит CSV файл на диапазоны байтов, которые начинаются и заканчиваются
+ * на границе записи. Перевод строки внутри поля в кавычках границей не считается,
+ * поэтому файл просматривается последовательно с учетом состояния кавычек.
+ * Это простой проход по байтам без декодирования и разбора полей
+ */
+public final class CsvChunkSplitter {
+    
+    private static final int SCAN_BUFFER_SIZE = 1 << 20;
+    
+    private CsvChunkSplitter() {
+    }
+    
+    /**
+     * Диапазон [start, end) файла и номер его первой физической строки
+     */
+    public static final class Chunk {
+        public final long start;
+        public final long end;
+        public final long firstLine;
+        
+        Chunk(long start, long end, long firstLine) {
+            this.start = start;
+            this.end = end;
+            this.firstLine = firstLine;
+        }
+    }
+    
+    /**
+     * @param channel файл для разбиения
+     * @param chunkSize желаемый размер диапазона в байтах
+     * @return первый диапазон - строка заголовка, остальные - данные
+     */
+    public static List<Chunk> split(FileChannel channel, long chunkSize) throws IOException {
+        List<Chunk> chunks = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(SCAN_BUFFER_SIZE);
+        
+        boolean inQuotes = false;
+        long lines = 0;
+        long chunkStart = 0;
+        long chunkLine = 1;
+        // Заголовок выделяем в отдельный диапазон: он закрывается на первой границе записи
+        long target = 0;
+        long position = 0;
+        
+        while (channel.read(buffer, position) > 0) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                byte b = buffer.get();
+                position++;
+                // Удвоенная кавычка внутри поля переключает состояние дважды и ничего не меняет
+                if (b == '"') {
+                    inQuotes = !inQuotes;
+                } else if (b == '\n') {
+                    lines++;
+                    if (!inQuotes && position - chunkStart > target) {
+                        chunks.add(new Chunk(chunkStart, position, chunkLine));
+                        chunkStart = position;
+                        chunkLine = lines + 1;
+                        target = chunkSize;
+                    }
+                }
+            }
+            buffer.clear();
+        }
+        
+        if (position > chunkStart) {
+            chunks.add(new Chunk(chunkStart, position, chunkLine));
+        }
+        return chunks;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.sportstats.util;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Распознает сжатый CSV по первым байтам (а не по имени файла) и распаковывает его
+ * потоком: данные идут в парсер по мере распаковки, без промежуточного файла или буфера.
+ * Поддерживаются gzip и zip (берется первый файл архива)
+ */
+public final class CsvDecompressor {
+    
+    public enum Compression { NONE, GZIP, ZIP, ZSTD }
+    
+    private static final int BUFFER_SIZE = 1 << 16;
+    
+    private CsvDecompressor() {
+    }
+    
+    public static Compression detect(Path path) throws IOException {
+        try (InputStream in = Files.newInputStream(path)) {
+            return detect(in);
+        }
+    }
+    
+    /**
+     * Определяет сжатие по первым байтам потока; прочитанные байты из потока не возвращаются
+     */
+    public static Compression detect(InputStream in) throws IOException {
+        return detect(in.readNBytes(4));
+    }
+    
+    /**
+     * Оборачивает поток в распаковку, если данные сжаты; несжатый поток возвращается как есть
+     * @throws CsvStructureException если формат сжатия не поддерживается или в архиве нет файлов
+     */
+    public static InputStream decompress(InputStream source) throws IOException {
+        BufferedInputStream in = new BufferedInputStream(source, BUFFER_SIZE);
+        in.mark(4);
+        Compression compression = detect(in.readNBytes(4));
+        in.reset();
+        
+        switch (compression) {
+            case GZIP:
+                return new GZIPInputStream(in, BUFFER_SIZE);
+            case ZIP:
+                ZipInputStream zip = new ZipInputStream(in);
+                ZipEntry entry;
+                while ((entry = zip.getNextEntry()) != null) {
+                    if (!entry.isDirectory()) {
+                        return zip;
+                    }
+                }
+                zip.close();
+                throw new CsvStructureException("ZIP архив не содержит CSV файла");
+            case ZSTD:
+                in.close();
+                throw new CsvStructureException("Сжатие zstd не поддерживается, используйте gzip или zip");
+            default:
+                return in;
+        }
+    }
+    
+    private static Compression detect(byte[] magic) {
+        if (magic.length >= 2 && (magic[0] & 0xFF) == 0x1F && (magic[1] & 0xFF) == 0x8B) {
+            return Compression.GZIP;
+        }
+        if (magic.length >= 4 && magic[0] == 'P' && magic[1] == 'K' && magic[2] == 3 && magic[3] == 4) {
+            return Compression.ZIP;
+        }
+        if (magic.length >= 4 && (magic[0] & 0xFF) == 0x28 && (magic[1] & 0xFF) == 0xB5
+                && (magic[2] & 0xFF) == 0x2F && (magic[3] & 0xFF) == 0xFD) {
+            return Compression.ZSTD;
+        }
+        return Compression.NONE;
+    }
+}
@@ -1,103 +1,474 @@
 package com.example.sportstats.util;
 
 import com.example.sportstats.model.Player;
-import com.opencsv.CSVReader;
-import com.opencsv.exceptions.CsvException;
-import org.springframework.web.multipart.MultipartFile; 
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.web.multipart.MultipartFile;
 import org.springframework.stereotype.Component;
 import org.springframework.core.io.ClassPathResource;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
 
 @Component
 public class CsvParser {
     
+    private final CsvValidator csvValidator;
+    private final int parallelism;
+    private final long chunkSize;
+    private final ForkJoinPool pool;
+    
+    public CsvParser(CsvValidator csvValidator) {
+        this(csvValidator, 1, Long.MAX_VALUE / 2);
+    }
+    
+    /**
+     * @param parallelism число потоков для параллельного разбора, 0 - по числу ядер, 1 - без распараллеливания
+     * @param chunkSize размер диапазона файла в байтах, который разбирается одной задачей
+     */
+    @Autowired
+    public CsvParser(
+            CsvValidator csvValidator,
+            @Value("${sportstats.csv.parallelism:0}") int parallelism,
+            @Value("${sportstats.csv.parallel-chunk-size:8388608}") long chunkSize) {
+        this.csvValidator = csvValidator;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.chunkSize = Math.max(1, chunkSize);
+        this.pool = this.parallelism > 1 ? new ForkJoinPool(this.parallelism) : null;
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+    
     public List<Player> parseCsv(String filename) {
         List<Player> players = new ArrayList<>();
-        
-        try (CSVReader reader = new CSVReader(
-                new InputStreamReader(new ClassPathResource(filename).getInputStream()))) {
-            
-            List<String[]> records = reader.readAll();
-            // Пропускаем заголовок
-            for (int i = 1; i < records.size(); i++) {
-                String[] record = records.get(i);
-                if (record.length >= 6) {
-                    // Очищаем данные от кавычек
-                    String name = cleanQuotes(record[0]);
-                    String team = cleanQuotes(record[1]);
-                    String position = cleanQuotes(record[2]);
-                    Integer height = parseInt(cleanQuotes(record[3]));
-                    Integer weight = parseInt(cleanQuotes(record[4]));
-                    Double age = parseDouble(cleanQuotes(record[5]));
-                    
-                    Player player = new Player(name, team, position, height, weight, age);
-                    players.add(player);
+        streamCsv(filename, players::add);
+        return players;
+    }
+    
+    /**
+     * Потоково читает CSV файл из ресурсов: игроки передаются в sink по одному,
+     * файл целиком в памяти не держится. Большой файл на диске разбирается параллельно
+     * @param filename имя файла в classpath
+     * @param sink получатель игроков
+     * @return количество прочитанных игроков
+     */
+    public int streamCsv(String filename, Consumer<Player> sink) {
+        ClassPathResource resource = new ClassPathResource(filename);
+        try {
+            int count;
+            if (resource.isFile()) {
+                count = stream(resource.getFile().toPath(), sink::accept);
+            } else {
+                try (InputStream in = CsvDecompressor.decompress(resource.getInputStream())) {
+                    count = stream(in, sink::accept);
                 }
             }
-            System.out.println("Loaded " + players.size() + " players from CSV");
+            System.out.println("Loaded " + count + " players from CSV");
+            return count;
         } catch (Exception e) {
             throw new RuntimeException("Failed to parse CSV file: " + filename, e);
         }
+    }
+    
+    /**
+     * Разбирает CSV за один проход: сначала проверяет заголовок, затем читает
+     * записи по одной через readNext, проверяет их и сразу отдает в handler.
+     * Если заголовок не соответствует шаблону, ни одна строка не будет передана
+     * @throws CsvStructureException если заголовки не совпадают с ожидаемыми
+     */
+    public int stream(Reader source, CsvRowHandler handler) throws IOException {
+        try (RosterCsvTokenizer tokenizer = new RosterCsvTokenizer(source)) {
+            checkHeader(tokenizer);
+            return parseRecords(tokenizer, handler);
+        }
+    }
+    
+    /**
+     * Разбирает файл на диске. Если файл больше двух диапазонов и включено
+     * распараллеливание, диапазоны разбираются на ForkJoinPool, а результаты
+     * передаются в handler строго в порядке следования в файле и в вызывающем потоке.
+     * Одновременно в памяти находится не больше 2 * parallelism разобранных диапазонов.
+     * Сжатый файл (gzip, zip) делить на диапазоны заранее нельзя, он распаковывается потоком
+     * и разбирается как поток (stream(InputStream, ...))
+     * @throws CsvStructureException если заголовки не совпадают с ожидаемыми
+     */
+    public int stream(Path path, CsvRowHandler handler) throws IOException {
+        if (pool == null || Files.size(path) < 2 * chunkSize
+                || CsvDecompressor.detect(path) != CsvDecompressor.Compression.NONE) {
+            try (InputStream in = CsvDecompressor.decompress(Files.newInputStream(path))) {
+                return stream(in, handler);
+            }
+        }
         
-        return players;
+        try (FileChannel channel = FileChannel.open(path)) {
+            List<CsvChunkSplitter.Chunk> chunks = CsvChunkSplitter.split(channel, chunkSize);
+            
+            // Заголовок (первый диапазон) проверяется до запуска разбора данных
+            try (RosterCsvTokenizer tokenizer = new RosterCsvTokenizer(openChunk(channel, chunks.get(0)))) {
+                checkHeader(tokenizer);
+            }
+            
+            int count = 0;
+            int next = 1;
+            Deque<ForkJoinTask<ParsedChunk>> inFlight = new ArrayDeque<>();
+            try {
+                while (next < chunks.size() || !inFlight.isEmpty()) {
+                    while (next < chunks.size() && inFlight.size() < 2 * parallelism) {
+                        CsvChunkSplitter.Chunk chunk = chunks.get(next++);
+                        inFlight.add(pool.submit(() -> {
+                            try {
+                                return parseChunk(openChunk(channel, chunk), chunk.firstLine);
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        }));
+                    }
+                    count += inFlight.poll().join().replay(handler);
+                }
+            } finally {
+                inFlight.forEach(task -> task.cancel(true));
+            }
+            return count;
+        }
     }
     
-    private String cleanQuotes(String value) {
-        if (value == null) return null;
-        return value.replace("\"", "").trim();
+    /**
+     * Разбирает поток конвейером: вызывающий поток читает поток и режет его на блоки
+     * по границам записей (CsvBlockReader), блоки разбираются и проверяются на ForkJoinPool,
+     * а результаты передаются в handler по порядку и в вызывающем потоке - как для файла
+     * на диске. Очередь разобранных блоков ограничена 2 * parallelism: если handler
+     * не успевает, чтение потока приостанавливается. Без распараллеливания поток
+     * разбирается последовательно
+     * @throws CsvStructureException если заголовки не совпадают с ожидаемыми
+     */
+    public int stream(InputStream in, CsvRowHandler handler) throws IOException {
+        if (pool == null) {
+            return stream(new InputStreamReader(in), handler);
+        }
+        
+        CsvBlockReader blocks = new CsvBlockReader(in);
+        checkHeader(blocks);
+        int blockSize = (int) Math.min(chunkSize, 1 << 30);
+        return parseBlocks(() -> blocks.next(blockSize), handler);
     }
     
-    private Integer parseInt(String value) {
-        try {
-            return value != null && !value.isEmpty() ? Integer.parseInt(value) : null;
-        } catch (NumberFormatException e) {
-            return null;
+    /**
+     * Разбирает файл (в том числе сжатый) блоками ровно по records записей начиная
+     * с позиции offset - для загрузки с контрольными точками. После каждого блока
+     * вызывается handler.onBlockEnd с позицией сразу за ним: с этой позиции загрузку
+     * можно продолжить, не перечитывая уже разобранные строки. Заголовок проверяется всегда.
+     * Для сжатого файла offset - позиция в распакованных данных, до нее поток
+     * распаковывается без разбора
+     * @param offset байт, с которого начинается разбор; 0 - с начала файла
+     * @param lines сколько физических строк до offset
+     * @return количество прочитанных игроков начиная с offset
+     * @throws CsvStructureException если заголовки не совпадают с ожидаемыми
+     */
+    public int streamFileFrom(Path path, long offset, long lines, int records, CsvRowHandler handler) {
+        try (InputStream in = CsvDecompressor.decompress(Files.newInputStream(path))) {
+            CsvBlockReader blocks = new CsvBlockReader(in);
+            checkHeader(blocks);
+            if (offset > 0) {
+                blocks.skipTo(offset, lines);
+            }
+            int count = parseBlocks(() -> blocks.nextRecords(Math.max(1, records)), handler);
+            System.out.println("Прочитано " + count + " игроков из файла " + path.getFileName()
+                    + (offset > 0 ? " начиная со строки " + (lines + 1) : ""));
+            return count;
+        } catch (CsvStructureException | CancellationException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to parse CSV file: " + path, e);
+        }
+    }
+    
+    /**
+     * Первый блок - только строка заголовка, она проверяется до разбора данных
+     */
+    private void checkHeader(CsvBlockReader blocks) throws IOException {
+        CsvBlockReader.Block header = blocks.next(0);
+        try (RosterCsvTokenizer tokenizer = new RosterCsvTokenizer(header == null
+                ? Reader.nullReader() : openBlock(header))) {
+            checkHeader(tokenizer);
         }
     }
     
-    private Double parseDouble(String value) {
+    /**
+     * Разбирает блоки на ForkJoinPool (без распараллеливания - в вызывающем потоке)
+     * и передает результаты в handler по порядку; в работе не больше 2 * parallelism блоков
+     */
+    private int parseBlocks(BlockSource blocks, CsvRowHandler handler) throws IOException {
+        int count = 0;
+        if (pool == null) {
+            CsvBlockReader.Block block;
+            while ((block = blocks.next()) != null) {
+                count += parseBlock(block).replay(handler);
+            }
+            return count;
+        }
+        
+        boolean more = true;
+        Deque<ForkJoinTask<ParsedChunk>> inFlight = new ArrayDeque<>();
         try {
-            return value != null && !value.isEmpty() ? Double.parseDouble(value) : null;
-        } catch (NumberFormatException e) {
-            return null;
+            while (more || !inFlight.isEmpty()) {
+                while (more && inFlight.size() < 2 * parallelism) {
+                    CsvBlockReader.Block block = blocks.next();
+                    if (block == null) {
+                        more = false;
+                    } else {
+                        inFlight.add(pool.submit(() -> parseBlock(block)));
+                    }
+                }
+                if (!inFlight.isEmpty()) {
+                    count += inFlight.poll().join().replay(handler);
+                }
+            }
+        } finally {
+            inFlight.forEach(task -> task.cancel(true));
         }
+        return count;
     }
-
-    public List<Player> parseCsvMultipart(MultipartFile file) {
-    List<Player> players = new ArrayList<>();
     
-        try (CSVReader reader = new CSVReader(new InputStreamReader(file.getInputStream()))) {
-            List<String[]> records = reader.readAll();
-            
-            if (records.isEmpty()) {
-                return players;
+    @FunctionalInterface
+    private interface BlockSource {
+        CsvBlockReader.Block next() throws IOException;
+    }
+    
+    private ParsedChunk parseBlock(CsvBlockReader.Block block) {
+        ParsedChunk parsed = parseChunk(openBlock(block), block.firstLine);
+        parsed.end(block.endOffset, block.endLines);
+        return parsed;
+    }
+    
+    private ParsedChunk parseChunk(Reader source, long firstLine) {
+        ParsedChunk parsed = new ParsedChunk();
+        try (RosterCsvTokenizer tokenizer = new RosterCsvTokenizer(source, firstLine - 1)) {
+            parseRecords(tokenizer, parsed);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return parsed;
+    }
+    
+    private static Reader openBlock(CsvBlockReader.Block block) {
+        // Блок заканчивается переводом строки, поэтому многобайтовые символы не разрезаются
+        return new InputStreamReader(new ByteArrayInputStream(block.bytes, 0, block.length), Charset.defaultCharset());
+    }
+    
+    private Reader openChunk(FileChannel channel, CsvChunkSplitter.Chunk chunk) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) (chunk.end - chunk.start));
+        long position = chunk.start;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                break;
             }
-            
-            // Пропускаем заголовок
-            for (int i = 1; i < records.size(); i++) {
-                String[] record = records.get(i);
-                if (record.length >= 6) {
-                    String name = cleanQuotes(record[0]);
-                    String team = cleanQuotes(record[1]);
-                    String position = cleanQuotes(record[2]);
-                    Integer height = parseInt(cleanQuotes(record[3]));
-                    Integer weight = parseInt(cleanQuotes(record[4]));
-                    Double age = parseDouble(cleanQuotes(record[5]));
-                    
-                    Player player = new Player(name, team, position, height, weight, age);
-                    players.add(player);
+            position += read;
+        }
+        // Диапазон заканчивается переводом строки, поэтому многобайтовые символы не разрезаются
+        return new InputStreamReader(new ByteArrayInputStream(buffer.array(), 0, buffer.position()),
+                Charset.defaultCharset());
+    }
+    
+    private void checkHeader(RosterCsvTokenizer tokenizer) throws IOException {
+        String[] headers = tokenizer.next() ? tokenizer.rawFields() : null;
+        if (!csvValidator.validateHeaders(headers)) {
+            throw new CsvStructureException("CSV файл не соответствует шаблону");
+        }
+    }
+    
+    private int parseRecords(RosterCsvTokenizer tokenizer, CsvRowHandler handler) throws IOException {
+        int count = 0;
+        while (tokenizer.next()) {
+            // Быстрая проверка по буферу; поля строки создаются только для отклоненных записей
+            if (tokenizer.fieldCount() < 6 || tokenizer.isBlank(0) || tokenizer.isBlank(1)) {
+                String[] record = tokenizer.rawFields();
+                String reason = csvValidator.validateRecord(record);
+                if (reason != null) {
+                    handler.onReject(tokenizer.lineNumber(), record, reason);
+                    continue;
                 }
             }
             
-            System.out.println("Прочитано " + players.size() + " игроков из загруженного файла");
-            
+            Player player;
+            try {
+                player = toPlayer(tokenizer);
+            } catch (NumberFormatException e) {
+                handler.onReject(tokenizer.lineNumber(), tokenizer.rawFields(), "Некорректное число: " + e.getMessage());
+                continue;
+            }
+            handler.accept(player);
+            count++;
+        }
+        return count;
+    }
+    
+    private Player toPlayer(RosterCsvTokenizer tokenizer) {
+        Integer height = tokenizer.intValue(3);
+        Integer weight = tokenizer.intValue(4);
+        Double age = tokenizer.doubleValue(5);
+        
+        // Команды и позиции повторяются у тысяч игроков - берем их из словаря без создания строк
+        return new Player(tokenizer.text(0), tokenizer.text(1, StringPool.TEAMS),
+                tokenizer.text(2, StringPool.POSITIONS), height, weight, age);
+    }
+    
+    public List<Player> parseCsvMultipart(MultipartFile file) {
+        List<Player> players = new ArrayList<>();
+        streamCsvMultipart(file, players::add);
+        return players;
+    }
+    
+    /**
+     * Потоково читает загруженный файл за один проход: заголовок проверяется
+     * до первой строки данных, игроки передаются в handler по мере чтения.
+     * Большой файл при включенном распараллеливании сохраняется во временный файл
+     * (для загрузки, которая уже лежит на диске, это перемещение) и разбирается параллельно.
+     * Файл поменьше и сжатый файл (gzip, zip) разбираются потоком (stream(InputStream, ...))
+     * @return количество прочитанных игроков
+     * @throws CsvStructureException если заголовки не совпадают с ожидаемыми
+     */
+    public int streamCsvMultipart(MultipartFile file, CsvRowHandler handler) {
+        try {
+            int count;
+            if (pool != null && file.getSize() >= 2 * chunkSize && !isCompressed(file)) {
+                Path temp = Files.createTempFile("players-upload-", ".csv");
+                try {
+                    file.transferTo(temp);
+                    count = stream(temp, handler);
+                } finally {
+                    Files.deleteIfExists(temp);
+                }
+            } else {
+                try (InputStream in = CsvDecompressor.decompress(file.getInputStream())) {
+                    count = stream(in, handler);
+                }
+            }
+            System.out.println("Прочитано " + count + " игроков из загруженного файла");
+            return count;
+        } catch (CsvStructureException | CancellationException e) {
+            throw e;
         } catch (Exception e) {
             throw new RuntimeException("Failed to parse uploaded CSV file", e);
         }
+    }
+    
+    private static boolean isCompressed(MultipartFile file) throws IOException {
+        try (InputStream in = file.getInputStream()) {
+            return CsvDecompressor.detect(in) != CsvDecompressor.Compression.NONE;
+        }
+    }
+    
+    /**
+     * Потоково читает CSV из произвольного потока, например из загрузки по частям,
+     * которая еще продолжается. Сжатый поток распаковывается на лету
+     * @return количество прочитанных игроков
+     * @throws CsvStructureException если заголовки не совпадают с ожидаемыми
+     */
+    public int streamInput(InputStream in, CsvRowHandler handler) {
+        try (InputStream source = CsvDecompressor.decompress(in)) {
+            int count = stream(source, handler);
+            System.out.println("Прочитано " + count + " игроков из потока");
+            return count;
+        } catch (CsvStructureException | CancellationException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to parse CSV stream", e);
+        }
+    }
+    
+    /**
+     * Потоково читает CSV файл на диске (например, сохраненную фоновой задачей загрузку)
+     * @return количество прочитанных игроков
+     * @throws CsvStructureException если заголовки не совпадают с ожидаемыми
+     */
+    public int streamFile(Path path, CsvRowHandler handler) {
+        try {
+            int count = stream(path, handler);
+            System.out.println("Прочитано " + count + " игроков из файла " + path.getFileName());
+            return count;
+        } catch (CsvStructureException | CancellationException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to parse CSV file: " + path, e);
+        }
+    }
+    
+    /**
+     * Результат разбора одного диапазона: игроки и отклоненные строки в порядке следования
+     * и, для блока потока, позиция сразу за ним
+     */
+    private static class ParsedChunk implements CsvRowHandler {
         
-        return players;
+        private final List<Object> rows = new ArrayList<>();
+        private long endOffset = -1;
+        private long endLines;
+        
+        void end(long offset, long lines) {
+            endOffset = offset;
+            endLines = lines;
+        }
+        
+        @Override
+        public void accept(Player player) {
+            rows.add(player);
+        }
+        
+        @Override
+        public void onReject(long lineNumber, String[] record, String reason) {
+            rows.add(new RejectedRow(lineNumber, record, reason));
+        }
+        
+        int replay(CsvRowHandler handler) {
+            int count = 0;
+            for (Object row : rows) {
+                if (row instanceof Player player) {
+                    handler.accept(player);
+                    count++;
+                } else {
+                    RejectedRow reject = (RejectedRow) row;
+                    handler.onReject(reject.lineNumber, reject.record, reject.reason);
+                }
+            }
+            if (endOffset >= 0) {
+                handler.onBlockEnd(endOffset, endLines);
+            }
+            return count;
+        }
+    }
+    
+    private static class RejectedRow {
+        final long lineNumber;
+        final String[] record;
+        final String reason;
+        
+        RejectedRow(long lineNumber, String[] record, String reason) {
+            this.lineNumber = lineNumber;
+            this.record = record;
+            this.reason = reason;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,23 @@
+package com.example.sportstats.util;
+
+import com.example.sportstats.model.Player;
+
+import java.util.function.Consumer;
+
+/**
+ * Получатель результатов потокового разбора CSV: корректные строки
+ * приходят как игроки, отклоненные - с номером строки и причиной
+ */
+@FunctionalInterface
+public interface CsvRowHandler extends Consumer<Player> {
+    
+    default void onReject(long lineNumber, String[] record, String reason) {
+    }
+    
+    /**
+     * Все строки до позиции offset (байт от начала данных, lines физических строк) переданы.
+     * Вызывается только при разборе блоками
+     */
+    default void onBlockEnd(long offset, long lines) {
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.sportstats.util;
+
+/**
+ * Заголовки CSV файла не соответствуют шаблону. Выбрасывается до того,
+ * как будет обработана хотя бы одна строка данных
+ */
+public class CsvStructureException extends RuntimeException {
+    
+    public CsvStructureException(String message) {
+        super(message);
+    }
+}
@@ -23,31 +23,9 @@ public class CsvValidator {
      * @return true если структура правильная, false если нет
      */
     public boolean validateCsvStructure(MultipartFile file) {
-        try (CSVReader reader = new CSVReader(new InputStreamReader(file.getInputStream()))) {
-            String[] headers = reader.readNext();
-            
-            if (headers == null || headers.length == 0) {
-                System.err.println("х CSV файл пуст или не содержит заголовков");
-                return false;
-            }
-            
-            // Очищаем заголовки от кавычек и пробелов
-            Set<String> actualHeaders = new HashSet<>();
-            for (String header : headers) {
-                actualHeaders.add(cleanHeader(header));
-            }
-            
-            // Проверяем, что все ожидаемые заголовки присутствуют
-            boolean allHeadersPresent = EXPECTED_HEADERS.equals(actualHeaders);
-            
-            if (!allHeadersPresent) {
-                System.err.println("х CSV файл имеет неправильную структуру!");
-                System.err.println("   Ожидаемые заголовки: " + EXPECTED_HEADERS);
-                System.err.println("   Фактические заголовки: " + actualHeaders);
-            }
-            
-            return allHeadersPresent;
-            
+        try (CSVReader reader = new CSVReader(new InputStreamReader(CsvDecompressor.decompress(file.getInputStream())))) {
+            return validateHeaders(reader.readNext());
+
         } catch (Exception e) {
             System.err.println("х Ошибка при чтении CSV файла: " + e.getMessage());
             return false;
@@ -96,6 +74,64 @@ public class CsvValidator {
         }
     }
     
+    /**
+     * Проверяет уже прочитанную строку заголовков, не открывая файл повторно
+     * @param headers первая строка CSV файла
+     * @return true если набор заголовков совпадает с ожидаемым
+     */
+    public boolean validateHeaders(String[] headers) {
+        if (headers == null || headers.length == 0) {
+            System.err.println("х CSV файл пуст или не содержит заголовков");
+            return false;
+        }
+        
+        // Очищаем заголовки от кавычек и пробелов
+        Set<String> actualHeaders = new HashSet<>();
+        for (String header : headers) {
+            actualHeaders.add(cleanHeader(header));
+        }
+        
+        // Проверяем, что все ожидаемые заголовки присутствуют
+        boolean allHeadersPresent = EXPECTED_HEADERS.equals(actualHeaders);
+        
+        if (!allHeadersPresent) {
+            System.err.println("х CSV файл имеет неправильную структуру!");
+            System.err.println("   Ожидаемые заголовки: " + EXPECTED_HEADERS);
+            System.err.println("   Фактические заголовки: " + actualHeaders);
+        }
+        
+        return allHeadersPresent;
+    }
+    
+    /**
+     * Проверяет строку данных до создания игрока
+     * @param record поля строки CSV
+     * @return причина отклонения или null, если строка корректна
+     */
+    public String validateRecord(String[] record) {
+        if (record.length < EXPECTED_HEADERS.size()) {
+            return "Ожидалось " + EXPECTED_HEADERS.size() + " колонок, найдено " + record.length;
+        }
+        if (isBlank(record[0])) {
+            return "Не указано имя игрока";
+        }
+        if (isBlank(record[1])) {
+            return "Не указана команда";
+        }
+        return null;
+    }
+    
+    private boolean isBlank(String value) {
+        if (value == null) return true;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c != '"' && !Character.isWhitespace(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
     private String cleanHeader(String header) {
         return header.replace("\"", "").trim().toLowerCase();
     }
@@ -0,0 +1,326 @@
+package com.example.sportstats.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Токенизатор CSV для формата ростера, где каждое поле записано как {@code " ""BAL"""}.
+ * Запись декодируется (RFC 4180: поля в кавычках, удвоенная кавычка внутри поля)
+ * в переиспользуемый буфер символов, поля хранятся как диапазоны в нем.
+ * Числа разбираются прямо из буфера, строка создается только когда вызывающий
+ * код забирает значение через {@link #text(int)}.
+ * <p>
+ * Значение поля очищается так же, как раньше делал CsvParser.cleanQuotes:
+ * все кавычки удаляются, пробелы по краям отбрасываются
+ */
+public final class RosterCsvTokenizer implements Closeable {
+    
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+    private static final int MAX_EXACT_DIGITS = 15;
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    
+    private final Reader reader;
+    private final char[] input = new char[READ_BUFFER_SIZE];
+    private int inputPos;
+    private int inputLimit;
+    
+    // Декодированная текущая запись и границы полей в ней
+    private char[] record = new char[256];
+    private int recordLength;
+    private int[] fieldStart = new int[8];
+    private int[] fieldEnd = new int[8];
+    private int fieldCount;
+    
+    private long lines;
+    private long recordLine;
+    
+    public RosterCsvTokenizer(Reader reader) {
+        this(reader, 0);
+    }
+    
+    /**
+     * @param linesBefore сколько физических строк файла предшествует началу reader
+     */
+    public RosterCsvTokenizer(Reader reader, long linesBefore) {
+        this.reader = reader;
+        this.lines = linesBefore;
+    }
+    
+    /**
+     * Читает следующую запись
+     * @return false, если достигнут конец данных
+     */
+    public boolean next() throws IOException {
+        int c = read();
+        if (c < 0) {
+            return false;
+        }
+        recordLength = 0;
+        fieldCount = 0;
+        recordLine = lines + 1;
+        
+        boolean quoted = false;
+        int start = 0;
+        while (true) {
+            if (quoted) {
+                if (c < 0) {
+                    break;
+                }
+                if (c == '"') {
+                    int n = read();
+                    if (n == '"') {
+                        append('"');
+                    } else {
+                        quoted = false;
+                        c = n;
+                        continue;
+                    }
+                } else {
+                    if (c == '\n') {
+                        lines++;
+                    }
+                    append((char) c);
+                }
+            } else if (c < 0 || c == '\n') {
+                if (c == '\n') {
+                    lines++;
+                }
+                // \r перед переводом строки не входит в значение
+                if (recordLength > start && record[recordLength - 1] == '\r') {
+                    recordLength--;
+                }
+                endField(start);
+                return true;
+            } else if (c == ',') {
+                endField(start);
+                start = recordLength;
+            } else if (c == '"' && recordLength == start) {
+                quoted = true;
+            } else {
+                append((char) c);
+            }
+            c = read();
+        }
+        // Файл оборвался внутри кавычек: отдаем то, что успели прочитать
+        endField(start);
+        return true;
+    }
+    
+    /**
+     * @return номер первой физической строки текущей записи
+     */
+    public long lineNumber() {
+        return recordLine;
+    }
+    
+    public int fieldCount() {
+        return fieldCount;
+    }
+    
+    /**
+     * @return true, если после очистки от кавычек и пробелов поле пустое
+     */
+    public boolean isBlank(int field) {
+        return trimmedStart(field) >= trimmedEnd(field);
+    }
+    
+    /**
+     * Очищенное значение поля в виде новой строки
+     */
+    public String text(int field) {
+        int from = trimmedStart(field);
+        int to = trimmedEnd(field);
+        if (from >= to) {
+            return "";
+        }
+        int quotes = 0;
+        for (int i = from; i < to; i++) {
+            if (record[i] == '"') {
+                quotes++;
+            }
+        }
+        if (quotes == 0) {
+            return new String(record, from, to - from);
+        }
+        char[] chars = new char[to - from - quotes];
+        int length = 0;
+        for (int i = from; i < to; i++) {
+            if (record[i] != '"') {
+                chars[length++] = record[i];
+            }
+        }
+        return new String(chars);
+    }
+    
+    /**
+     * Очищенное значение поля из словаря: для уже встречавшегося значения
+     * строка не создается
+     */
+    public String text(int field, StringPool pool) {
+        int from = trimmedStart(field);
+        int to = trimmedEnd(field);
+        for (int i = from; i < to; i++) {
+            if (record[i] == '"') {
+                return pool.intern(text(field));
+            }
+        }
+        return pool.intern(record, from, Math.max(from, to));
+    }
+    
+    /**
+     * Очищенное значение поля, разобранное как целое число
+     * @return null для пустого поля
+     * @throws NumberFormatException если значение не является целым числом
+     */
+    public Integer intValue(int field) {
+        int from = trimmedStart(field);
+        int to = trimmedEnd(field);
+        if (from >= to) {
+            return null;
+        }
+        boolean negative = false;
+        long value = 0;
+        int digits = 0;
+        for (int i = from; i < to; i++) {
+            char c = record[i];
+            if (c == '"') {
+                continue;
+            }
+            if ((c == '-' || c == '+') && digits == 0 && !negative && i == from) {
+                negative = c == '-';
+                continue;
+            }
+            if (c < '0' || c > '9' || ++digits > 10) {
+                throw invalidNumber(field);
+            }
+            value = value * 10 + (c - '0');
+        }
+        if (digits == 0) {
+            throw invalidNumber(field);
+        }
+        value = negative ? -value : value;
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw invalidNumber(field);
+        }
+        return (int) value;
+    }
+    
+    /**
+     * Очищенное значение поля, разобранное как число с плавающей точкой.
+     * Десятичные дроби до 15 значащих цифр считаются без создания строки:
+     * целая мантисса и степень десяти точно представимы в double, поэтому одно
+     * деление дает тот же результат, что и Double.parseDouble. Остальные
+     * формы (экспонента, длинная мантисса) передаются в Double.parseDouble
+     * @return null для пустого поля
+     * @throws NumberFormatException если значение не является числом
+     */
+    public Double doubleValue(int field) {
+        int from = trimmedStart(field);
+        int to = trimmedEnd(field);
+        if (from >= to) {
+            return null;
+        }
+        boolean negative = false;
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean dot = false;
+        for (int i = from; i < to; i++) {
+            char c = record[i];
+            if (c == '"') {
+                continue;
+            }
+            if ((c == '-' || c == '+') && i == from) {
+                negative = c == '-';
+            } else if (c == '.' && !dot) {
+                dot = true;
+            } else if (c >= '0' && c <= '9' && digits < MAX_EXACT_DIGITS) {
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (dot) {
+                    scale++;
+                }
+            } else {
+                return Double.parseDouble(text(field));
+            }
+        }
+        if (digits == 0) {
+            throw invalidNumber(field);
+        }
+        double value = mantissa / POWERS_OF_TEN[scale];
+        return negative ? -value : value;
+    }
+    
+    /**
+     * Поля текущей записи в декодированном виде (как их вернул бы CSVReader).
+     * Нужны для заголовка и отчета об отклоненных строках
+     */
+    public String[] rawFields() {
+        String[] fields = new String[fieldCount];
+        for (int i = 0; i < fieldCount; i++) {
+            fields[i] = new String(record, fieldStart[i], fieldEnd[i] - fieldStart[i]);
+        }
+        return fields;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+    
+    private NumberFormatException invalidNumber(int field) {
+        return new NumberFormatException("For input string: \"" + text(field) + "\"");
+    }
+    
+    private int trimmedStart(int field) {
+        int i = fieldStart[field];
+        int end = fieldEnd[field];
+        while (i < end && (record[i] == '"' || record[i] <= ' ')) {
+            i++;
+        }
+        return i;
+    }
+    
+    private int trimmedEnd(int field) {
+        int start = fieldStart[field];
+        int i = fieldEnd[field];
+        while (i > start && (record[i - 1] == '"' || record[i - 1] <= ' ')) {
+            i--;
+        }
+        return i;
+    }
+    
+    private void endField(int start) {
+        if (fieldCount == fieldStart.length) {
+            fieldStart = Arrays.copyOf(fieldStart, fieldCount * 2);
+            fieldEnd = Arrays.copyOf(fieldEnd, fieldCount * 2);
+        }
+        fieldStart[fieldCount] = start;
+        fieldEnd[fieldCount] = recordLength;
+        fieldCount++;
+    }
+    
+    private void append(char c) {
+        if (recordLength == record.length) {
+            record = Arrays.copyOf(record, recordLength * 2);
+        }
+        record[recordLength++] = c;
+    }
+    
+    private int read() throws IOException {
+        if (inputPos == inputLimit) {
+            inputLimit = reader.read(input, 0, input.length);
+            inputPos = 0;
+            if (inputLimit <= 0) {
+                inputLimit = 0;
+                return -1;
+            }
+        }
+        return input[inputPos++];
+    }
+}
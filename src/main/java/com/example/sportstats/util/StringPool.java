@@ -0,0 +1,122 @@
+package com.example.sportstats.util;
+
+/**
+ * Словарь строк с небольшим числом различных значений (коды команд, позиции).
+ * Все игроки одной команды ссылаются на один экземпляр строки вместо собственной копии.
+ * <p>
+ * Поиск возможен прямо по диапазону символов буфера, так что для уже известного
+ * значения строка вообще не создается. Таблица с открытой адресацией
+ * заменяется целиком при добавлении (copy-on-write), поэтому чтение идет без блокировок.
+ * Размер ограничен: после заполнения новые значения возвращаются как есть, без кэширования,
+ * чтобы мусорные данные не раздували словарь
+ */
+public final class StringPool {
+    
+    public static final StringPool TEAMS = new StringPool(1024);
+    public static final StringPool POSITIONS = new StringPool(1024);
+    
+    private final int maxSize;
+    private volatile String[] table = new String[64];
+    private int size;
+    
+    public StringPool(int maxSize) {
+        this.maxSize = maxSize;
+    }
+    
+    /**
+     * @return канонический экземпляр строки, равной value
+     */
+    public String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String[] current = table;
+        int mask = current.length - 1;
+        for (int i = value.hashCode() & mask; ; i = (i + 1) & mask) {
+            String candidate = current[i];
+            if (candidate == null) {
+                return add(value);
+            }
+            if (candidate.equals(value)) {
+                return candidate;
+            }
+        }
+    }
+    
+    /**
+     * Ищет значение по диапазону [from, to) буфера, строка создается только для нового значения
+     * @return канонический экземпляр строки с этими символами
+     */
+    public String intern(char[] chars, int from, int to) {
+        int hash = 0;
+        for (int i = from; i < to; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        String[] current = table;
+        int mask = current.length - 1;
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            String candidate = current[i];
+            if (candidate == null) {
+                return add(new String(chars, from, to - from));
+            }
+            if (matches(candidate, chars, from, to)) {
+                return candidate;
+            }
+        }
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    private synchronized String add(String value) {
+        // Повторная проверка: значение могли добавить, пока мы искали без блокировки
+        String[] current = table;
+        int mask = current.length - 1;
+        int slot = value.hashCode() & mask;
+        while (current[slot] != null) {
+            if (current[slot].equals(value)) {
+                return current[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (size >= maxSize) {
+            return value;
+        }
+        
+        // Заполненность держим не выше половины, чтобы цепочки поиска были короткими
+        String[] next = (size + 1) * 2 > current.length ? new String[current.length * 2] : current.clone();
+        int nextMask = next.length - 1;
+        if (next.length != current.length) {
+            for (String existing : current) {
+                if (existing != null) {
+                    insert(next, nextMask, existing);
+                }
+            }
+        }
+        insert(next, nextMask, value);
+        size++;
+        table = next;
+        return value;
+    }
+    
+    private static void insert(String[] target, int mask, String value) {
+        int slot = value.hashCode() & mask;
+        while (target[slot] != null) {
+            slot = (slot + 1) & mask;
+        }
+        target[slot] = value;
+    }
+    
+    private static boolean matches(String candidate, char[] chars, int from, int to) {
+        if (candidate.length() != to - from) {
+            return false;
+        }
+        for (int i = from; i < to; i++) {
+            if (candidate.charAt(i - from) != chars[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
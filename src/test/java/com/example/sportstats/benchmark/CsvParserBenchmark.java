@@ -0,0 +1,95 @@
+package com.example.sportstats.benchmark;
+
+import com.example.sportstats.model.Player;
+import com.example.sportstats.util.CsvParser;
+import com.example.sportstats.util.CsvValidator;
+import com.opencsv.CSVReader;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.StringReader;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение разбора CSV в формате ростера: прежний путь через OpenCSV
+ * (readNext + cleanQuotes + parseInt/parseDouble) и RosterCsvTokenizer.
+ * <p>
+ * Запуск: mvn test-compile, затем
+ * java -cp target/test-classes:target/classes:&lt;classpath&gt; com.example.sportstats.benchmark.CsvParserBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CsvParserBenchmark {
+
+    private static final String[] TEAMS = {"BAL", "NYY", "BOS", "TOR", "TB", "CLE", "DET", "KC", "MIN", "CWS"};
+    private static final String[] POSITIONS = {"Catcher", "First Baseman", "Shortstop", "Outfielder", "Starting Pitcher"};
+
+    @Param({"100000"})
+    private int rows;
+
+    private String csv;
+    private CsvParser csvParser;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder(rows * 64);
+        sb.append("Name,\" \"\"Team\"\"\",\" \"\"Position\"\"\",\" \"\"Height(inches)\"\"\",")
+          .append("\" \"\"Weight(lbs)\"\"\",\" \"\"Age\"\"\"\n");
+        for (int i = 0; i < rows; i++) {
+            sb.append("Player ").append(i)
+              .append(",\" \"\"").append(TEAMS[random.nextInt(TEAMS.length)]).append("\"\"\"")
+              .append(",\" \"\"").append(POSITIONS[random.nextInt(POSITIONS.length)]).append("\"\"\"")
+              .append(',').append(66 + random.nextInt(16))
+              .append(',').append(150 + random.nextInt(140))
+              .append(',').append(20 + random.nextInt(25)).append('.').append(10 + random.nextInt(90))
+              .append('\n');
+        }
+        csv = sb.toString();
+        csvParser = new CsvParser(new CsvValidator());
+    }
+
+    @Benchmark
+    public void openCsv(Blackhole blackhole) throws Exception {
+        try (CSVReader reader = new CSVReader(new StringReader(csv))) {
+            reader.readNext();
+            String[] record;
+            while ((record = reader.readNext()) != null) {
+                if (record.length >= 6) {
+                    blackhole.consume(new Player(
+                            cleanQuotes(record[0]),
+                            cleanQuotes(record[1]),
+                            cleanQuotes(record[2]),
+                            Integer.parseInt(cleanQuotes(record[3])),
+                            Integer.parseInt(cleanQuotes(record[4])),
+                            Double.parseDouble(cleanQuotes(record[5]))));
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void rosterTokenizer(Blackhole blackhole) throws Exception {
+        csvParser.stream(new StringReader(csv), blackhole::consume);
+    }
+
+    private static String cleanQuotes(String value) {
+        return value.replace("\"", "").trim();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(CsvParserBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build();
+        new Runner(options).run();
+    }
+}
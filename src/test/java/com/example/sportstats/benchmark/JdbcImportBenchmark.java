@@ -0,0 +1,130 @@
+package com.example.sportstats.benchmark;
+
+import com.example.sportstats.model.Player;
+import com.example.sportstats.service.ImportCounters;
+import com.example.sportstats.service.JdbcBatchImporter;
+import org.h2.tools.Server;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Время загрузки CSV в профиле jdbc без разбора файла: прежняя запись по одной строке
+ * (SELECT COUNT(*) по id и INSERT, каждый в своей транзакции) против JdbcBatchImporter
+ * пачками по sportstats.import.batch-size строк. Каждое измерение - в пустую таблицу
+ * H2 с одним соединением, как у пула в приложении: встроенной (mem) или на TCP сервере
+ * H2 в том же процессе (tcp), где каждый оператор - обмен по сети.
+ * <p>
+ * Запуск: mvn test-compile, затем
+ * java -cp target/test-classes:target/classes:&lt;classpath&gt; com.example.sportstats.benchmark.JdbcImportBenchmark
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgs = {"-Xmx3g"})
+public class JdbcImportBenchmark {
+
+    private static final String[] TEAMS = {"BAL", "NYY", "BOS", "TOR", "TB", "CLE", "DET", "KC", "MIN", "CWS"};
+    private static final String[] POSITIONS = {"Catcher", "First Baseman", "Shortstop", "Outfielder", "Starting Pitcher"};
+
+    @Param({"1000000"})
+    private int rows;
+
+    @Param({"1000"})
+    private int batchSize;
+
+    @Param({"mem", "tcp"})
+    private String database;
+
+    private List<Player> players;
+    private Server server;
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private int databases;
+
+    @Setup
+    public void setUp() throws SQLException {
+        if ("tcp".equals(database)) {
+            server = Server.createTcpServer("-tcpPort", "0", "-ifNotExists").start();
+        }
+        Random random = new Random(42);
+        players = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            players.add(new Player("Player " + i,
+                    TEAMS[random.nextInt(TEAMS.length)],
+                    POSITIONS[random.nextInt(POSITIONS.length)],
+                    66 + random.nextInt(16),
+                    150 + random.nextInt(140),
+                    20 + random.nextInt(25) + random.nextInt(100) / 100.0));
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void createDatabase() {
+        String name = "mem:import" + databases++ + ";DB_CLOSE_DELAY=-1";
+        String url = server == null ? "jdbc:h2:" + name : "jdbc:h2:tcp://localhost:" + server.getPort() + "/" + name;
+        dataSource = new SingleConnectionDataSource(url, "sa", "", true);
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @TearDown(Level.Iteration)
+    public void dropDatabase() {
+        jdbcTemplate.execute("SHUTDOWN");
+        dataSource.destroy();
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    @Benchmark
+    public int rowByRow() {
+        String insert = "INSERT INTO players (id, name, team, position, height_inches, weight_lbs, age) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?)";
+        int imported = 0;
+        for (Player player : players) {
+            Integer count = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM players WHERE id = ?", Integer.class, player.getId());
+            if (count == null || count == 0) {
+                imported += jdbcTemplate.update(insert, player.getId(), player.getName(), player.getTeam(),
+                        player.getPosition(), player.getHeightInches(), player.getWeightLbs(), player.getAge());
+            }
+        }
+        return imported;
+    }
+
+    @Benchmark
+    public long batched() {
+        JdbcBatchImporter importer = new JdbcBatchImporter(jdbcTemplate, new DataSourceTransactionManager(dataSource));
+        ImportCounters counters = new ImportCounters();
+        for (int from = 0; from < players.size(); from += batchSize) {
+            importer.importChunk(players.subList(from, Math.min(from + batchSize, players.size())), counters);
+        }
+        return counters.getImported();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(JdbcImportBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
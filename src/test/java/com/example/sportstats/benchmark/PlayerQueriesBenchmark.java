@@ -0,0 +1,219 @@
+package com.example.sportstats.benchmark;
+
+import com.example.sportstats.model.Player;
+import com.example.sportstats.repository.CsvRepository;
+import com.example.sportstats.repository.PlayerQueries.Metric;
+import com.example.sportstats.util.CsvParser;
+import com.example.sportstats.util.CsvValidator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Чтение из хранилища CSV профиля: колоночное хранилище (CsvRepository) против
+ * прежнего ConcurrentHashMap с объектами Player, по которому все выборки считались
+ * обходом всех игроков (как PlayerService без PlayerQueries).
+ * <p>
+ * Запуск: mvn test-compile, затем
+ * java -cp target/test-classes:target/classes:&lt;classpath&gt; com.example.sportstats.benchmark.PlayerQueriesBenchmark
+ * или, чтобы увидеть и объем выделенной памяти на вызов, через
+ * java -cp ... org.openjdk.jmh.Main PlayerQueriesBenchmark -prof gc
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx3g"})
+public class PlayerQueriesBenchmark {
+
+    private static final String[] TEAMS = {"BAL", "NYY", "BOS", "TOR", "TB", "CLE", "DET", "KC", "MIN", "CWS"};
+    private static final String[] POSITIONS = {"Catcher", "First Baseman", "Shortstop", "Outfielder", "Starting Pitcher"};
+
+    @Param({"1000000"})
+    private int rows;
+
+    private Map<String, Player> map;
+    private CsvRepository columns;
+    private String[] ids;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        List<Player> players = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            players.add(new Player("Player " + i, TEAMS[random.nextInt(TEAMS.length)],
+                    POSITIONS[random.nextInt(POSITIONS.length)], 66 + random.nextInt(16), 150 + random.nextInt(140),
+                    20 + random.nextInt(2500) / 100.0));
+        }
+        map = new ConcurrentHashMap<>();
+        players.forEach(p -> map.put(p.getId(), p));
+        columns = new CsvRepository(new CsvParser(new CsvValidator()));
+        columns.insertAbsent(players);
+        ids = new String[1024];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = players.get(random.nextInt(rows)).getId();
+        }
+    }
+
+    // ========== ВСЕ ИГРОКИ И ПОИСК ПО ID (user-021) ==========
+
+    @Benchmark
+    public void findAllMap(Blackhole blackhole) {
+        for (Player player : new ArrayList<>(map.values())) {
+            blackhole.consume(player.getWeightLbs());
+        }
+    }
+
+    @Benchmark
+    public void findAllColumns(Blackhole blackhole) {
+        for (Player player : columns.findAll()) {
+            blackhole.consume(player.getWeightLbs());
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Player findByIdMap() {
+        return map.get(ids[next++ & (ids.length - 1)]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Player findByIdColumns() {
+        return columns.findById(ids[next++ & (ids.length - 1)]);
+    }
+
+    // ========== КОМАНДА И ПОЗИЦИЯ (user-022) ==========
+
+    @Benchmark
+    public List<Player> findByTeamMap() {
+        return map.values().stream().filter(p -> "BOS".equals(p.getTeam())).toList();
+    }
+
+    @Benchmark
+    public List<Player> findByTeamColumns() {
+        return columns.findByTeam("BOS");
+    }
+
+    @Benchmark
+    public List<Player> findByTeamAndPositionMap() {
+        return map.values().stream()
+                .filter(p -> "BOS".equals(p.getTeam()) && "Catcher".equals(p.getPosition())).toList();
+    }
+
+    @Benchmark
+    public List<Player> findByTeamAndPositionColumns() {
+        return columns.findByTeamAndPosition("BOS", "Catcher");
+    }
+
+    // ========== ДИАПАЗОНЫ И ПЕРВЫЕ ПО ЗНАЧЕНИЮ (user-023) ==========
+
+    @Benchmark
+    public List<Player> ageRangeMap() {
+        return map.values().stream()
+                .filter(p -> p.getAge() != null && p.getAge() >= 30 && p.getAge() <= 30.5).toList();
+    }
+
+    @Benchmark
+    public List<Player> ageRangeColumns() {
+        return columns.findInRange(Metric.AGE, 30, 30.5);
+    }
+
+    @Benchmark
+    public List<Player> top10HeaviestMap() {
+        return map.values().stream()
+                .filter(p -> p.getWeightLbs() != null)
+                .sorted(Comparator.comparing(Player::getWeightLbs).reversed())
+                .limit(10).toList();
+    }
+
+    @Benchmark
+    public List<Player> top10HeaviestColumns() {
+        return columns.findTop(Metric.WEIGHT, 10);
+    }
+
+    // ========== СРЕДНИЕ И КОЛИЧЕСТВА (user-024) ==========
+
+    @Benchmark
+    public OptionalDouble averageAgeMap() {
+        return map.values().stream().filter(p -> p.getAge() != null).mapToDouble(Player::getAge).average();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public OptionalDouble averageAgeColumns() {
+        return columns.average(Metric.AGE);
+    }
+
+    @Benchmark
+    public OptionalDouble teamAverageWeightMap() {
+        return map.values().stream()
+                .filter(p -> "BOS".equals(p.getTeam()) && p.getWeightLbs() != null)
+                .mapToInt(Player::getWeightLbs).average();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public OptionalDouble teamAverageWeightColumns() {
+        return columns.average(Metric.WEIGHT, "BOS");
+    }
+
+    @Benchmark
+    public Map<String, Long> countByTeamMap() {
+        return map.values().stream().collect(Collectors.groupingBy(Player::getTeam, Collectors.counting()));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Map<String, Long> countByTeamColumns() {
+        return columns.countByTeam();
+    }
+
+    // ========== НАИМЕНЬШЕЕ И НАИБОЛЬШЕЕ (user-025) ==========
+
+    @Benchmark
+    public List<Player> youngestMap() {
+        double minAge = map.values().stream()
+                .filter(p -> p.getAge() != null).mapToDouble(Player::getAge).min().orElse(0);
+        return map.values().stream().filter(p -> p.getAge() != null && p.getAge() == minAge).toList();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public List<Player> youngestColumns() {
+        return columns.findWithMin(Metric.AGE);
+    }
+
+    @Benchmark
+    public OptionalDouble maxHeightMap() {
+        return map.values().stream()
+                .filter(p -> p.getHeightInches() != null).mapToDouble(Player::getHeightInches).max();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public OptionalDouble maxHeightColumns() {
+        return columns.max(Metric.HEIGHT);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(PlayerQueriesBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
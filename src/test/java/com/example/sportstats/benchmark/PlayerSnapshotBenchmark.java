@@ -0,0 +1,110 @@
+package com.example.sportstats.benchmark;
+
+import com.example.sportstats.model.Player;
+import com.example.sportstats.repository.PlayerSnapshot;
+import com.example.sportstats.util.CsvParser;
+import com.example.sportstats.util.CsvValidator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Время заполнения хранилища CSV профиля при старте: разбор CSV
+ * (последовательный и параллельный) против чтения бинарного снимка.
+ * <p>
+ * Запуск: mvn test-compile, затем
+ * java -cp target/test-classes:target/classes:&lt;classpath&gt; com.example.sportstats.benchmark.PlayerSnapshotBenchmark
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class PlayerSnapshotBenchmark {
+
+    private static final String[] TEAMS = {"BAL", "NYY", "BOS", "TOR", "TB", "CLE", "DET", "KC", "MIN", "CWS"};
+    private static final String[] POSITIONS = {"Catcher", "First Baseman", "Shortstop", "Outfielder", "Starting Pitcher"};
+
+    @Param({"1000000"})
+    private int rows;
+
+    private Path dir;
+    private Path csv;
+    private Path snapshot;
+    private CsvParser sequentialParser;
+    private CsvParser parallelParser;
+
+    @Setup
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("snapshot-bench");
+        csv = dir.resolve("players.csv");
+        snapshot = dir.resolve("players.snapshot");
+
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder(rows * 64);
+        sb.append("Name,\" \"\"Team\"\"\",\" \"\"Position\"\"\",\" \"\"Height(inches)\"\"\",")
+          .append("\" \"\"Weight(lbs)\"\"\",\" \"\"Age\"\"\"\n");
+        for (int i = 0; i < rows; i++) {
+            sb.append("Player ").append(i)
+              .append(",\" \"\"").append(TEAMS[random.nextInt(TEAMS.length)]).append("\"\"\"")
+              .append(",\" \"\"").append(POSITIONS[random.nextInt(POSITIONS.length)]).append("\"\"\"")
+              .append(',').append(66 + random.nextInt(16))
+              .append(',').append(150 + random.nextInt(140))
+              .append(',').append(20 + random.nextInt(25)).append('.').append(10 + random.nextInt(90))
+              .append('\n');
+        }
+        Files.writeString(csv, sb);
+
+        sequentialParser = new CsvParser(new CsvValidator());
+        parallelParser = new CsvParser(new CsvValidator(), 0, 8L << 20);
+        Map<String, Player> players = new HashMap<>();
+        sequentialParser.stream(csv, p -> players.put(p.getId(), p));
+        PlayerSnapshot.write(snapshot, players.values(), 1, 1, 0);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        parallelParser.shutdown();
+        Files.deleteIfExists(csv);
+        Files.deleteIfExists(snapshot);
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public Map<String, Player> csvSequential() throws IOException {
+        Map<String, Player> storage = new HashMap<>();
+        sequentialParser.stream(csv, p -> storage.put(p.getId(), p));
+        return storage;
+    }
+
+    @Benchmark
+    public Map<String, Player> csvParallel() throws IOException {
+        Map<String, Player> storage = new HashMap<>();
+        parallelParser.stream(csv, p -> storage.put(p.getId(), p));
+        return storage;
+    }
+
+    @Benchmark
+    public Map<String, Player> snapshot() throws IOException {
+        Map<String, Player> storage = new HashMap<>();
+        PlayerSnapshot.read(snapshot, 1, 1, p -> storage.put(p.getId(), p));
+        return storage;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(PlayerSnapshotBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
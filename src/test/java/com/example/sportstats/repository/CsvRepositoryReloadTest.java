@@ -0,0 +1,67 @@
+package com.example.sportstats.repository;
+
+import com.example.sportstats.model.Player;
+import com.example.sportstats.util.CsvParser;
+import com.example.sportstats.util.CsvValidator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvRepositoryReloadTest {
+
+    private static final String HEADER =
+            "Name,\" \"\"Team\"\"\",\" \"\"Position\"\"\",\" \"\"Height(inches)\"\"\",\" \"\"Weight(lbs)\"\"\",\" \"\"Age\"\"\"\n";
+
+    @Test
+    void reloadFrom_ShouldApplyOnlyDelta(@TempDir Path dir) throws Exception {
+        CsvRepository repository = new CsvRepository(new CsvParser(new CsvValidator()));
+        Path file = dir.resolve("players.csv");
+        Files.writeString(file, HEADER
+                + "Adam Donachie,\" \"\"BAL\"\"\",\" \"\"Catcher\"\"\",74,180,22.99\n"
+                + "Paul Bako,\" \"\"BAL\"\"\",\" \"\"Catcher\"\"\",74,215,34.69\n"
+                + "Ramon Hernandez,\" \"\"BAL\"\"\",\" \"\"Catcher\"\"\",72,210,30.78\n");
+        repository.reloadFrom(file);
+        repository.save(new Player("Nick Markakis", "BAL", "Outfielder", 74, 185, 23.0));
+        long rowWrites = repository.rowWrites();
+
+        Files.writeString(file, HEADER
+                + "Adam Donachie,\" \"\"BAL\"\"\",\" \"\"Catcher\"\"\",74,180,22.99\n"
+                + "Paul Bako,\" \"\"BAL\"\"\",\" \"\"Catcher\"\"\",74,220,34.69\n"
+                + "Kevin Millar,\" \"\"BAL\"\"\",\" \"\"First Baseman\"\"\",72,210,35.43\n");
+        Map<String, Object> result = repository.reloadFrom(file);
+
+        assertEquals(1, result.get("added"));
+        assertEquals(1, result.get("changed"));
+        assertEquals(1, result.get("removed"));
+        assertEquals(1, result.get("unchanged"));
+        assertEquals(1, result.get("keptNotInFile"));
+        assertEquals(4, repository.count());
+        // Записаны только добавленный и измененный игроки, неизменный не перезаписывался
+        assertEquals(rowWrites + 2, repository.rowWrites());
+        assertEquals(220, repository.findById(Player.generateId("Paul Bako", "BAL")).getWeightLbs());
+        assertFalse(repository.exists(Player.generateId("Ramon Hernandez", "BAL")));
+        // Игрок, добавленный через API, в файле не был и не удаляется
+        assertTrue(repository.exists(Player.generateId("Nick Markakis", "BAL")));
+    }
+
+    @Test
+    void reloadFrom_FirstReload_ShouldKeepPlayersNotInFile(@TempDir Path dir) throws Exception {
+        CsvRepository repository = new CsvRepository(new CsvParser(new CsvValidator()));
+        repository.save(new Player("Nick Markakis", "BAL", "Outfielder", 74, 185, 23.0));
+        Path file = dir.resolve("players.csv");
+        Files.writeString(file, HEADER
+                + "Adam Donachie,\" \"\"BAL\"\"\",\" \"\"Catcher\"\"\",74,180,22.99\n");
+
+        Map<String, Object> result = repository.reloadFrom(file);
+
+        assertEquals(1, result.get("added"));
+        assertEquals(0, result.get("removed"));
+        assertEquals(1, result.get("keptNotInFile"));
+        assertEquals(2, repository.count());
+    }
+}
@@ -0,0 +1,242 @@
+package com.example.sportstats.repository;
+
+import com.example.sportstats.model.Player;
+import com.example.sportstats.repository.PlayerQueries.Metric;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlayerColumnsTest {
+
+    private static final String[] TEAMS = {"BAL", "NYY", "BOS"};
+    private static final String[] POSITIONS = {"Catcher", "Outfielder", "Starting Pitcher"};
+
+    @Test
+    void putAndRemove_ShouldMatchMapUnderRandomChanges() {
+        PlayerColumns columns = new PlayerColumns(0);
+        Map<String, Player> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int step = 0; step < 20_000; step++) {
+            int n = random.nextInt(2_000);
+            if (random.nextInt(3) == 0) {
+                String id = Player.generateId("Player " + n, TEAMS[n % 3]);
+                assertEquals(expected.remove(id) != null, columns.remove(id));
+            } else {
+                Player player = randomPlayer(random, n);
+                assertEquals(!expected.containsKey(player.getId()), columns.put(player));
+                expected.put(player.getId(), player);
+            }
+        }
+
+        assertEquals(expected.size(), columns.size());
+        for (Player player : expected.values()) {
+            assertPlayerEquals(player, columns.get(player.getId()));
+        }
+        assertEquals(expected.size(), columns.rows().size());
+        assertNull(columns.get("BAL_Nobody"));
+
+        // Индексы по команде и позиции после перезаписей и удалений с переносом строк
+        for (String team : TEAMS) {
+            assertEquals(ids(expected.values().stream().filter(p -> team.equals(p.getTeam())).toList()),
+                    ids(columns.findByTeam(team)));
+            for (String position : POSITIONS) {
+                assertEquals(ids(expected.values().stream()
+                                .filter(p -> team.equals(p.getTeam()) && position.equals(p.getPosition())).toList()),
+                        ids(columns.findByTeamAndPosition(team, position)));
+            }
+        }
+        for (String position : POSITIONS) {
+            assertEquals(ids(expected.values().stream().filter(p -> position.equals(p.getPosition())).toList()),
+                    ids(columns.findByPosition(position)));
+        }
+
+        // Упорядоченные индексы возраста, роста и веса
+        assertEquals(ids(expected.values().stream()
+                        .filter(p -> p.getAge() != null && p.getAge() >= 25 && p.getAge() <= 30).toList()),
+                ids(columns.findInRange(Metric.AGE, 25, 30)));
+        assertEquals(ids(expected.values().stream()
+                        .filter(p -> p.getHeightInches() != null && p.getHeightInches() >= 75).toList()),
+                ids(columns.findInRange(Metric.HEIGHT, 75, Double.POSITIVE_INFINITY)));
+        assertTrue(columns.findInRange(Metric.WEIGHT, 300, 200).isEmpty());
+        assertEquals(expected.values().stream().map(Player::getWeightLbs).filter(w -> w != null)
+                        .sorted(Comparator.reverseOrder()).limit(10).toList(),
+                columns.findTop(Metric.WEIGHT, 10).stream().map(Player::getWeightLbs).toList());
+
+        // Суммы и количества, которые ведутся при каждом изменении
+        assertEquals(expected.values().stream().filter(p -> p.getAge() != null).mapToDouble(Player::getAge)
+                .average().getAsDouble(), columns.average(Metric.AGE).getAsDouble(), 1e-9);
+        assertEquals(expected.values().stream().filter(p -> "BAL".equals(p.getTeam()) && p.getWeightLbs() != null)
+                .mapToInt(Player::getWeightLbs).average(), columns.average(Metric.WEIGHT, "BAL"));
+        assertEquals(expected.values().stream().collect(Collectors.groupingBy(Player::getTeam, Collectors.counting())),
+                columns.countByTeam());
+        assertEquals(columns.findByTeam("NYY").size(), columns.countInTeam("NYY"));
+        assertTrue(columns.average(Metric.AGE, "SEA").isEmpty());
+
+        // Края упорядоченных индексов
+        double minAge = expected.values().stream().filter(p -> p.getAge() != null).mapToDouble(Player::getAge).min().getAsDouble();
+        assertEquals(minAge, columns.min(Metric.AGE).getAsDouble());
+        assertEquals(ids(expected.values().stream().filter(p -> p.getAge() != null && p.getAge() == minAge).toList()),
+                ids(columns.findWithMin(Metric.AGE)));
+        assertEquals(expected.values().stream().filter(p -> p.getWeightLbs() != null).mapToInt(Player::getWeightLbs).max().getAsInt(),
+                columns.max(Metric.WEIGHT).getAsDouble());
+    }
+
+    @Test
+    void queries_ShouldMatchScanOverPlayers() {
+        PlayerColumns columns = new PlayerColumns(0);
+        Random random = new Random(7);
+        for (int n = 0; n < 500; n++) {
+            columns.put(randomPlayer(random, n));
+        }
+        List<Player> all = columns.rows();
+
+        assertEquals(ids(all.stream().filter(p -> "BAL".equals(p.getTeam())).toList()),
+                ids(columns.findByTeam("BAL")));
+        assertEquals(ids(all.stream().filter(p -> "NYY".equals(p.getTeam()) && "Catcher".equals(p.getPosition())).toList()),
+                ids(columns.findByTeamAndPosition("NYY", "Catcher")));
+        assertTrue(columns.findByTeam("SEA").isEmpty());
+        assertEquals(ids(all.stream().filter(p -> p.getAge() != null && p.getAge() >= 25 && p.getAge() <= 30).toList()),
+                ids(columns.findInRange(Metric.AGE, 25, 30)));
+        assertEquals(all.stream().filter(p -> p.getWeightLbs() != null).mapToInt(Player::getWeightLbs).average(),
+                columns.average(Metric.WEIGHT));
+        assertEquals(all.stream().filter(p -> p.getHeightInches() != null).mapToInt(Player::getHeightInches).max().getAsInt(),
+                columns.max(Metric.HEIGHT).getAsDouble());
+        assertEquals(all.stream().filter(p -> p.getPosition() != null)
+                        .collect(Collectors.groupingBy(Player::getPosition, Collectors.counting())),
+                columns.countByPosition());
+        assertEquals(all.stream().filter(p -> p.getBmi() != null && p.getBmi() > 27).count(),
+                columns.findByBmiAbove(27).size());
+
+        List<Integer> top = columns.findTop(Metric.HEIGHT, 10).stream().map(Player::getHeightInches).toList();
+        assertEquals(all.stream().map(Player::getHeightInches).filter(h -> h != null)
+                .sorted(Comparator.reverseOrder()).limit(10).toList(), top);
+    }
+
+    @Test
+    void copy_ShouldChangeIndependently() {
+        PlayerColumns columns = new PlayerColumns(0);
+        columns.put(new Player("Adam Donachie", "BAL", "Catcher", 74, 180, 22.99));
+        columns.put(new Player("Paul Bako", "BAL", "Catcher", 74, 215, 34.69));
+
+        PlayerColumns copy = columns.copy(1);
+        copy.remove(Player.generateId("Adam Donachie", "BAL"));
+        copy.put(new Player("Derek Jeter", "NYY", "Shortstop", 75, 195, 32.5));
+
+        assertEquals(2, columns.findByTeamAndPosition("BAL", "Catcher").size());
+        assertTrue(columns.findByTeam("NYY").isEmpty());
+        assertEquals(List.of("BAL_Paul_Bako"), ids(copy.findByTeamAndPosition("BAL", "Catcher")));
+        assertEquals(List.of("NYY_Derek_Jeter"), ids(copy.findByPosition("Shortstop")));
+    }
+
+    @Test
+    void rows_ShouldKeepStateAtCall() {
+        PlayerColumns columns = new PlayerColumns(0);
+        Player adam = new Player("Adam Donachie", "BAL", "Catcher", 74, 180, 22.99);
+        columns.put(adam);
+        columns.put(new Player("Paul Bako", "BAL", null, null, 215, null));
+
+        List<Player> rows = columns.rows();
+        columns.remove(adam.getId());
+        columns.put(new Player("Derek Jeter", "NYY", "Shortstop", 75, 195, 32.5));
+
+        assertEquals(List.of("BAL_Adam_Donachie", "BAL_Paul_Bako"), ids(rows));
+        assertEquals(22.99, rows.get(0).getAge());
+        assertNull(rows.get(1).getPosition());
+        assertNull(rows.get(1).getAge());
+        assertThrows(UnsupportedOperationException.class, () -> rows.add(adam));
+        assertEquals(2, columns.rows().size());
+    }
+
+    @Test
+    void findWithMin_AfterDeletingYoungest_ShouldReturnNextAge() {
+        PlayerColumns columns = new PlayerColumns(0);
+        columns.put(new Player("Adam Donachie", "BAL", "Catcher", 74, 180, 22.99));
+        columns.put(new Player("Nick Markakis", "BAL", "Outfielder", 74, 185, 22.99));
+        columns.put(new Player("Paul Bako", "BAL", "Catcher", 74, 215, 34.69));
+
+        assertEquals(List.of("BAL_Adam_Donachie", "BAL_Nick_Markakis"), ids(columns.findWithMin(Metric.AGE)));
+        columns.remove("BAL_Adam_Donachie");
+        columns.remove("BAL_Nick_Markakis");
+
+        assertEquals(List.of("BAL_Paul_Bako"), ids(columns.findWithMin(Metric.AGE)));
+        assertEquals(34.69, columns.max(Metric.AGE).getAsDouble());
+        columns.remove("BAL_Paul_Bako");
+        assertTrue(columns.min(Metric.AGE).isEmpty());
+        assertTrue(columns.findWithMax(Metric.AGE).isEmpty());
+    }
+
+    @Test
+    void get_WithCustomId_ShouldKeepIt() {
+        PlayerColumns columns = new PlayerColumns(0);
+        Player player = new Player("Adam Donachie", "BAL", "Catcher", 74, null, 22.99);
+        player.setId("custom-1");
+        columns.put(player);
+
+        Player stored = columns.get("custom-1");
+        assertEquals("custom-1", stored.getId());
+        assertNull(stored.getWeightLbs());
+        assertNull(columns.get(Player.generateId("Adam Donachie", "BAL")));
+
+        // Сгенерированный id не хранится: поиск сравнивает его с именем и командой строки
+        Player accented = new Player("José Peña \uD83D\uDE00", "BAL", "Catcher", 72, 190, 28.5);
+        columns.put(accented);
+        assertEquals("BAL_Jos__Pe_a__", accented.getId());
+        assertEquals("José Peña \uD83D\uDE00", columns.get("BAL_Jos__Pe_a__").getName());
+        assertNull(columns.get("BAL_Jos__Pe_a_"));
+    }
+
+    @Test
+    void remove_ShouldMoveCustomIdWithLastRow() {
+        PlayerColumns columns = new PlayerColumns(0);
+        columns.put(new Player("Adam Donachie", "BAL", "Catcher", 74, 180, 22.99));
+        Player custom = new Player("Paul Bako", "BAL", "Catcher", 74, 215, 34.69);
+        custom.setId("custom-2");
+        columns.put(custom);
+        columns.put(new Player("Derek Jeter", "NYY", "Shortstop", 75, 195, 32.5));
+        columns.put(new Player("no-team", "Nick Markakis", null, "Outfielder", 74, 185, 23.0));
+
+        // Последняя строка с собственным id переезжает на место удаленной первой
+        assertTrue(columns.remove("BAL_Adam_Donachie"));
+        assertTrue(columns.remove("NYY_Derek_Jeter"));
+
+        assertEquals(List.of("custom-2", "no-team"), ids(columns.rows()));
+        assertEquals(List.of("custom-2", "no-team"), columns.ids().stream().sorted().toList());
+        assertEquals("Paul Bako", columns.get("custom-2").getName());
+        assertNull(columns.get("no-team").getTeam());
+        assertNull(columns.get("BAL_Paul_Bako"));
+        assertEquals(List.of("custom-2"), ids(columns.findByTeam("BAL")));
+        assertEquals(List.of("no-team"), ids(columns.findByPosition("Outfielder")));
+        assertEquals(Map.of("BAL", 1L), columns.countByTeam());
+
+        // Игрок с тем же именем и командой снова получает сгенерированный id
+        columns.put(new Player("Paul Bako", "BAL", "Catcher", 74, 215, 34.69));
+        assertEquals(List.of("BAL_Paul_Bako", "custom-2", "no-team"), ids(columns.rows()));
+        assertTrue(columns.remove("custom-2"));
+        assertEquals(List.of("BAL_Paul_Bako", "no-team"), ids(columns.rows()));
+    }
+
+    private static Player randomPlayer(Random random, int n) {
+        return new Player("Player " + n, TEAMS[n % 3], POSITIONS[random.nextInt(POSITIONS.length)],
+                random.nextInt(10) == 0 ? null : 68 + random.nextInt(12),
+                random.nextInt(10) == 0 ? null : 170 + random.nextInt(80),
+                random.nextInt(10) == 0 ? null : 20 + random.nextInt(2000) / 100.0);
+    }
+
+    private static void assertPlayerEquals(Player expected, Player actual) {
+        assertNotNull(actual);
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(Player.contentHash(expected), Player.contentHash(actual));
+    }
+
+    private static List<String> ids(List<Player> players) {
+        return players.stream().map(Player::getId).sorted().toList();
+    }
+}
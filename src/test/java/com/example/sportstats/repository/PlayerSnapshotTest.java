@@ -0,0 +1,113 @@
+package com.example.sportstats.repository;
+
+import com.example.sportstats.model.Player;
+import com.example.sportstats.util.CsvParser;
+import com.example.sportstats.util.CsvValidator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlayerSnapshotTest {
+
+    @Test
+    void read_ShouldRestoreWrittenPlayers(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("players.snapshot");
+        List<Player> players = List.of(
+                new Player("Adam Donachie", "BAL", "Catcher", 74, 180, 22.99),
+                new Player("José Ñúñez 𝔸", "NYY", null, null, 200, null),
+                new Player("custom-id", "Paul Bako", "BAL", "Catcher", 74, null, 34.69));
+
+        PlayerSnapshot.write(file, players, 100, 200, 0);
+        List<Player> restored = new ArrayList<>();
+        long logSequence = PlayerSnapshot.read(file, 100, 200, restored::add);
+
+        assertEquals(0, logSequence);
+        assertEquals(3, restored.size());
+        for (int i = 0; i < players.size(); i++) {
+            Player expected = players.get(i);
+            Player actual = restored.get(i);
+            assertEquals(expected.getId(), actual.getId());
+            assertEquals(expected.getName(), actual.getName());
+            assertEquals(expected.getTeam(), actual.getTeam());
+            assertEquals(expected.getPosition(), actual.getPosition());
+            assertEquals(expected.getHeightInches(), actual.getHeightInches());
+            assertEquals(expected.getWeightLbs(), actual.getWeightLbs());
+            assertEquals(expected.getAge(), actual.getAge());
+        }
+    }
+
+    @Test
+    void read_WhenSourceChangedOrFileCorrupted_ShouldReturnMinusOne(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("players.snapshot");
+        PlayerSnapshot.write(file, List.of(new Player("Adam Donachie", "BAL", "Catcher", 74, 180, 22.99)), 100, 200, 0);
+
+        assertEquals(-1, PlayerSnapshot.read(file, 101, 200, p -> fail("Stale snapshot must not be read")));
+        assertEquals(-1, PlayerSnapshot.read(dir.resolve("missing.snapshot"), 100, 200, p -> fail()));
+
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 20] ^= 1;
+        Files.write(file, bytes);
+        assertEquals(-1, PlayerSnapshot.read(file, 100, 200, p -> fail("Corrupted snapshot must not be read")));
+    }
+
+    @Test
+    void read_WhenSnapshotHasLoggedChangesAndSourceChanged_ShouldFail(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("players.snapshot");
+        PlayerSnapshot.write(file, List.of(new Player("Adam Donachie", "BAL", "Catcher", 74, 180, 22.99)), 100, 200, 42);
+
+        assertThrows(IllegalStateException.class,
+                () -> PlayerSnapshot.read(file, 101, 200, p -> fail("Stale snapshot must not be read")));
+        assertEquals(42, PlayerSnapshot.read(file, 100, 200, p -> { }));
+    }
+
+    @Test
+    void init_WhenCsvChangedAfterWrite_ShouldFailStartup(@TempDir Path dir) throws Exception {
+        // Снимок после сохранения через API записан для другой версии players.csv
+        Path snapshot = dir.resolve("players.snapshot");
+        PlayerSnapshot.write(snapshot, List.of(new Player("Adam Donachie", "BAL", "Catcher", 74, 180, 22.99)), 1, 1, 3);
+        String wal = dir.resolve("wal").toString();
+
+        CsvRepository stale = new CsvRepository(new CsvParser(new CsvValidator()), snapshot.toString(), wal, false, Long.MAX_VALUE);
+        IllegalStateException error = assertThrows(IllegalStateException.class, stale::init);
+        assertTrue(error.getMessage().contains("players.csv"));
+        assertEquals(0, stale.count());
+
+        Files.delete(snapshot);
+        CsvRepository fresh = new CsvRepository(new CsvParser(new CsvValidator()), snapshot.toString(), wal, false, Long.MAX_VALUE);
+        fresh.init();
+        fresh.close();
+        assertTrue(fresh.count() > 1);
+    }
+
+    @Test
+    void init_WhenCsvOnlyRebuilt_ShouldUseCompactedSnapshot(@TempDir Path dir) throws Exception {
+        String snapshot = dir.resolve("players.snapshot").toString();
+        String wal = dir.resolve("wal").toString();
+        CsvRepository first = new CsvRepository(new CsvParser(new CsvValidator()), snapshot, wal, false, Long.MAX_VALUE);
+        first.init();
+        first.save(new Player("Nick Markakis", "BAL", "Outfielder", 74, 185, 23.0));
+        assertTrue(first.writeSnapshot());
+        first.close();
+
+        // Новая сборка: содержимое players.csv то же, время изменения другое
+        Path csv = new ClassPathResource("players.csv").getFile().toPath();
+        FileTime modified = Files.getLastModifiedTime(csv);
+        try {
+            Files.setLastModifiedTime(csv, FileTime.fromMillis(modified.toMillis() + 86_400_000));
+            CsvRepository restarted = new CsvRepository(new CsvParser(new CsvValidator()), snapshot, wal, false, Long.MAX_VALUE);
+            restarted.init();
+            restarted.close();
+            assertTrue(restarted.exists(Player.generateId("Nick Markakis", "BAL")));
+        } finally {
+            Files.setLastModifiedTime(csv, modified);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.sportstats.repository;
+
+import com.example.sportstats.model.Player;
+import com.example.sportstats.util.CsvParser;
+import com.example.sportstats.util.CsvValidator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlayerWriteAheadLogTest {
+
+    @Test
+    void walWithoutSnapshotPath_ShouldCompactNextToLogDirectory(@TempDir Path dir) throws Exception {
+        String wal = dir.resolve("wal").toString();
+        CsvRepository repository = new CsvRepository(new CsvParser(new CsvValidator()), "", wal, false, Long.MAX_VALUE);
+        repository.init();
+        repository.save(new Player("Nick Markakis", "BAL", "Outfielder", 74, 185, 23.0));
+
+        assertTrue(repository.writeSnapshot());
+        repository.close();
+
+        assertTrue(Files.isRegularFile(dir.resolve("players.snapshot")));
+        // Сегмент с сохранением вошел в снимок и удален, остался только новый пустой
+        assertEquals(1, segments(dir.resolve("wal")).size());
+        CsvRepository restarted = new CsvRepository(new CsvParser(new CsvValidator()), "", wal, false, Long.MAX_VALUE);
+        restarted.init();
+        restarted.close();
+        assertTrue(restarted.exists(Player.generateId("Nick Markakis", "BAL")));
+    }
+
+    @Test
+    void replay_ShouldRestoreChangesInOrderAndDropTornTail(@TempDir Path dir) throws Exception {
+        PlayerWriteAheadLog wal = new PlayerWriteAheadLog(dir, 0, true);
+        wal.appendPut(new Player("Adam Donachie", "BAL", "Catcher", 74, 180, 22.99));
+        wal.appendPut(new Player("Paul Bako", "BAL", null, null, 215, null));
+        long last = wal.appendDelete("BAL_Adam_Donachie");
+        wal.awaitDurable(last);
+        wal.close();
+
+        // Сбой посреди записи: в конце сегмента остался обрывок
+        Path segment = segments(dir).get(0);
+        Files.write(segment, new byte[]{0, 0, 0, 40, 1, 2}, StandardOpenOption.APPEND);
+
+        Map<String, Player> storage = new LinkedHashMap<>();
+        long replayedTo = PlayerWriteAheadLog.replay(dir, 0, replayer(storage));
+
+        assertEquals(3, replayedTo);
+        assertEquals(List.of("BAL_Paul_Bako"), List.copyOf(storage.keySet()));
+        assertNull(storage.get("BAL_Paul_Bako").getPosition());
+        assertEquals(215, storage.get("BAL_Paul_Bako").getWeightLbs());
+
+        // Обрывок отрезан, журнал можно продолжать
+        PlayerWriteAheadLog reopened = new PlayerWriteAheadLog(dir, replayedTo, true);
+        reopened.appendClear();
+        reopened.awaitDurable(reopened.appendPut(new Player("Ramon Hernandez", "BAL", "Catcher", 72, 210, 30.78)));
+        reopened.close();
+        storage.clear();
+        assertEquals(5, PlayerWriteAheadLog.replay(dir, 0, replayer(storage)));
+        assertEquals(List.of("BAL_Ramon_Hernandez"), List.copyOf(storage.keySet()));
+    }
+
+    @Test
+    void rotate_ShouldAllowDeletingSegmentsCoveredBySnapshot(@TempDir Path dir) throws Exception {
+        PlayerWriteAheadLog wal = new PlayerWriteAheadLog(dir, 0, false);
+        wal.appendPut(new Player("Adam Donachie", "BAL", "Catcher", 74, 180, 22.99));
+        long covered = wal.rotate();
+        long last = wal.appendPut(new Player("Paul Bako", "BAL", "Catcher", 74, 215, 34.69));
+        wal.awaitDurable(last);
+
+        wal.deleteSegmentsThrough(covered);
+        wal.close();
+
+        Map<String, Player> storage = new LinkedHashMap<>();
+        assertEquals(2, PlayerWriteAheadLog.replay(dir, covered, replayer(storage)));
+        assertEquals(List.of("BAL_Paul_Bako"), List.copyOf(storage.keySet()));
+        assertEquals(1, segments(dir).size());
+    }
+
+    private PlayerWriteAheadLog.Replayer replayer(Map<String, Player> storage) {
+        return new PlayerWriteAheadLog.Replayer() {
+            @Override
+            public void put(Player player) {
+                storage.put(player.getId(), player);
+            }
+
+            @Override
+            public void delete(String id) {
+                storage.remove(id);
+            }
+
+            @Override
+            public void clear() {
+                storage.clear();
+            }
+        };
+    }
+
+    private List<Path> segments(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.sorted().toList();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.sportstats.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ValueIndexTest {
+
+    @Test
+    void changeValues_ShouldReuseCodesOfValuesWithoutRows() {
+        ValueIndex index = new ValueIndex(3);
+        double[] values = {20.5, 30.5, 40.5};
+        for (int row = 0; row < values.length; row++) {
+            index.add(values[row], row);
+        }
+
+        // Каждая перезапись дает строке новое значение, прежнее остается без строк
+        for (int step = 1; step <= 100_000; step++) {
+            int row = step % values.length;
+            index.remove(values[row], row);
+            values[row] = 20 + step * 0.001;
+            index.add(values[row], row);
+        }
+
+        assertTrue(index.codeCount() <= 4, "Выдано кодов: " + index.codeCount());
+        List<Integer> rows = new ArrayList<>();
+        index.forEachInRange(0, 1_000, rows::add);
+        assertEquals(List.of(2, 0, 1), rows);
+        assertEquals(values[1], index.max().getAsDouble());
+        assertEquals(values[2], index.min().getAsDouble());
+    }
+
+    @Test
+    void remove_ShouldKeepCodeWhileValueHasRows() {
+        ValueIndex index = new ValueIndex(3);
+        index.add(25.0, 0);
+        index.add(25.0, 1);
+        index.add(30.0, 2);
+
+        index.remove(25.0, 0);
+        index.add(35.0, 0);
+
+        List<Integer> rows = new ArrayList<>();
+        index.forEachInRange(25.0, 25.0, rows::add);
+        assertEquals(List.of(1), rows);
+        assertEquals(3, index.codeCount());
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.sportstats.service;
+
+import com.example.sportstats.model.Player;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchWriteStageTest {
+
+    @Test
+    void finish_ShouldWaitForAllBatchesFromSeveralWriters() {
+        List<String> written = Collections.synchronizedList(new ArrayList<>());
+        ImportCounters counters = new ImportCounters();
+        BatchWriteStage stage = new BatchWriteStage((chunk, c) -> {
+            chunk.forEach(player -> written.add(player.getId()));
+            c.addImported(chunk.size());
+        }, counters, 3, 2);
+
+        for (int batch = 0; batch < 50; batch++) {
+            List<Player> players = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                players.add(new Player("Player " + batch + " " + i, "BAL", "Catcher", 74, 180, 22.99));
+            }
+            stage.submit(players);
+        }
+        stage.finish();
+
+        assertEquals(500, written.size());
+        assertEquals(500, counters.getImported());
+        Map<?, ?> write = (Map<?, ?>) counters.stagesToMap(1_000_000_000L).get("write");
+        assertEquals(3, write.get("writers"));
+        assertEquals(50L, write.get("batches"));
+        assertEquals(500L, write.get("rows"));
+    }
+
+    @Test
+    void submit_WhenWriterFails_ShouldRethrowInReaderThread() {
+        ImportCounters counters = new ImportCounters();
+        BatchWriteStage stage = new BatchWriteStage((chunk, c) -> {
+            throw new IllegalStateException("база недоступна");
+        }, counters, 1, 1);
+        List<Player> batch = List.of(new Player("Adam Donachie", "BAL", "Catcher", 74, 180, 22.99));
+
+        IllegalStateException error = assertThrows(IllegalStateException.class, () -> {
+            for (int i = 0; i < 100; i++) {
+                stage.submit(batch);
+            }
+            stage.finish();
+        });
+        stage.abort();
+
+        assertEquals("база недоступна", error.getMessage());
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.sportstats.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ChunkedUploadServiceTest {
+
+    private CsvImportJobService jobService;
+    private ChunkedUploadService chunkedService;
+
+    @BeforeEach
+    void setUp() {
+        CsvUploadService uploadService = mock(CsvUploadService.class);
+        // Загрузка по частям читает поток до конца, то есть ждет клиента
+        when(uploadService.importCsvStream(any(), any(), any())).thenAnswer(invocation -> {
+            invocation.<InputStream>getArgument(0).readAllBytes();
+            return Map.of("success", true);
+        });
+        jobService = new CsvImportJobService(uploadService, new ImportCheckpointStore("", ""), 1, 1, 100);
+        chunkedService = new ChunkedUploadService(uploadService, jobService, 1024, 0, 2, 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        chunkedService.shutdown();
+        jobService.shutdown();
+    }
+
+    @Test
+    void idleChunkedUploads_ShouldNotBlockAsyncImports() throws Exception {
+        ChunkedUploadSession first = chunkedService.initiate("first.csv");
+        ChunkedUploadSession second = chunkedService.initiate("second.csv");
+        awaitTrue(() -> first.getJob().getStatus() == CsvImportJob.Status.RUNNING
+                && second.getJob().getStatus() == CsvImportJob.Status.RUNNING);
+
+        CsvImportJob job = jobService.start("players.csv", 1, counters -> Map.of("success", true), () -> { });
+
+        awaitTrue(() -> job.getStatus() == CsvImportJob.Status.COMPLETED);
+    }
+
+    @Test
+    void abortIdleSessions_ShouldStopAbandonedUploads() throws Exception {
+        ChunkedUploadSession session = chunkedService.initiate("abandoned.csv");
+        awaitTrue(() -> session.getJob().getStatus() == CsvImportJob.Status.RUNNING);
+        Thread.sleep(5);
+
+        chunkedService.abortIdleSessions();
+
+        assertTrue(session.isAborted());
+        awaitTrue(() -> session.getJob().isFinished());
+        assertTrue(chunkedService.getSessions().isEmpty());
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Условие не выполнилось за 5 секунд");
+            Thread.sleep(10);
+        }
+    }
+}
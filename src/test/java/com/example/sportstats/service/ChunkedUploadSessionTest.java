@@ -0,0 +1,83 @@
+package com.example.sportstats.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChunkedUploadSessionTest {
+
+    @Test
+    void appendChunk_ShouldAcceptInOrderAndIgnoreRepeatedChunk(@TempDir Path dir) throws Exception {
+        ChunkedUploadSession session = newSession(dir);
+
+        assertTrue(session.appendChunk(0, body("a,b\n"), 1024));
+        assertFalse(session.appendChunk(0, body("a,b\n"), 1024));
+        assertThrows(IllegalStateException.class, () -> session.appendChunk(2, body("x\n"), 1024));
+        assertTrue(session.appendChunk(1, body("c,d\n"), 1024));
+        session.complete(2);
+
+        try (InputStream in = session.openStream()) {
+            assertEquals("a,b\nc,d\n", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void appendChunk_WhenBodyBreaks_ShouldRollBackToLastAcceptedChunk(@TempDir Path dir) throws Exception {
+        ChunkedUploadSession session = newSession(dir);
+        session.appendChunk(0, body("a,b\n"), 1024);
+
+        InputStream broken = new SequenceInputStream(body("partial"), new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("connection reset");
+            }
+        });
+        assertThrows(IOException.class, () -> session.appendChunk(1, broken, 1024));
+        assertEquals(1, session.getNextChunk());
+
+        session.appendChunk(1, body("c,d\n"), 1024);
+        session.complete(null);
+        try (InputStream in = session.openStream()) {
+            assertEquals("a,b\nc,d\n", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void openStream_ShouldWaitForNextChunkUntilComplete(@TempDir Path dir) throws Exception {
+        ChunkedUploadSession session = newSession(dir);
+        session.appendChunk(0, body("a,b\n"), 1024);
+
+        CompletableFuture<String> reader = CompletableFuture.supplyAsync(() -> {
+            try (InputStream in = session.openStream()) {
+                return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        Thread.sleep(100);
+        assertFalse(reader.isDone());
+
+        session.appendChunk(1, body("c,d\n"), 1024);
+        session.complete(2);
+        assertEquals("a,b\nc,d\n", reader.get(5, TimeUnit.SECONDS));
+    }
+
+    private ChunkedUploadSession newSession(Path dir) throws IOException {
+        return new ChunkedUploadSession("test", "players.csv", Files.createFile(dir.resolve("upload.csv")));
+    }
+
+    private InputStream body(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
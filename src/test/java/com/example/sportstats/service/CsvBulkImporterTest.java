@@ -0,0 +1,67 @@
+package com.example.sportstats.service;
+
+import com.example.sportstats.model.Player;
+import com.example.sportstats.repository.CsvRepository;
+import com.example.sportstats.util.CsvParser;
+import com.example.sportstats.util.CsvValidator;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvBulkImporterTest {
+
+    @Test
+    void finish_ShouldPublishWholeUploadAtOnce() {
+        CsvRepository repository = new CsvRepository(new CsvParser(new CsvValidator()));
+        repository.save(new Player("Adam Donachie", "BAL", "Catcher", 74, 180, 22.99));
+        CsvBulkImporter importer = new CsvBulkImporter(repository);
+        ImportCounters counters = new ImportCounters();
+
+        PlayerBulkImporter upload = importer.begin();
+        upload.importChunk(List.of(
+                new Player("Adam Donachie", "BAL", "Catcher", 74, 200, 23.0),
+                new Player("Paul Bako", "BAL", "Catcher", 74, 215, 34.69)), counters);
+        upload.importChunk(List.of(
+                new Player("Paul Bako", "BAL", "Catcher", 74, 215, 34.69),
+                new Player("Ramon Hernandez", "BAL", "Catcher", 72, 210, 30.78)), counters);
+
+        // До finish загрузка не видна читателям
+        assertEquals(1, repository.count());
+
+        // Пока шла загрузка, одного из игроков добавили запросом
+        repository.save(new Player("Ramon Hernandez", "BAL", "Catcher", 72, 212, 30.78));
+        upload.finish(counters);
+
+        assertEquals(3, repository.count());
+        assertEquals(180, repository.findById("BAL_Adam_Donachie").getWeightLbs());
+        assertEquals(212, repository.findById("BAL_Ramon_Hernandez").getWeightLbs());
+        assertEquals(1, counters.getImported());
+        assertEquals(3, counters.getDuplicates());
+
+        assertEquals(3, repository.deleteAll());
+        assertEquals(0, repository.count());
+    }
+
+    @Test
+    void beginReplace_ShouldSwapWholeDatasetOnFinish() {
+        CsvRepository repository = new CsvRepository(new CsvParser(new CsvValidator()));
+        repository.save(new Player("Adam Donachie", "BAL", "Catcher", 74, 180, 22.99));
+        repository.save(new Player("Paul Bako", "BAL", "Catcher", 74, 215, 34.69));
+        ImportCounters counters = new ImportCounters();
+
+        PlayerBulkImporter replace = new CsvBulkImporter(repository).beginReplace();
+        replace.importChunk(List.of(
+                new Player("Paul Bako", "BAL", "Catcher", 74, 220, 34.69),
+                new Player("Paul Bako", "BAL", "Catcher", 74, 230, 34.69)), counters);
+        assertEquals(215, repository.findById("BAL_Paul_Bako").getWeightLbs());
+
+        replace.finish(counters);
+
+        assertEquals(1, repository.count());
+        assertEquals(220, repository.findById("BAL_Paul_Bako").getWeightLbs());
+        assertEquals(1, counters.getImported());
+        assertEquals(1, counters.getDuplicates());
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.sportstats.service;
+
+import com.example.sportstats.model.Player;
+import com.example.sportstats.repository.CsvRepository;
+import com.example.sportstats.util.CsvParser;
+import com.example.sportstats.util.CsvValidator;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvDiffServiceTest {
+
+    private static final String HEADER =
+            "Name,\" \"\"Team\"\"\",\" \"\"Position\"\"\",\" \"\"Height(inches)\"\"\",\" \"\"Weight(lbs)\"\"\",\" \"\"Age\"\"\"\n";
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void diff_ShouldCountChangesByIdAndContent() {
+        CsvParser csvParser = new CsvParser(new CsvValidator());
+        CsvRepository repository = new CsvRepository(csvParser);
+        repository.save(new Player("Adam Donachie", "BAL", "Catcher", 74, 180, 22.99));
+        repository.save(new Player("Paul Bako", "BAL", "Catcher", 74, 215, 34.69));
+        repository.save(new Player("Ramon Hernandez", "BAL", "Catcher", 72, 210, 30.78));
+        CsvDiffService diffService = new CsvDiffService(csvParser, repository, null);
+
+        MockMultipartFile file = new MockMultipartFile("file", "players.csv", "text/csv", (HEADER
+                + "Adam Donachie,\" \"\"BAL\"\"\",\" \"\"Catcher\"\"\",74,180,22.99\n"
+                + "Paul Bako,\" \"\"BAL\"\"\",\" \"\"Catcher\"\"\",74,220,34.69\n"
+                + "Paul Bako,\" \"\"BAL\"\"\",\" \"\"Catcher\"\"\",74,230,34.69\n"
+                + "Kevin Millar,\" \"\"BAL\"\"\",\" \"\"First Baseman\"\"\",72,210,35.43\n")
+                .getBytes(StandardCharsets.UTF_8));
+        Map<String, Object> result = diffService.diff(file, 10);
+
+        assertEquals(1L, result.get("added"));
+        assertEquals(1L, result.get("modified"));
+        assertEquals(1L, result.get("removed"));
+        assertEquals(1L, result.get("unchanged"));
+        assertEquals(1L, result.get("duplicates"));
+        Map<String, Object> samples = (Map<String, Object>) result.get("samples");
+        List<Map<String, Object>> modified = (List<Map<String, Object>>) samples.get("modified");
+        assertEquals(215, ((Player) modified.get(0).get("current")).getWeightLbs());
+        assertEquals(220, ((Player) modified.get(0).get("incoming")).getWeightLbs());
+        assertEquals("BAL_Ramon_Hernandez", ((List<Player>) samples.get("removed")).get(0).getId());
+        // Сравнение ничего не меняет
+        assertEquals(3, repository.count());
+    }
+}
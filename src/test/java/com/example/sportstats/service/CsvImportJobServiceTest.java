@@ -0,0 +1,126 @@
+package com.example.sportstats.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class CsvImportJobServiceTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private CsvImportJobService service;
+
+    @BeforeEach
+    void setUp() {
+        // Один поток, очередь на одну задачу, хранятся две задачи
+        service = new CsvImportJobService(mock(CsvUploadService.class), new ImportCheckpointStore("", ""), 1, 1, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        service.shutdown();
+    }
+
+    @Test
+    void start_WhenQueueFull_ShouldReject503() throws Exception {
+        CsvImportJob running = service.start("running.csv", 1, this::blocked, () -> { });
+        awaitTrue(() -> running.getStatus() == CsvImportJob.Status.RUNNING);
+        CsvImportJob queued = service.start("queued.csv", 1, counters -> Map.of("success", true), () -> { });
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> service.start("rejected.csv", 1, counters -> Map.of("success", true), () -> { }));
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatusCode());
+        // Отклоненная задача не остается в реестре
+        assertEquals(2, service.getJobs().size());
+        release.countDown();
+        awaitTrue(() -> queued.getStatus() == CsvImportJob.Status.COMPLETED);
+    }
+
+    @Test
+    void cancel_WhileQueued_ShouldSkipWorkAndRunCleanup() throws Exception {
+        CsvImportJob running = service.start("running.csv", 1, this::blocked, () -> { });
+        awaitTrue(() -> running.getStatus() == CsvImportJob.Status.RUNNING);
+        AtomicBoolean workRan = new AtomicBoolean();
+        AtomicBoolean cleanedUp = new AtomicBoolean();
+        CsvImportJob queued = service.start("queued.csv", 1, counters -> {
+            workRan.set(true);
+            return Map.of("success", true);
+        }, () -> cleanedUp.set(true));
+
+        assertTrue(service.cancel(queued.getId()));
+
+        assertEquals(CsvImportJob.Status.CANCELLED, queued.getStatus());
+        release.countDown();
+        awaitTrue(cleanedUp::get);
+        assertFalse(workRan.get());
+        assertEquals(CsvImportJob.Status.CANCELLED, queued.getStatus());
+        awaitTrue(() -> running.getStatus() == CsvImportJob.Status.COMPLETED);
+    }
+
+    @Test
+    void cancel_WhileRunning_ShouldStopWork() throws Exception {
+        CsvImportJob job = service.start("running.csv", 1, counters -> {
+            // Загрузка проверяет флаг отмены на каждой строке
+            while (!counters.isCancelled()) {
+                Thread.sleep(1);
+            }
+            return Map.of("success", false, "cancelled", true);
+        }, () -> { });
+        awaitTrue(() -> job.getStatus() == CsvImportJob.Status.RUNNING);
+
+        assertTrue(service.cancel(job.getId()));
+
+        awaitTrue(() -> job.getStatus() == CsvImportJob.Status.CANCELLED);
+        assertFalse(service.cancel(job.getId()));
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> service.cancel("missing"));
+        assertEquals(HttpStatus.NOT_FOUND, e.getStatusCode());
+    }
+
+    @Test
+    void start_BeyondRetainedJobs_ShouldEvictOldestFinished() throws Exception {
+        CsvImportJob first = completed("first.csv");
+        CsvImportJob second = completed("second.csv");
+        CsvImportJob third = completed("third.csv");
+
+        CsvImportJob running = service.start("running.csv", 1, this::blocked, () -> { });
+
+        assertTrue(service.getJob(first.getId()).isEmpty());
+        assertTrue(service.getJob(second.getId()).isEmpty());
+        assertTrue(service.getJob(third.getId()).isPresent());
+        assertTrue(service.getJob(running.getId()).isPresent());
+        assertEquals(2, service.getJobs().size());
+    }
+
+    private CsvImportJob completed(String fileName) throws InterruptedException {
+        CsvImportJob job = service.start(fileName, 1, counters -> Map.of("success", true), () -> { });
+        awaitTrue(job::isFinished);
+        // Время завершения задач различается, порядок вытеснения однозначен
+        Thread.sleep(2);
+        return job;
+    }
+
+    private Map<String, Object> blocked(ImportCounters counters) throws InterruptedException {
+        assertTrue(release.await(5, TimeUnit.SECONDS));
+        return Map.of("success", true);
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Условие не выполнилось за 5 секунд");
+            Thread.sleep(10);
+        }
+    }
+}
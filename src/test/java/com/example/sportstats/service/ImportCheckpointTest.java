@@ -0,0 +1,130 @@
+package com.example.sportstats.service;
+
+import com.example.sportstats.model.Player;
+import com.example.sportstats.util.CsvParser;
+import com.example.sportstats.util.CsvValidator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImportCheckpointTest {
+
+    private static final String HEADER =
+            "Name,\" \"\"Team\"\"\",\" \"\"Position\"\"\",\" \"\"Height(inches)\"\"\",\" \"\"Weight(lbs)\"\"\",\" \"\"Age\"\"\"\n";
+
+    @Test
+    void batchWritten_OutOfOrder_ShouldSaveCountsOfContiguousPrefixOnly(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("job.checkpoint");
+        ImportCheckpoint checkpoint = new ImportCheckpoint("job", "players.csv", false, dir.resolve("job.csv"), file);
+        long first = checkpoint.batchSubmitted(100, 5, 4, 0);
+        long second = checkpoint.batchSubmitted(200, 9, 8, 0);
+
+        // Вторая пачка записана раньше первой: позиция и счетчики не сдвигаются
+        checkpoint.batchWritten(second, batch(3, 1));
+        assertEquals(0, checkpoint.getOffset());
+        assertFalse(Files.exists(file));
+
+        checkpoint.batchWritten(first, batch(4, 0));
+        ImportCounters restored = new ImportCounters();
+        ImportCheckpoint.load("job", dir.resolve("job.csv"), file).restore(restored);
+        assertEquals(7, restored.getImported());
+        assertEquals(1, restored.getDuplicates());
+        assertEquals(8, restored.getRowsRead());
+
+        // Третья пачка записана, первая после позиции еще нет: в файле прежние счетчики
+        long third = checkpoint.batchSubmitted(300, 13, 12, 0);
+        long fourth = checkpoint.batchSubmitted(400, 17, 16, 0);
+        checkpoint.batchWritten(fourth, batch(4, 0));
+        restored = new ImportCounters();
+        ImportCheckpoint.load("job", dir.resolve("job.csv"), file).restore(restored);
+        assertEquals(7, restored.getImported());
+        assertEquals(200, checkpoint.getOffset());
+
+        checkpoint.batchWritten(third, batch(2, 2));
+        restored = new ImportCounters();
+        ImportCheckpoint.load("job", dir.resolve("job.csv"), file).restore(restored);
+        assertEquals(13, restored.getImported());
+        assertEquals(3, restored.getDuplicates());
+        assertEquals(400, checkpoint.getOffset());
+    }
+
+    @Test
+    void importCheckpointed_WithFileDatabase_ShouldResumeFromOffset(@TempDir Path dir) throws Exception {
+        // Продолжение с позиции возможно только с базой, которая переживает перезапуск
+        String url = "jdbc:h2:file:" + dir.resolve("players-db").toAbsolutePath();
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(url, "sa", "");
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        JdbcBatchImporter jdbcImporter = new JdbcBatchImporter(jdbcTemplate, new DataSourceTransactionManager(dataSource));
+        ImportCheckpointStore store = new ImportCheckpointStore(dir.resolve("checkpoints").toString(), url);
+
+        ImportCheckpoint checkpoint = store.create("players.csv", false);
+        StringBuilder csv = new StringBuilder(HEADER);
+        for (int i = 0; i < 10; i++) {
+            csv.append("Player ").append(i).append(",\" \"\"BAL\"\"\",\" \"\"Catcher\"\"\",74,180,22.99\n");
+        }
+        Files.writeString(checkpoint.getSource(), csv);
+        checkpoint.save();
+
+        // Приложение падает на третьей пачке: две пачки по 4 строки уже в базе
+        AtomicInteger calls = new AtomicInteger();
+        PlayerBulkImporter crashing = new PlayerBulkImporter() {
+            @Override
+            public void importChunk(List<Player> chunk, ImportCounters counters) {
+                if (calls.incrementAndGet() == 3) {
+                    throw new IllegalStateException("сбой");
+                }
+                jdbcImporter.importChunk(chunk, counters);
+            }
+
+            @Override
+            public boolean commitsEachChunk() {
+                return true;
+            }
+        };
+        Map<String, Object> failed = uploadService(jdbcTemplate, crashing, store, dir)
+                .importCheckpointed(checkpoint, new ImportCounters());
+        assertEquals(false, failed.get("success"));
+        assertEquals(8, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM players", Integer.class));
+
+        // После перезапуска загрузка продолжается с контрольной точки на диске
+        List<ImportCheckpoint> pending = store.pending();
+        assertEquals(1, pending.size());
+        ImportCounters counters = new ImportCounters();
+        Map<String, Object> result = uploadService(jdbcTemplate, jdbcImporter, store, dir)
+                .importCheckpointed(pending.get(0), counters);
+
+        assertEquals(true, result.get("success"));
+        assertEquals(10L, result.get("resumedFromLine"));
+        assertEquals(10, result.get("totalPlayers"));
+        // Записанные до сбоя пачки не читаются и не пишутся повторно
+        assertEquals(10, counters.getImported());
+        assertEquals(0, counters.getDuplicates());
+        assertEquals(10, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM players", Integer.class));
+    }
+
+    private static ImportCounters batch(long imported, long duplicates) {
+        ImportCounters counters = new ImportCounters();
+        counters.addImported(imported);
+        counters.addDuplicates(duplicates);
+        return counters;
+    }
+
+    private static CsvUploadService uploadService(JdbcTemplate jdbcTemplate, PlayerBulkImporter importer,
+                                                  ImportCheckpointStore store, Path dir) {
+        return new CsvUploadService(jdbcTemplate, new CsvParser(new CsvValidator()), importer, null,
+                new RejectReportStore(dir.resolve("rejects").toString(), 5), store, 4, 1, 1, -1, null);
+    }
+}
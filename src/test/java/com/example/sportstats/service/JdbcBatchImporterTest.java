@@ -0,0 +1,83 @@
+package com.example.sportstats.service;
+
+import com.example.sportstats.model.Player;
+import com.example.sportstats.repository.PlayerJdbcRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.util.List;
+
+import static com.example.sportstats.service.TestPlayers.player;
+import static com.example.sportstats.service.TestPlayers.players;
+import static org.junit.jupiter.api.Assertions.*;
+
+class JdbcBatchImporterTest {
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private JdbcBatchImporter importer;
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("schema.sql")
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        importer = new JdbcBatchImporter(jdbcTemplate, new DataSourceTransactionManager(database));
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void importChunk_ShouldCountDuplicatesInChunkAndInTable() {
+        PlayerJdbcRepository repository = new PlayerJdbcRepository(jdbcTemplate);
+        repository.save(player(3));
+        repository.save(player(70));
+        // 120 разных игроков: две полные вставки по 50 строк и хвост из 20
+        List<Player> chunk = players(120);
+        chunk.add(player(5));
+        chunk.add(player(110));
+        ImportCounters counters = new ImportCounters();
+
+        importer.importChunk(chunk, counters);
+
+        assertEquals(118, counters.getImported());
+        assertEquals(4, counters.getDuplicates());
+        assertEquals(0, counters.getErrors());
+        assertEquals(120, countPlayers());
+        assertEquals(5, jdbcTemplate.queryForObject("SELECT COUNT(DISTINCT team) FROM players", Integer.class));
+        assertEquals(5, jdbcTemplate.queryForObject("SELECT COUNT(DISTINCT position) FROM players", Integer.class));
+    }
+
+    @Test
+    void importChunk_WhenRowViolatesConstraint_ShouldImportRestRowByRow() {
+        new PlayerJdbcRepository(jdbcTemplate).save(player(7));
+        List<Player> chunk = players(60);
+        chunk.add(player(12));
+        // team VARCHAR(10): пачка откатывается и повторяется по одной строке
+        chunk.add(30, new Player("Too Long", "NOT_A_TEAM_CODE", "Catcher", 74, 180, 22.99));
+        ImportCounters counters = new ImportCounters();
+
+        importer.importChunk(chunk, counters);
+
+        assertEquals(59, counters.getImported());
+        assertEquals(2, counters.getDuplicates());
+        assertEquals(1, counters.getErrors());
+        assertEquals(60, countPlayers());
+    }
+
+    private int countPlayers() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM players", Integer.class);
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.sportstats.service;
+
+import com.example.sportstats.model.Player;
+import com.example.sportstats.repository.PlayerJpaRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static com.example.sportstats.service.TestPlayers.player;
+import static com.example.sportstats.service.TestPlayers.players;
+import static org.junit.jupiter.api.Assertions.*;
+
+// Импортер фиксирует каждую пачку сам, поэтому тест не оборачивается в транзакцию
+@DataJpaTest
+@ActiveProfiles("jpa")
+@Import(JpaBulkImporter.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class JpaBulkImporterTest {
+
+    @Autowired
+    private JpaBulkImporter importer;
+
+    @Autowired
+    private PlayerJpaRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository.deleteAll();
+    }
+
+    @Test
+    void importChunk_ShouldSkipDuplicatesInChunk() {
+        List<Player> chunk = players(10);
+        chunk.add(player(2));
+        chunk.add(player(2));
+        ImportCounters counters = new ImportCounters();
+
+        importer.importChunk(chunk, counters);
+
+        assertEquals(10, counters.getImported());
+        assertEquals(2, counters.getDuplicates());
+        assertEquals(10, repository.count());
+    }
+
+    @Test
+    void importChunk_ShouldSkipPlayersAlreadyInDatabase() {
+        repository.save(player(3));
+        repository.save(player(7));
+        ImportCounters counters = new ImportCounters();
+
+        importer.importChunk(players(10), counters);
+        // Повторная загрузка того же файла: все игроки уже в базе
+        importer.importChunk(players(10), counters);
+
+        assertEquals(8, counters.getImported());
+        assertEquals(12, counters.getDuplicates());
+        assertEquals(0, counters.getErrors());
+        assertEquals(10, repository.count());
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.sportstats.service;
+
+import com.example.sportstats.model.Player;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RejectReportTest {
+
+    @Test
+    void reject_ShouldStreamRowsToFileAndCountTowardsLimit(@TempDir Path dir) throws Exception {
+        RejectReportStore store = new RejectReportStore(dir.toString(), 5);
+        RejectReport report = store.create();
+        ImportCounters counters = new ImportCounters();
+        counters.attachRejectReport(report, 1);
+
+        counters.reject(7, new String[] {"Broken, Row", "BAL"}, "Ожидалось 6 колонок, найдено 2");
+        assertFalse(counters.isErrorLimitExceeded());
+        counters.addError(new Player("Adam Donachie", "BAL", "Catcher", 74, 180, 22.99), "Нарушение ключа");
+        assertTrue(counters.isErrorLimitExceeded());
+        report.close();
+
+        List<String> lines = Files.readAllLines(store.find(report.getId()).orElseThrow());
+        assertEquals(List.of(
+                "line,reason,row",
+                "7,\"Ожидалось 6 колонок, найдено 2\",\"Broken, Row\",BAL",
+                ",Нарушение ключа,Adam Donachie,BAL,Catcher,74,180,22.99"), lines);
+        assertEquals(2L, report.toMap().get("rows"));
+    }
+
+    @Test
+    void create_WithoutRejects_ShouldLeaveNoFile(@TempDir Path dir) {
+        RejectReportStore store = new RejectReportStore(dir.toString(), 5);
+        RejectReport report = store.create();
+        report.close();
+
+        assertNull(report.toMap());
+        assertTrue(store.find(report.getId()).isEmpty());
+        assertTrue(store.find("../application").isEmpty());
+    }
+
+    @Test
+    void create_ShouldNotPruneReportOfRunningImport(@TempDir Path dir) throws Exception {
+        RejectReportStore store = new RejectReportStore(dir.toString(), 2);
+        RejectReport running = store.create();
+        running.reject(2, new String[] {"Broken"}, "Ожидалось 6 колонок, найдено 1");
+        // Отчет идущей загрузки - самый старый в каталоге
+        Files.setLastModifiedTime(running.getPath(), FileTime.fromMillis(1_000));
+
+        for (int i = 0; i < 3; i++) {
+            RejectReport finished = store.create();
+            finished.reject(2, new String[] {"Broken"}, "Ожидалось 6 колонок, найдено 1");
+            finished.close();
+            Files.setLastModifiedTime(finished.getPath(), FileTime.fromMillis(2_000 + i * 1_000));
+        }
+        assertTrue(Files.exists(running.getPath()));
+        running.reject(3, new String[] {"Broken"}, "Ожидалось 6 колонок, найдено 1");
+        running.close();
+        assertEquals(2L, running.toMap().get("rows"));
+
+        // После завершения загрузки отчет удаляется на общих основаниях, как самый старый
+        Files.setLastModifiedTime(running.getPath(), FileTime.fromMillis(1_000));
+        store.create().close();
+        assertFalse(Files.exists(running.getPath()));
+    }
+
+    @Test
+    void create_WithoutDirectory_ShouldOnlyCountRejects() {
+        RejectReportStore store = new RejectReportStore("", 5);
+        ImportCounters counters = new ImportCounters();
+        counters.attachRejectReport(store.create(), -1);
+
+        counters.reject(7, new String[] {"Broken"}, "Ожидалось 6 колонок, найдено 1");
+        counters.addError(new Player("Adam Donachie", "BAL", "Catcher", 74, 180, 22.99), "Нарушение ключа");
+
+        assertFalse(store.isEnabled());
+        assertEquals(1, counters.getRejected());
+        assertEquals(1, counters.getErrors());
+        assertTrue(store.find("00000000-0000-0000-0000-000000000000").isEmpty());
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.sportstats.service;
+
+import com.example.sportstats.model.Player;
+import com.example.sportstats.repository.PlayerJdbcRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShadowTableReplacerTest {
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private ShadowTableReplacer replacer;
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("schema.sql")
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        replacer = new ShadowTableReplacer(jdbcTemplate, new DataSourceTransactionManager(database),
+                new StaticListableBeanFactory().getBeanProvider(EntityManagerFactory.class));
+        replacer.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void init_ShouldTurnPlayersIntoSynonymOnce() {
+        String target = synonymTarget();
+        assertNotNull(target);
+
+        replacer.init();
+
+        assertEquals(target, synonymTarget());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM players", Integer.class));
+    }
+
+    @Test
+    void replaceTwice_ShouldKeepSchemaForNormalWrites() {
+        ImportCounters first = replace(
+                new Player("Adam Donachie", "BAL", "Catcher", 74, 180, 22.99),
+                new Player("Adam Donachie", "BAL", "Catcher", 74, 185, 23.0),
+                new Player("Paul Bako", "BAL", "Catcher", 74, 215, 34.69));
+        assertEquals(2, first.getImported());
+        assertEquals(1, first.getDuplicates());
+
+        ImportCounters second = replace(
+                new Player("Derek Jeter", "NYY", "Shortstop", 75, 195, 32.5),
+                new Player("Kevin Millar", "BAL", "First Baseman", 72, 210, 35.43),
+                new Player("Ramon Hernandez", "BAL", "Catcher", 72, 210, 30.78));
+        assertEquals(3, second.getImported());
+
+        PlayerJdbcRepository repository = new PlayerJdbcRepository(jdbcTemplate);
+        repository.save(new Player("Nick Markakis", "BAL", "Outfielder", 74, 185, 23.0));
+        List<String> ids = new ArrayList<>();
+        repository.findAll().forEach(p -> ids.add(p.getId()));
+        assertEquals(List.of("BAL_Kevin_Millar", "BAL_Nick_Markakis", "BAL_Ramon_Hernandez", "NYY_Derek_Jeter"),
+                ids.stream().sorted().toList());
+
+        // Ограничения schema.sql перенесены в теневую таблицу
+        assertThrows(DataIntegrityViolationException.class, () -> jdbcTemplate.update(
+                "INSERT INTO players (id, name, team) VALUES ('NYY_Derek_Jeter', 'Derek Jeter', 'NYY')"));
+        assertThrows(DataIntegrityViolationException.class, () -> jdbcTemplate.update(
+                "INSERT INTO players (id, name, team) VALUES ('NYY_Nobody', NULL, 'NYY')"));
+        // Прежние таблицы удалены, осталась одна
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_NAME LIKE 'PLAYERS%'", Integer.class));
+    }
+
+    private String synonymTarget() {
+        return jdbcTemplate.queryForList(
+                "SELECT SYNONYM_FOR FROM INFORMATION_SCHEMA.SYNONYMS WHERE SYNONYM_NAME = 'PLAYERS'", String.class)
+                .stream().findFirst().orElse(null);
+    }
+
+    private ImportCounters replace(Player... players) {
+        ImportCounters counters = new ImportCounters();
+        PlayerBulkImporter importer = replacer.beginReplace();
+        importer.importChunk(List.of(players), counters);
+        importer.finish(counters);
+        return counters;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.sportstats.service;
+
+import com.example.sportstats.model.Player;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Игроки для тестов пакетной записи: номер однозначно задает игрока,
+ * поэтому повтор номера - дубликат. Команды и позиции чередуются
+ */
+final class TestPlayers {
+
+    private static final String[] TEAMS = {"BAL", "NYY", "BOS", "TOR", "CLE"};
+    private static final String[] POSITIONS = {"Catcher", "First Baseman", "Shortstop", "Outfielder", "Starting Pitcher"};
+
+    private TestPlayers() {
+    }
+
+    static List<Player> players(int count) {
+        List<Player> players = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            players.add(player(i));
+        }
+        return players;
+    }
+
+    static Player player(int number) {
+        return new Player("Player " + number, TEAMS[number % TEAMS.length], POSITIONS[number / TEAMS.length % POSITIONS.length],
+                70 + number % 10, 180 + number % 40, 20 + number % 15 + 0.5);
+    }
+}
@@ -0,0 +1,253 @@
+package com.example.sportstats.util;
+
+import com.example.sportstats.model.Player;
+import com.opencsv.CSVReader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvParserTest {
+
+    private static final String HEADER =
+            "Name,\" \"\"Team\"\"\",\" \"\"Position\"\"\",\" \"\"Height(inches)\"\"\",\" \"\"Weight(lbs)\"\"\",\" \"\"Age\"\"\"\n";
+
+    private final CsvParser csvParser = new CsvParser(new CsvValidator());
+
+    @Test
+    void stream_ShouldEmitPlayersOneByOne() throws Exception {
+        String csv = HEADER +
+                "Adam Donachie,\" \"\"BAL\"\"\",\" \"\"Catcher\"\"\",74,180,22.99\n" +
+                "Paul Bako,\" \"\"BAL\"\"\",\" \"\"Catcher\"\"\",74,215,34.69\n";
+        List<Player> players = new ArrayList<>();
+
+        int count = csvParser.stream(new StringReader(csv), players::add);
+
+        assertEquals(2, count);
+        assertEquals(2, players.size());
+        Player first = players.get(0);
+        assertEquals("BAL_Adam_Donachie", first.getId());
+        assertEquals("BAL", first.getTeam());
+        assertEquals("Catcher", first.getPosition());
+        assertEquals(74, first.getHeightInches());
+        assertEquals(180, first.getWeightLbs());
+        assertEquals(22.99, first.getAge());
+    }
+
+    @Test
+    void stream_WhenRowIsInvalid_ShouldRejectWithLineNumber() throws Exception {
+        String csv = HEADER +
+                "Broken Row,BAL\n" +
+                "Bad Number,\" \"\"BAL\"\"\",\" \"\"Catcher\"\"\",tall,180,22.99\n";
+        List<Long> rejectedLines = new ArrayList<>();
+        CsvRowHandler handler = new CsvRowHandler() {
+            @Override
+            public void accept(Player player) {
+                fail("Invalid row must not be emitted");
+            }
+
+            @Override
+            public void onReject(long lineNumber, String[] record, String reason) {
+                rejectedLines.add(lineNumber);
+            }
+        };
+
+        int count = csvParser.stream(new StringReader(csv), handler);
+
+        assertEquals(0, count);
+        assertEquals(List.of(2L, 3L), rejectedLines);
+    }
+
+    @Test
+    void stream_WhenHeaderIsWrong_ShouldFailBeforeAnyRow() {
+        String csv = "id,title\nAdam Donachie,BAL\n";
+        List<Player> players = new ArrayList<>();
+
+        assertThrows(CsvStructureException.class,
+                () -> csvParser.stream(new StringReader(csv), players::add));
+        assertTrue(players.isEmpty());
+    }
+
+    @Test
+    void streamCsv_ShouldLoadBundledRoster() {
+        int[] count = {0};
+
+        int total = csvParser.streamCsv("players.csv", p -> count[0]++);
+
+        assertTrue(total > 0);
+        assertEquals(total, count[0]);
+    }
+
+    @Test
+    void stream_ShouldDecodeRosterLikeOpenCsv() throws Exception {
+        List<Player> players = csvParser.parseCsv("players.csv");
+
+        try (CSVReader reader = new CSVReader(new InputStreamReader(
+                getClass().getClassLoader().getResourceAsStream("players.csv")))) {
+            reader.readNext();
+            for (Player player : players) {
+                String[] record = reader.readNext();
+                assertEquals(clean(record[0]), player.getName());
+                assertEquals(clean(record[1]), player.getTeam());
+                assertEquals(clean(record[2]), player.getPosition());
+                assertEquals(Integer.valueOf(clean(record[3])), player.getHeightInches());
+                assertEquals(Integer.valueOf(clean(record[4])), player.getWeightLbs());
+                assertEquals(Double.valueOf(clean(record[5])), player.getAge());
+            }
+            assertNull(reader.readNext());
+        }
+    }
+
+    @Test
+    void streamPath_InParallel_ShouldMatchSequentialOrderAndLines(@TempDir Path dir) throws Exception {
+        StringBuilder csv = new StringBuilder(HEADER);
+        for (int i = 0; i < 200; i++) {
+            if (i % 50 == 7) {
+                // Перевод строки внутри кавычек не должен стать границей диапазона
+                csv.append("\"Multi\nLine ").append(i).append("\",\" \"\"NYY\"\"\",\" \"\"Pitcher\"\"\",75,210,28.5\n");
+            } else if (i % 50 == 13) {
+                csv.append("Short Row ").append(i).append(",BAL\n");
+            } else {
+                csv.append("Player ").append(i).append(",\" \"\"BAL\"\"\",\" \"\"Catcher\"\"\",74,180,22.99\n");
+            }
+        }
+        Path file = dir.resolve("players.csv");
+        Files.writeString(file, csv);
+
+        List<String> sequentialIds = new ArrayList<>();
+        List<Long> sequentialRejects = new ArrayList<>();
+        csvParser.stream(file, collector(sequentialIds, sequentialRejects));
+
+        CsvParser parallelParser = new CsvParser(new CsvValidator(), 4, 256);
+        List<String> parallelIds = new ArrayList<>();
+        List<Long> parallelRejects = new ArrayList<>();
+        // Тот же файл потоком: блоки режутся по границам записей при чтении
+        List<String> streamedIds = new ArrayList<>();
+        List<Long> streamedRejects = new ArrayList<>();
+        try {
+            parallelParser.stream(file, collector(parallelIds, parallelRejects));
+            try (InputStream in = Files.newInputStream(file)) {
+                parallelParser.stream(in, collector(streamedIds, streamedRejects));
+            }
+        } finally {
+            parallelParser.shutdown();
+        }
+
+        assertEquals(196, sequentialIds.size());
+        assertEquals(sequentialIds, parallelIds);
+        assertEquals(sequentialRejects, parallelRejects);
+        assertEquals(sequentialIds, streamedIds);
+        assertEquals(sequentialRejects, streamedRejects);
+    }
+
+    @Test
+    void streamFileFrom_ShouldResumeAfterAnyBlockEnd(@TempDir Path dir) throws Exception {
+        // Файл больше буфера чтения, чтобы позиция продолжения была за его пределами
+        StringBuilder csv = new StringBuilder(HEADER);
+        for (int i = 0; i < 3000; i++) {
+            if (i % 500 == 7) {
+                csv.append("\"Multi\nLine ").append(i).append("\",\" \"\"NYY\"\"\",\" \"\"Pitcher\"\"\",75,210,28.5\n");
+            } else if (i % 500 == 13) {
+                csv.append("Short Row ").append(i).append(",BAL\n");
+            } else {
+                csv.append("Player ").append(i).append(",\" \"\"BAL\"\"\",\" \"\"Catcher\"\"\",74,180,22.99\n");
+            }
+        }
+        Path file = dir.resolve("players.csv");
+        Files.writeString(file, csv);
+
+        List<String> allIds = new ArrayList<>();
+        List<Long> allRejects = new ArrayList<>();
+        List<long[]> blockEnds = new ArrayList<>();
+        List<Integer> idsAtBlockEnd = new ArrayList<>();
+        CsvRowHandler all = collector(allIds, allRejects);
+        int count = csvParser.streamFileFrom(file, 0, 0, 1000, new CsvRowHandler() {
+            @Override
+            public void accept(Player player) {
+                all.accept(player);
+            }
+
+            @Override
+            public void onReject(long lineNumber, String[] record, String reason) {
+                all.onReject(lineNumber, record, reason);
+            }
+
+            @Override
+            public void onBlockEnd(long offset, long lines) {
+                blockEnds.add(new long[] {offset, lines});
+                idsAtBlockEnd.add(allIds.size());
+            }
+        });
+
+        assertEquals(2994, count);
+        assertEquals(3, blockEnds.size());
+        long[] resume = blockEnds.get(1);
+        List<String> restIds = new ArrayList<>();
+        List<Long> restRejects = new ArrayList<>();
+        int rest = csvParser.streamFileFrom(file, resume[0], resume[1], 1000, collector(restIds, restRejects));
+
+        assertEquals(allIds.subList(idsAtBlockEnd.get(1), allIds.size()), restIds);
+        assertEquals(restIds.size(), rest);
+        assertEquals(allRejects.subList(allRejects.size() - 2, allRejects.size()), restRejects);
+    }
+
+    @Test
+    void streamMultipart_ShouldDecompressGzipAndZip() throws Exception {
+        String csv = HEADER +
+                "Adam Donachie,\" \"\"BAL\"\"\",\" \"\"Catcher\"\"\",74,180,22.99\n" +
+                "Paul Bako,\" \"\"BAL\"\"\",\" \"\"Catcher\"\"\",74,215,34.69\n";
+        byte[] plain = csv.getBytes(StandardCharsets.UTF_8);
+
+        ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(gzip)) {
+            out.write(plain);
+        }
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(zip)) {
+            out.putNextEntry(new ZipEntry("players.csv"));
+            out.write(plain);
+            out.closeEntry();
+        }
+
+        for (byte[] content : List.of(plain, gzip.toByteArray(), zip.toByteArray())) {
+            List<Player> players = new ArrayList<>();
+            int count = csvParser.streamCsvMultipart(
+                    new MockMultipartFile("file", "players.csv", "application/octet-stream", content), players::add);
+
+            assertEquals(2, count);
+            assertEquals("BAL_Paul_Bako", players.get(1).getId());
+        }
+    }
+
+    private String clean(String value) {
+        return value.replace("\"", "").trim();
+    }
+
+    private CsvRowHandler collector(List<String> ids, List<Long> rejectedLines) {
+        return new CsvRowHandler() {
+            @Override
+            public void accept(Player player) {
+                ids.add(player.getId());
+            }
+
+            @Override
+            public void onReject(long lineNumber, String[] record, String reason) {
+                rejectedLines.add(lineNumber);
+            }
+        };
+    }
+}